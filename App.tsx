@@ -4,19 +4,15 @@ import { Settings } from './components/Settings';
 import { Controls } from './components/Controls';
 import { StatusDisplay } from './components/StatusDisplay';
 import { translations, Language } from './lib/translations';
-import { Preferences } from '@capacitor/preferences';
 import { SoundOption, BUILTIN_SOUNDS, DEFAULT_SOUND_ID, SoundType } from './lib/soundModels';
 import ForegroundService from './plugins/ForegroundService';
 import FloatingWindow from './plugins/FloatingWindow';
-import { NativeAudio } from '@capacitor-community/native-audio';
+import Timer from './plugins/Timer';
+import type { SessionPhase } from './plugins/Timer';
+import SettingsStore from './plugins/SettingsStore';
 
-type TimerMode = 'work' | 'break';
+type TimerMode = SessionPhase;
 
-const WORK_MINUTES_KEY = 'pomodoro_work_minutes';
-const SOUND_OPTION_KEY = 'pomodoro_sound_option';
-const BREAK_MINUTES_KEY = 'pomodoro_break_minutes';
-const ALARM_SOUND_ID = 'alarmSound'; // Unique ID for our sound
-const CUSTOM_SOUND_FILE_KEY = 'pomodoro_custom_sound_file_uri';
 
 function App() {
   const [selectedSound, setSelectedSound] = useState<SoundOption>(BUILTIN_SOUNDS.find(s => s.id === DEFAULT_SOUND_ID)!);
@@ -24,6 +20,8 @@ function App() {
   const [customSoundName, setCustomSoundName] = useState<string | undefined>(undefined);
   const [workMinutes, setWorkMinutes] = useState(40);
   const [breakMinutes, setBreakMinutes] = useState(10);
+  // Not edited here, but a long break shows its own length
+  const [longBreakMinutes, setLongBreakMinutes] = useState(15);
   
   const [mode, setMode] = useState<TimerMode>('work');
   const [isActive, setIsActive] = useState(false);
@@ -32,9 +30,10 @@ function App() {
   const [isFloating, setIsFloating] = useState(false);
   const [language, setLanguage] = useState<Language>('zh');
 
-  const intervalRef = useRef<number | null>(null);
+  const isRunningRef = useRef(false);
 
   // --- Sound Handling ---
+  // The alarm is decoded and played by the native service (AlarmPlayer); JS only picks the file
   const getSoundPath = useCallback((sound: SoundOption) => {
     if (sound.type === 'builtin') {
       // For built-in sounds, we need to remove the leading '/' for assetPath
@@ -45,95 +44,41 @@ function App() {
     return ''; // 'none' or custom not set
   }, [customSoundUri]);
 
-  const preloadSound = useCallback(async (sound: SoundOption) => {
-    const path = getSoundPath(sound);
-    if (path) {
-      try {
-        await NativeAudio.preload({
-          assetId: ALARM_SOUND_ID,
-          assetPath: path,
-          audioChannelNum: 1,
-          isUrl: sound.type === 'custom', // Custom sound is a file URI, which is treated as a URL
-        });
-      } catch (err) {
-        console.error('Error preloading sound:', err);
-      }
-    }
-  }, [getSoundPath]);
-
-  const unloadSound = useCallback(async () => {
-    try {
-      await NativeAudio.unload({ assetId: ALARM_SOUND_ID });
-    } catch (err) {
-      // Ignore error if sound was not loaded
-    }
-  }, []);
-
-  // Preload/Unload effect
-  useEffect(() => {
-    unloadSound().then(() => {
-      if (selectedSound.type !== 'none') {
-        preloadSound(selectedSound);
-      }
-    });
-
-    return () => {
-      unloadSound();
-    };
-  }, [selectedSound, preloadSound, unloadSound]);
-
-
   // --- Settings Persistence ---
+  // One native call loads everything; writes are applied natively at once and persisted in a debounced batch
+  const settingsLoadedRef = useRef(false);
   useEffect(() => {
-    const loadSettings = async () => {
-      // Load Minutes
-      const workMins = await Preferences.get({ key: WORK_MINUTES_KEY });
-      if (workMins.value) setWorkMinutes(Number(workMins.value));
-
-      const breakMins = await Preferences.get({ key: BREAK_MINUTES_KEY });
-      if (breakMins.value) setBreakMinutes(Number(breakMins.value));
-
-      // Load Sound Option
-      const soundOptionResult = await Preferences.get({ key: SOUND_OPTION_KEY });
-      if (soundOptionResult.value) {
-        const savedSoundId = soundOptionResult.value;
-        const foundSound = BUILTIN_SOUNDS.find(s => s.id === savedSoundId);
-        if (foundSound) {
-          setSelectedSound(foundSound);
-        } else if (savedSoundId === 'custom') {
-          // Load custom sound details
-          const customSoundResult = await Preferences.get({ key: CUSTOM_SOUND_FILE_KEY });
-          if (customSoundResult.value) {
-            const { uri, name } = JSON.parse(customSoundResult.value);
-            setCustomSoundUri(uri);
-            setCustomSoundName(name);
-            setSelectedSound({ id: 'custom', type: 'custom', name: name, value: uri });
-          } else {
-            // Custom sound selected but file lost, fallback to default
-            setSelectedSound(BUILTIN_SOUNDS.find(s => s.id === DEFAULT_SOUND_ID)!);
-          }
-        }
+    SettingsStore.getAll().then(settings => {
+      setWorkMinutes(settings.workMinutes);
+      setBreakMinutes(settings.breakMinutes);
+      setLongBreakMinutes(settings.longBreakMinutes);
+      if (settings.soundId === 'custom' && settings.soundPath) {
+        setCustomSoundUri(settings.soundPath);
+        setCustomSoundName(settings.customSoundName);
+        setSelectedSound({ id: 'custom', type: 'custom', name: settings.customSoundName, value: settings.soundPath });
+      } else {
+        setSelectedSound(BUILTIN_SOUNDS.find(s => s.id === settings.soundId) ?? BUILTIN_SOUNDS.find(s => s.id === DEFAULT_SOUND_ID)!);
       }
-    };
-    loadSettings();
+      settingsLoadedRef.current = true;
+    });
   }, []);
 
   useEffect(() => {
-    Preferences.set({ key: WORK_MINUTES_KEY, value: String(workMinutes) });
-  }, [workMinutes]);
-
-  useEffect(() => {
-    Preferences.set({ key: BREAK_MINUTES_KEY, value: String(breakMinutes) });
-  }, [breakMinutes]);
-
-  // Save selected sound option
-  useEffect(() => {
-    Preferences.set({ key: SOUND_OPTION_KEY, value: selectedSound.id });
-  }, [selectedSound]);
+    // Don't overwrite stored settings with the initial defaults before they are loaded
+    if (!settingsLoadedRef.current) return;
+    SettingsStore.set({
+      workMinutes,
+      breakMinutes,
+      soundId: selectedSound.id,
+      soundPath: selectedSound.type === 'none' ? '' : getSoundPath(selectedSound),
+      customSoundName: selectedSound.type === 'custom' ? selectedSound.name : '',
+    }).catch(() => {
+      // e.g. an empty minutes field while typing; the last valid value stays in effect
+    });
+  }, [workMinutes, breakMinutes, selectedSound, getSoundPath]);
 
   // --- Timer Logic ---
   const resetTimer = useCallback(() => {
-    if (intervalRef.current) clearInterval(intervalRef.current);
     setIsActive(false);
     setIsPaused(true);
     setMode('work');
@@ -146,70 +91,56 @@ function App() {
     }
   }, [workMinutes]);
 
-  const playSound = useCallback(() => {
-    if (selectedSound.type !== 'none') {
-      // Play the preloaded sound by its ID
-      NativeAudio.play({ assetId: ALARM_SOUND_ID })
-        .catch(error => console.error("Audio playback failed:", error));
-    }
-  }, [selectedSound]);
-  
-  const switchMode = useCallback(() => {
-    const nextMode = mode === 'work' ? 'break' : 'work';
-    const nextSeconds = (nextMode === 'work' ? workMinutes : breakMinutes) * 60;
-    
-    setMode(nextMode);
-    setSecondsLeft(nextSeconds);
-    playSound(); // Play sound when modes switch
-  }, [mode, workMinutes, breakMinutes, playSound]);
+  const statusText = useCallback((timerMode: TimerMode) => {
+    return timerMode === 'work' ? translations.statusWorking[language] : translations.statusBreaking[language];
+  }, [language]);
 
+  // The native service owns the countdown, the work/break cycle, the alarm, the notification
+  // and the overlay; JS only mirrors its ticks
   useEffect(() => {
-    if (isActive && !isPaused) {
-      intervalRef.current = setInterval(() => {
-        setSecondsLeft(prev => {
-          // Update foreground service and floating window
-          const currentText = mode === 'work' ? translations.statusWorking[language] : translations.statusBreaking[language];
-          if (isFloating) {
-            const timeString = `${String(Math.floor((prev - 1) / 60)).padStart(2, '0')}:${String((prev - 1) % 60).padStart(2, '0')}`;
-            FloatingWindow.update({ text: timeString });
-          }
-          ForegroundService.update({
-            title: translations.title[language],
-            text: currentText,
-            secondsLeft: prev - 1,
-          });
-
-          if (prev <= 1) {
-            ForegroundService.stop();
-            switchMode();
-            return 0;
-          }
-          return prev - 1;
-        });
-      }, 1000);
-    } else {
-      if (intervalRef.current) clearInterval(intervalRef.current);
-    }
+    Timer.subscribe({ rate: 'second' });
+    const listener = Timer.addListener('timerTick', ({ secondsLeft: nativeSecondsLeft, phase }) => {
+      if (!isRunningRef.current) return;
+      setSecondsLeft(nativeSecondsLeft);
+      // Phase boundaries are advanced natively by an exact alarm, even without the WebView
+      setMode(phase);
+    });
 
     return () => {
-      if (intervalRef.current) clearInterval(intervalRef.current);
+      listener.then(handle => handle.remove());
     };
-  }, [isActive, isPaused, switchMode, isFloating, language, mode]);
+  }, []);
+
+  useEffect(() => {
+    isRunningRef.current = isActive && !isPaused;
+  }, [isActive, isPaused]);
+
+  useEffect(() => {
+    if (isActive && !isPaused) {
+      ForegroundService.update({ title: translations.title[language], text: statusText(mode) });
+    }
+  }, [language, mode]);
   
   const handleStart = () => {
-    const currentText = mode === 'work' ? translations.statusWorking[language] : translations.statusBreaking[language];
+    if (isActive) {
+      // Paused: the native session keeps its phase and completed cycles, so long breaks still come
+      Timer.resume();
+      setIsPaused(false);
+      return;
+    }
     ForegroundService.start({
       title: translations.title[language],
-      text: currentText,
+      text: statusText(mode),
       secondsLeft: secondsLeft,
+      // Durations and the alarm sound are read natively from SettingsStore
+      phase: mode,
     });
     setIsActive(true);
     setIsPaused(false);
   };
 
   const handlePause = () => {
-    ForegroundService.stop();
-    setIsActive(false);
+    Timer.pause();
     setIsPaused(true);
   }
 
@@ -241,7 +172,7 @@ function App() {
     setLanguage(prev => (prev === 'zh' ? 'en' : 'zh'));
   };
 
-  const totalSeconds = (mode === 'work' ? workMinutes : breakMinutes) * 60;
+  const totalSeconds = (mode === 'work' ? workMinutes : mode === 'longBreak' ? longBreakMinutes : breakMinutes) * 60;
 
   return (
     <div className="min-h-screen flex items-center justify-center p-4 bg-gradient-to-br from-slate-900 to-slate-800">
@@ -0,0 +1,105 @@
+package AntharLin.Prodomo;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.AudioAttributes;
+import android.media.SoundPool;
+import android.net.Uri;
+import android.util.Log;
+import java.io.IOException;
+
+/**
+ * Alarm sound decoded once into a {@link SoundPool} when the session starts or the sound
+ * changes, so a phase boundary only has to call {@link #play()}: no file I/O, no decoding
+ * and no WebView in the path. SoundPool keeps short clips in memory; very long custom
+ * files are clipped by the platform.
+ */
+public class AlarmPlayer {
+
+    private static final String TAG = "AlarmPlayer";
+    private static final String WEB_ASSETS_DIR = "public/";
+
+    private final Context context;
+    private final SoundPool soundPool;
+    private String path = "";
+    private boolean isUrl;
+    private int soundId;
+    private boolean loaded;
+
+    public AlarmPlayer(Context context) {
+        this.context = context;
+        soundPool = new SoundPool.Builder()
+                .setMaxStreams(1)
+                .setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_ALARM)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                        .build())
+                .build();
+        // Delivered on the looper that created the pool, the same one that calls play()
+        soundPool.setOnLoadCompleteListener((pool, sampleId, status) -> {
+            if (sampleId == soundId) {
+                loaded = status == 0;
+                if (!loaded) {
+                    Log.w(TAG, "Failed to decode alarm sound " + path + " (" + status + ")");
+                    // Forgotten, so the next prepare() of the same path tries again
+                    unload();
+                    this.path = "";
+                }
+            }
+        });
+    }
+
+    /**
+     * Decodes {@code path} (a web asset path, or a file/content URI when {@code isUrl}) unless it
+     * is already loaded or loading. An empty or null path means no sound; so does a path that
+     * failed to open or decode, until it is prepared again.
+     */
+    public void prepare(String path, boolean isUrl) {
+        String normalized = path == null ? "" : path;
+        if (normalized.equals(this.path) && isUrl == this.isUrl) {
+            return;
+        }
+        unload();
+        this.path = normalized;
+        this.isUrl = isUrl;
+        if (normalized.isEmpty()) {
+            return;
+        }
+        try (AssetFileDescriptor fd = isUrl
+                ? context.getContentResolver().openAssetFileDescriptor(Uri.parse(normalized), "r")
+                : context.getAssets().openFd(WEB_ASSETS_DIR + normalized)) {
+            if (fd == null) {
+                throw new IOException("No descriptor for " + normalized);
+            }
+            soundId = soundPool.load(fd, 1);
+            if (soundId == 0) {
+                throw new IOException("SoundPool rejected " + normalized);
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Failed to load alarm sound " + normalized, e);
+            // Not recorded as prepared, so the next prepare() of the same path tries again
+            this.path = "";
+        }
+    }
+
+    public boolean hasSound() {
+        return !path.isEmpty();
+    }
+
+    /** Starts the alarm; returns false if there is no sound or it has not finished decoding. */
+    public boolean play() {
+        return loaded && soundPool.play(soundId, 1f, 1f, 1, 0, 1f) != 0;
+    }
+
+    public void release() {
+        soundPool.release();
+    }
+
+    private void unload() {
+        if (soundId != 0) {
+            soundPool.unload(soundId);
+        }
+        soundId = 0;
+        loaded = false;
+    }
+}
@@ -0,0 +1,734 @@
+package AntharLin.Prodomo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Settings and session history in one file, for moving them to another device. Both ways
+ * stream through a single {@link #BUFFER_SIZE} buffer over NIO channels, so memory stays
+ * constant however long the history is.
+ * <p>
+ * The binary format is a header ({@link #MAGIC}, version) followed by chunks of
+ * {@code type, length, payload, CRC32}: settings, the tag table, records of
+ * {@link #RECORD_BYTES} bytes up to {@link #CHUNK_RECORDS} per chunk, and an end chunk
+ * with the record count. The CSV format carries the same data as {@code #}-prefixed
+ * metadata lines around a plain table of records, readable in any spreadsheet.
+ * <p>
+ * Imports are validated record by record. Records are appended as they are read and removed
+ * again if anything turns out to be wrong, with the store locked so nothing else is appended
+ * in between; settings are only applied once the whole file has checked out. Records no
+ * newer than the newest one already on the device are skipped, so importing the same file
+ * twice adds nothing.
+ */
+public final class BackupArchive {
+
+    public enum Format {
+        BINARY("application/octet-stream", "pdm"),
+        CSV("text/csv", "csv");
+
+        private final String mimeType;
+        private final String extension;
+
+        Format(String mimeType, String extension) {
+            this.mimeType = mimeType;
+            this.extension = extension;
+        }
+
+        public String getMimeType() {
+            return mimeType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    /** What an export wrote or an import applied. */
+    public static final class Summary {
+        public final Format format;
+        public final int settings;
+        public final int records;
+        /** Imported records already on the device; always 0 for an export. */
+        public final int skipped;
+        public final long bytes;
+
+        Summary(Format format, int settings, int records, int skipped, long bytes) {
+            this.format = format;
+            this.settings = settings;
+            this.records = records;
+            this.skipped = skipped;
+            this.bytes = bytes;
+        }
+    }
+
+    static final int MAGIC = 0x50444d42; // "PDMB"
+    static final int VERSION = 1;
+    static final int BUFFER_SIZE = 64 * 1024;
+    static final int RECORD_BYTES = 24;
+    static final int CHUNK_RECORDS = 2048;
+    static final String CSV_MAGIC = "#prodomo";
+    static final String CSV_HEADER = "end_time,epoch_day,phase,completed,planned_seconds,actual_seconds,tag";
+
+    private static final byte CHUNK_SETTINGS = 'S';
+    private static final byte CHUNK_TAGS = 'T';
+    private static final byte CHUNK_RECORDS_TYPE = 'R';
+    private static final byte CHUNK_END = 'E';
+    private static final int CHUNK_OVERHEAD = 1 + 4 + 4;
+    private static final int MAX_PAYLOAD = BUFFER_SIZE - CHUNK_OVERHEAD;
+    private static final int MAX_PHASE_SECONDS = 24 * 60 * 60;
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private BackupArchive() {
+    }
+
+    // --- Export ---
+
+    /** Writes {@code settings} and every record of {@code history} to {@code out}. */
+    public static Summary export(SettingsStore.Snapshot settings, HistoryStore history, Format format,
+                                 WritableByteChannel out) throws IOException {
+        Sink sink = new Sink(out);
+        int records = format == Format.CSV
+                ? exportCsv(settings, history, sink)
+                : exportBinary(settings, history, sink);
+        sink.flush();
+        return new Summary(format, settings.asMap().size(), records, 0, sink.written);
+    }
+
+    private static int exportBinary(SettingsStore.Snapshot settings, HistoryStore history, Sink sink) throws IOException {
+        ByteBuffer buffer = sink.buffer;
+        buffer.putInt(MAGIC).putShort((short) VERSION).putShort((short) 0);
+
+        int start = sink.beginChunk(CHUNK_SETTINGS);
+        buffer.putShort((short) settings.asMap().size());
+        for (Map.Entry<String, Object> entry : settings.asMap().entrySet()) {
+            putString(buffer, entry.getKey());
+            Object value = entry.getValue();
+            if (value instanceof Integer) {
+                buffer.put((byte) 'I').putInt((Integer) value);
+            } else if (value instanceof Boolean) {
+                buffer.put((byte) 'Z').put((byte) ((Boolean) value ? 1 : 0));
+            } else {
+                buffer.put((byte) 'S');
+                putString(buffer, (String) value);
+            }
+        }
+        sink.endChunk(start);
+
+        // The archive numbers tags in the order of this table; 0 is no tag
+        List<String> tags = history.tags();
+        Map<String, Integer> tagIds = new HashMap<>();
+        tagIds.put("", 0);
+        start = -1;
+        int inChunk = 0;
+        int countAt = 0;
+        for (int i = 1; i < tags.size(); i++) {
+            byte[] tag = tags.get(i).getBytes(StandardCharsets.UTF_8);
+            if (start >= 0 && buffer.position() - start - 4 + 2 + tag.length > MAX_PAYLOAD) {
+                buffer.putShort(countAt, (short) inChunk);
+                sink.endChunk(start);
+                start = -1;
+            }
+            if (start < 0) {
+                start = sink.beginChunk(CHUNK_TAGS);
+                countAt = buffer.position();
+                buffer.putShort((short) 0);
+                inChunk = 0;
+            }
+            buffer.putShort((short) tag.length).put(tag);
+            tagIds.put(tags.get(i), i);
+            inChunk++;
+        }
+        if (start >= 0) {
+            buffer.putShort(countAt, (short) inChunk);
+            sink.endChunk(start);
+        }
+
+        int[] total = new int[1];
+        RecordChunks chunks = new RecordChunks(sink, tagIds);
+        history.forEach(record -> {
+            chunks.add(record);
+            total[0]++;
+        });
+        chunks.finish();
+
+        start = sink.beginChunk(CHUNK_END);
+        buffer.putInt(total[0]);
+        sink.endChunk(start);
+        return total[0];
+    }
+
+    /** Groups records into chunks of up to {@link #CHUNK_RECORDS}. */
+    private static final class RecordChunks {
+        private final Sink sink;
+        private final Map<String, Integer> tagIds;
+        private int start = -1;
+        private int countAt;
+        private int inChunk;
+
+        RecordChunks(Sink sink, Map<String, Integer> tagIds) {
+            this.sink = sink;
+            this.tagIds = tagIds;
+        }
+
+        void add(HistoryStore.Record record) throws IOException {
+            Integer tagId = tagIds.get(record.tag);
+            if (tagId == null) {
+                // Tagged after the table was written; a chunk of its own defines it before use
+                finish();
+                tagId = tagIds.size();
+                tagIds.put(record.tag, tagId);
+                int tagStart = sink.beginChunk(CHUNK_TAGS);
+                sink.buffer.putShort((short) 1);
+                putString(sink.buffer, record.tag);
+                sink.endChunk(tagStart);
+            }
+            if (start < 0) {
+                start = sink.beginChunk(CHUNK_RECORDS_TYPE);
+                countAt = sink.buffer.position();
+                sink.buffer.putShort((short) 0);
+                inChunk = 0;
+            }
+            sink.buffer.putLong(record.endMillis)
+                    .putInt(record.epochDay)
+                    .putInt(record.plannedSeconds)
+                    .putInt(record.actualSeconds)
+                    .put((byte) record.phase.ordinal())
+                    .put((byte) (record.completed ? 1 : 0))
+                    .putShort(tagId.shortValue());
+            if (++inChunk == CHUNK_RECORDS) {
+                finish();
+            }
+        }
+
+        void finish() throws IOException {
+            if (start >= 0) {
+                sink.buffer.putShort(countAt, (short) inChunk);
+                sink.endChunk(start);
+                start = -1;
+            }
+        }
+    }
+
+    private static int exportCsv(SettingsStore.Snapshot settings, HistoryStore history, Sink sink) throws IOException {
+        StringBuilder line = new StringBuilder(256);
+        sink.putLine(line.append(CSV_MAGIC).append(',').append(VERSION));
+        for (Map.Entry<String, Object> entry : settings.asMap().entrySet()) {
+            Object value = entry.getValue();
+            line.setLength(0);
+            line.append("#setting,").append(entry.getKey()).append(',');
+            if (value instanceof Integer) {
+                line.append("i,").append(value);
+            } else if (value instanceof Boolean) {
+                line.append("z,").append(value);
+            } else {
+                line.append("s,");
+                appendCsvField(line, (String) value);
+            }
+            sink.putLine(line);
+        }
+        line.setLength(0);
+        sink.putLine(line.append(CSV_HEADER));
+
+        int[] total = new int[1];
+        history.forEach(record -> {
+            line.setLength(0);
+            line.append(record.endMillis).append(',')
+                    .append(record.epochDay).append(',')
+                    .append(record.phase.getJsName()).append(',')
+                    .append(record.completed ? '1' : '0').append(',')
+                    .append(record.plannedSeconds).append(',')
+                    .append(record.actualSeconds).append(',');
+            appendCsvField(line, record.tag);
+            sink.putLine(line);
+            total[0]++;
+        });
+        line.setLength(0);
+        sink.putLine(line.append("#end,").append(total[0]));
+        return total[0];
+    }
+
+    private static void appendCsvField(StringBuilder line, String value) throws IOException {
+        if (value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            throw new IOException("Line breaks cannot be exported: " + value);
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    private static void putString(ByteBuffer buffer, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IOException("Value too long to export");
+        }
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    /** The output buffer; drained to the channel whenever the next chunk or line might not fit. */
+    private static final class Sink {
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final WritableByteChannel out;
+        private final CRC32 crc = new CRC32();
+        long written;
+
+        Sink(WritableByteChannel out) {
+            this.out = out;
+        }
+
+        /** Makes room for a whole chunk and writes its type; returns where its length goes. */
+        int beginChunk(byte type) throws IOException {
+            if (buffer.remaining() < BUFFER_SIZE) {
+                flush();
+            }
+            buffer.put(type);
+            int start = buffer.position();
+            buffer.putInt(0);
+            return start;
+        }
+
+        void endChunk(int start) {
+            int length = buffer.position() - start - 4;
+            buffer.putInt(start, length);
+            crc.reset();
+            crc.update(buffer.array(), start + 4, length);
+            buffer.putInt((int) crc.getValue());
+        }
+
+        void putLine(CharSequence line) throws IOException {
+            byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+            if (bytes.length + 1 > BUFFER_SIZE) {
+                throw new IOException("Line too long to export");
+            }
+            if (buffer.remaining() < bytes.length + 1) {
+                flush();
+            }
+            buffer.put(bytes).put((byte) '\n');
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += out.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    // --- Import ---
+
+    /**
+     * Reads an archive in either format from {@code in}, appends its records to
+     * {@code history} and applies its settings; on any error, throws with nothing changed.
+     * The store stays locked throughout, so a session ending meanwhile waits for the import
+     * instead of landing among its records and being rolled back with them; the service
+     * appends from its own writer thread, so its ticks never wait on this lock.
+     */
+    public static Summary importFrom(ReadableByteChannel in, SettingsStore settings, HistoryStore history)
+            throws IOException {
+        synchronized (history) {
+            Source source = new Source(in);
+            int before = history.count();
+            List<HistoryStore.Record> newest = history.page(0, 1);
+            long newestMillis = newest.isEmpty() ? Long.MIN_VALUE : newest.get(0).endMillis;
+            Importer importer = new Importer(history, newestMillis);
+            Map<String, Object> values = new LinkedHashMap<>();
+            Format format;
+            try {
+                if (!source.fill(4)) {
+                    throw new IOException("Empty archive");
+                }
+                if (source.buffer.getInt(source.buffer.position()) == MAGIC) {
+                    format = Format.BINARY;
+                    importBinary(source, values, importer);
+                } else {
+                    format = Format.CSV;
+                    importCsv(source, values, importer);
+                }
+                // Keys a newer version added are left out rather than failing the whole import
+                Map<String, Object> known = new LinkedHashMap<>();
+                for (Map.Entry<String, Object> entry : values.entrySet()) {
+                    if (settings.get().asMap().containsKey(entry.getKey())) {
+                        known.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                settings.update(known);
+                values = known;
+            } catch (IOException e) {
+                history.truncate(before);
+                throw e;
+            } catch (RuntimeException e) {
+                // A bad value, or a short chunk whose checksum still matched; callers expect an IOException
+                history.truncate(before);
+                String problem = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                throw new IOException("Invalid archive: " + problem, e);
+            }
+            settings.flush();
+            return new Summary(format, values.size(), importer.imported, importer.skipped, source.read);
+        }
+    }
+
+    private static void importBinary(Source source, Map<String, Object> settings, Importer importer) throws IOException {
+        ByteBuffer buffer = source.buffer;
+        source.require(8);
+        buffer.getInt();
+        int version = buffer.getShort() & 0xffff;
+        buffer.getShort();
+        if (version > VERSION) {
+            throw new IOException("Archive version " + version + " is newer than this app");
+        }
+        List<String> tags = new ArrayList<>();
+        tags.add("");
+        CRC32 crc = new CRC32();
+        while (true) {
+            if (!source.fill(CHUNK_OVERHEAD)) {
+                throw new IOException("Archive ends without its end chunk");
+            }
+            byte type = buffer.get();
+            int length = buffer.getInt();
+            if (length < 0 || length > MAX_PAYLOAD) {
+                throw new IOException("Corrupt chunk length " + length);
+            }
+            source.require(length + 4);
+            int start = buffer.position();
+            crc.reset();
+            crc.update(buffer.array(), start, length);
+            if (buffer.getInt(start + length) != (int) crc.getValue()) {
+                throw new IOException("Checksum mismatch in chunk '" + (char) type + "'");
+            }
+            ByteBuffer payload = buffer.slice();
+            payload.limit(length);
+            buffer.position(start + length + 4);
+
+            if (type == CHUNK_SETTINGS) {
+                int count = payload.getShort() & 0xffff;
+                for (int i = 0; i < count; i++) {
+                    String key = getString(payload);
+                    byte kind = payload.get();
+                    if (kind == 'I') {
+                        settings.put(key, payload.getInt());
+                    } else if (kind == 'Z') {
+                        settings.put(key, payload.get() != 0);
+                    } else if (kind == 'S') {
+                        settings.put(key, getString(payload));
+                    } else {
+                        throw new IOException("Unknown type of setting " + key);
+                    }
+                }
+            } else if (type == CHUNK_TAGS) {
+                int count = payload.getShort() & 0xffff;
+                for (int i = 0; i < count; i++) {
+                    tags.add(getString(payload));
+                }
+            } else if (type == CHUNK_RECORDS_TYPE) {
+                int count = payload.getShort() & 0xffff;
+                if (payload.remaining() != count * RECORD_BYTES) {
+                    throw new IOException("Record chunk of " + count + " records has " + payload.remaining() + " bytes");
+                }
+                for (int i = 0; i < count; i++) {
+                    long endMillis = payload.getLong();
+                    int epochDay = payload.getInt();
+                    int planned = payload.getInt();
+                    int actual = payload.getInt();
+                    int phase = payload.get();
+                    int completed = payload.get();
+                    int tagId = payload.getShort() & 0xffff;
+                    if (phase < 0 || phase >= SessionPhase.values().length) {
+                        throw importer.invalid("unknown phase " + phase);
+                    }
+                    if (completed != 0 && completed != 1) {
+                        throw importer.invalid("completed flag " + completed);
+                    }
+                    if (tagId >= tags.size()) {
+                        throw importer.invalid("unknown tag " + tagId);
+                    }
+                    importer.add(endMillis, epochDay, SessionPhase.values()[phase], completed == 1, planned, actual,
+                            tags.get(tagId));
+                }
+            } else if (type == CHUNK_END) {
+                importer.finish(payload.getInt());
+                return;
+            }
+            // Chunk types from a newer minor revision are skipped; their checksum was still verified
+        }
+    }
+
+    private static String getString(ByteBuffer payload) throws IOException {
+        int length = payload.getShort() & 0xffff;
+        if (length > payload.remaining()) {
+            throw new IOException("Corrupt string length " + length);
+        }
+        String value = new String(payload.array(), payload.arrayOffset() + payload.position(), length, StandardCharsets.UTF_8);
+        payload.position(payload.position() + length);
+        return value;
+    }
+
+    private static void importCsv(Source source, Map<String, Object> settings, Importer importer) throws IOException {
+        List<String> fields = new ArrayList<>(8);
+        String line = source.readLine();
+        if (line == null || !parseCsv(line, fields) || fields.size() != 2 || !CSV_MAGIC.equals(fields.get(0))) {
+            throw new IOException("Not a Prodomo archive");
+        }
+        if (parseInt(fields.get(1), "version") > VERSION) {
+            throw new IOException("Archive version " + fields.get(1) + " is newer than this app");
+        }
+        boolean header = false;
+        while ((line = source.readLine()) != null) {
+            if (!parseCsv(line, fields)) {
+                throw importer.invalid("unterminated quote");
+            }
+            String first = fields.get(0);
+            if (first.equals("#setting")) {
+                if (fields.size() != 4) {
+                    throw new IOException("Malformed setting line: " + line);
+                }
+                String key = fields.get(1);
+                String value = fields.get(3);
+                switch (fields.get(2)) {
+                    case "i":
+                        settings.put(key, parseInt(value, key));
+                        break;
+                    case "z":
+                        if (!value.equals("true") && !value.equals("false")) {
+                            throw new IOException("Invalid value for " + key + ": " + value);
+                        }
+                        settings.put(key, Boolean.parseBoolean(value));
+                        break;
+                    case "s":
+                        settings.put(key, value);
+                        break;
+                    default:
+                        throw new IOException("Unknown type of setting " + key);
+                }
+            } else if (first.equals("#end")) {
+                if (fields.size() != 2) {
+                    throw new IOException("Malformed end line: " + line);
+                }
+                importer.finish(parseInt(fields.get(1), "record count"));
+                return;
+            } else if (first.startsWith("#") || line.isEmpty()) {
+                // A comment, e.g. added by hand
+            } else if (!header) {
+                if (!line.equals(CSV_HEADER)) {
+                    throw new IOException("Unexpected header: " + line);
+                }
+                header = true;
+            } else {
+                if (fields.size() != 7) {
+                    throw importer.invalid(fields.size() + " fields");
+                }
+                SessionPhase phase;
+                try {
+                    phase = SessionPhase.fromJsName(fields.get(2));
+                } catch (IllegalArgumentException e) {
+                    throw importer.invalid("unknown phase " + fields.get(2));
+                }
+                String completed = fields.get(3);
+                if (!completed.equals("0") && !completed.equals("1")) {
+                    throw importer.invalid("completed flag " + completed);
+                }
+                importer.add(parseLong(fields.get(0), importer), parseInt(fields.get(1), importer), phase,
+                        completed.equals("1"), parseInt(fields.get(4), importer), parseInt(fields.get(5), importer),
+                        fields.get(6));
+            }
+        }
+        throw new IOException("Archive ends without its #end line");
+    }
+
+    /** Splits one CSV line into {@code fields}; false if a quote is left open. */
+    static boolean parseCsv(String line, List<String> fields) {
+        fields.clear();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return !quoted;
+    }
+
+    private static int parseInt(String value, String what) throws IOException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid " + what + ": " + value);
+        }
+    }
+
+    private static int parseInt(String value, Importer importer) throws IOException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw importer.invalid("not a number: " + value);
+        }
+    }
+
+    private static long parseLong(String value, Importer importer) throws IOException {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw importer.invalid("not a number: " + value);
+        }
+    }
+
+    /** Validates and appends records, counting them for the end check. */
+    private static final class Importer {
+        private final HistoryStore history;
+        private final long newestMillis;
+        private int seen;
+        int imported;
+        int skipped;
+
+        Importer(HistoryStore history, long newestMillis) {
+            this.history = history;
+            this.newestMillis = newestMillis;
+        }
+
+        void add(long endMillis, int epochDay, SessionPhase phase, boolean completed, int planned, int actual,
+                 String tag) throws IOException {
+            if (endMillis <= 0) {
+                throw invalid("end time " + endMillis);
+            }
+            // The day was local to the exporting device; no time zone is more than 14 hours off UTC
+            long utcDay = endMillis / DAY_MILLIS;
+            if (epochDay < utcDay - 1 || epochDay > utcDay + 1) {
+                throw invalid("day " + epochDay + " does not match end time " + endMillis);
+            }
+            if (planned <= 0 || planned > MAX_PHASE_SECONDS || actual < 0 || actual > planned) {
+                throw invalid("durations " + actual + "/" + planned);
+            }
+            if (!HistoryStore.isStorableTag(tag)) {
+                throw invalid("line break in tag");
+            }
+            seen++;
+            if (endMillis <= newestMillis) {
+                skipped++;
+                return;
+            }
+            history.append(endMillis, epochDay, phase, completed, planned, actual, tag);
+            imported++;
+        }
+
+        void finish(int expected) throws IOException {
+            if (expected != seen) {
+                throw new IOException("Archive announces " + expected + " records but holds " + seen);
+            }
+        }
+
+        IOException invalid(String problem) {
+            return new IOException("Invalid record " + (seen + 1) + ": " + problem);
+        }
+    }
+
+    /** The input buffer; refilled from the channel, keeping what was not consumed yet. */
+    private static final class Source {
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final ReadableByteChannel in;
+        private boolean eof;
+        long read;
+
+        Source(ReadableByteChannel in) {
+            this.in = in;
+            buffer.flip();
+        }
+
+        /** Reads until {@code bytes} are buffered; false if the input ended at a clean boundary first. */
+        boolean fill(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return true;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes && !eof) {
+                int n = in.read(buffer);
+                if (n < 0) {
+                    eof = true;
+                } else {
+                    read += n;
+                }
+            }
+            buffer.flip();
+            if (buffer.remaining() >= bytes) {
+                return true;
+            }
+            if (buffer.hasRemaining()) {
+                throw new IOException("Archive is truncated");
+            }
+            return false;
+        }
+
+        void require(int bytes) throws IOException {
+            if (!fill(bytes)) {
+                throw new IOException("Archive is truncated");
+            }
+        }
+
+        /** The next line without its terminator, or null at the end of the input. */
+        String readLine() throws IOException {
+            while (true) {
+                int start = buffer.position();
+                for (int i = start; i < buffer.limit(); i++) {
+                    if (buffer.get(i) == '\n') {
+                        int end = i > start && buffer.get(i - 1) == '\r' ? i - 1 : i;
+                        buffer.position(i + 1);
+                        return new String(buffer.array(), start, end - start, StandardCharsets.UTF_8);
+                    }
+                }
+                if (eof) {
+                    if (!buffer.hasRemaining()) {
+                        return null;
+                    }
+                    // A last line without a terminator
+                    String line = new String(buffer.array(), start, buffer.remaining(), StandardCharsets.UTF_8);
+                    buffer.position(buffer.limit());
+                    return line;
+                }
+                if (start == 0 && buffer.limit() == buffer.capacity()) {
+                    throw new IOException("Line longer than " + BUFFER_SIZE + " bytes");
+                }
+                buffer.compact();
+                int n = in.read(buffer);
+                if (n < 0) {
+                    eof = true;
+                } else {
+                    read += n;
+                }
+                buffer.flip();
+            }
+        }
+    }
+}
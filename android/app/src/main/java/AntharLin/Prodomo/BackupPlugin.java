@@ -0,0 +1,106 @@
+package AntharLin.Prodomo;
+
+import android.net.Uri;
+import android.util.Log;
+import androidx.core.content.FileProvider;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Moves settings and session history between devices as one {@link BackupArchive} file.
+ * Exports go to the cache directory and are handed out through the app's FileProvider;
+ * imports read any URI the app can open. Both stream, so a long history costs no memory.
+ */
+@CapacitorPlugin(name = "Backup")
+public class BackupPlugin extends Plugin {
+
+    private static final String TAG = "BackupPlugin";
+    private static final String EXPORT_DIR = "backup";
+
+    /**
+     * 匯出設定與歷史紀錄為檔案；format 為 "binary"（預設）或 "csv"，回傳可分享的 content URI
+     */
+    @PluginMethod
+    public void exportData(PluginCall call) {
+        BackupArchive.Format format = "csv".equals(call.getString("format"))
+                ? BackupArchive.Format.CSV
+                : BackupArchive.Format.BINARY;
+        File directory = new File(getContext().getCacheDir(), EXPORT_DIR);
+        String name = "prodomo-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date())
+                + "." + format.getExtension();
+        File file = new File(directory, name);
+        BackupArchive.Summary summary;
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Cannot create " + directory);
+            }
+            // FileOutputStream rather than FileChannel.open(), which needs API 26
+            try (FileOutputStream stream = new FileOutputStream(file); FileChannel out = stream.getChannel()) {
+                summary = BackupArchive.export(SettingsStorePlugin.getStore(getContext()).get(),
+                        HistoryPlugin.openStore(getContext()), format, out);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Export failed", e);
+            file.delete();
+            call.reject("Export failed", e);
+            return;
+        }
+        Uri uri = FileProvider.getUriForFile(getContext(), getContext().getPackageName() + ".fileprovider", file);
+        JSObject ret = toJson(summary);
+        ret.put("uri", uri.toString());
+        ret.put("name", name);
+        ret.put("mimeType", format.getMimeType());
+        call.resolve(ret);
+    }
+
+    /**
+     * 從 uri 匯入檔案（兩種格式皆可，自動判斷）；逐筆驗證，任何錯誤都不會留下部分資料。
+     * 裝置上已有、且不比最新一筆新的紀錄會被略過
+     */
+    @PluginMethod
+    public void importData(PluginCall call) {
+        String uri = call.getString("uri");
+        if (uri == null) {
+            call.reject("uri is required");
+            return;
+        }
+        BackupArchive.Summary summary;
+        try (InputStream stream = getContext().getContentResolver().openInputStream(Uri.parse(uri))) {
+            if (stream == null) {
+                throw new IOException("Cannot open " + uri);
+            }
+            ReadableByteChannel in = Channels.newChannel(stream);
+            summary = BackupArchive.importFrom(in, SettingsStorePlugin.getStore(getContext()),
+                    HistoryPlugin.openStore(getContext()));
+        } catch (IOException | SecurityException e) {
+            Log.w(TAG, "Import failed", e);
+            call.reject(e.getMessage(), e);
+            return;
+        }
+        JSObject ret = toJson(summary);
+        ret.put("skipped", summary.skipped);
+        call.resolve(ret);
+    }
+
+    private static JSObject toJson(BackupArchive.Summary summary) {
+        JSObject ret = new JSObject();
+        ret.put("format", summary.format == BackupArchive.Format.CSV ? "csv" : "binary");
+        ret.put("settings", summary.settings);
+        ret.put("records", summary.records);
+        ret.put("bytes", summary.bytes);
+        return ret;
+    }
+}
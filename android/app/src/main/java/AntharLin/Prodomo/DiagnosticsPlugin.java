@@ -0,0 +1,112 @@
+package AntharLin.Prodomo;
+
+import android.util.Log;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Exposes the {@link Diagnostics} histograms and the {@link AlarmLatencyRecorder} to JS.
+ * Recording is off until setEnabled() turns it on and is not persisted across restarts.
+ */
+@CapacitorPlugin(name = "Diagnostics")
+public class DiagnosticsPlugin extends Plugin {
+
+    private static final String TAG = "DiagnosticsPlugin";
+    private static final String DUMP_DIR = "diagnostics";
+
+    /**
+     * 開啟或關閉計時量測，關閉時幾乎沒有額外成本
+     */
+    @PluginMethod
+    public void setEnabled(PluginCall call) {
+        Diagnostics.setEnabled(call.getBoolean("enabled", true));
+        call.resolve();
+    }
+
+    /**
+     * 各項延遲的百分位數（微秒）、鬧鐘延遲統計、本次啟動各階段耗時（毫秒，-1 表示尚未到達）
+     * 以及通知、浮動視窗與 JS 各自的重繪次數
+     */
+    @PluginMethod
+    public void snapshot(PluginCall call) {
+        JSObject ret = new JSObject();
+        ret.put("enabled", Diagnostics.isEnabled());
+        for (LatencyHistogram histogram : Diagnostics.ALL) {
+            JSObject stats = new JSObject();
+            stats.put("count", histogram.getCount());
+            stats.put("mean", histogram.getMean());
+            stats.put("max", histogram.getMax());
+            for (double percentile : Diagnostics.PERCENTILES) {
+                stats.put(Diagnostics.percentileKey(percentile), histogram.percentile(percentile));
+            }
+            ret.put(histogram.getName(), stats);
+        }
+        AlarmLatencyRecorder alarms = AlarmLatencyRecorder.getInstance();
+        JSObject alarmStats = new JSObject();
+        alarmStats.put("count", alarms.getCount());
+        alarmStats.put("overBudget", alarms.getOverBudgetCount());
+        alarmStats.put("failed", alarms.getFailedCount());
+        alarmStats.put("meanMillis", alarms.getMeanLatency());
+        alarmStats.put("maxMillis", alarms.getMaxLatency());
+        ret.put("alarm", alarmStats);
+        StartupTrace trace = StartupTrace.getInstance();
+        JSObject startup = new JSObject();
+        for (StartupTrace.Stage stage : StartupTrace.Stage.values()) {
+            startup.put(stage.getJsName(), trace.millisTo(stage));
+        }
+        ret.put("startup", startup);
+        RefreshGovernor governor = RefreshGovernor.getInstance();
+        JSObject refresh = new JSObject();
+        for (RefreshGovernor.Sink sink : RefreshGovernor.Sink.values()) {
+            JSObject sinkStats = new JSObject();
+            sinkStats.put("updates", governor.getUpdateCount(sink));
+            sinkStats.put("live", governor.isLive(sink));
+            refresh.put(sink.getJsName(), sinkStats);
+        }
+        ret.put("refresh", refresh);
+        call.resolve(ret);
+    }
+
+    /**
+     * 將完整的直方圖寫成 JSON 檔，回傳檔案路徑
+     */
+    @PluginMethod
+    public void dump(PluginCall call) {
+        File dir = new File(getContext().getFilesDir(), DUMP_DIR);
+        long now = System.currentTimeMillis();
+        File file = new File(dir, "diagnostics-" + now + ".json");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            call.reject("Cannot create " + dir);
+            return;
+        }
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            Diagnostics.writeReport(out, now);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write diagnostics", e);
+            call.reject("Failed to write diagnostics", e);
+            return;
+        }
+        JSObject ret = new JSObject();
+        ret.put("path", file.getAbsolutePath());
+        call.resolve(ret);
+    }
+
+    /**
+     * 清除所有已記錄的量測
+     */
+    @PluginMethod
+    public void reset(PluginCall call) {
+        Diagnostics.reset();
+        RefreshGovernor.getInstance().resetCounts();
+        call.resolve();
+    }
+}
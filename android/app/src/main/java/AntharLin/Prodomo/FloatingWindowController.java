@@ -0,0 +1,244 @@
+package AntharLin.Prodomo;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.PixelFormat;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Gravity;
+import android.view.WindowManager;
+
+/**
+ * Process-wide owner of the overlay window. The plugin shows and hides it, while the
+ * session service's {@link TimerStateBus} redraws it so no bridge call is needed per second.
+ * Without a running service, {@link #bind} takes a deadline once and ticks locally.
+ * Either way the view is only touched when the displayed digits change, and
+ * {@link OverlayTimerView} then invalidates just the cells that differ. While the screen is
+ * off the {@link RefreshGovernor} stops both sources, and the overlay catches up when it is back.
+ *
+ * <p>Ticking and de-duplication run on the {@link TimerThread}; only setSeconds() is posted to
+ * the main thread. The window itself is added, updated and removed on the main thread.
+ */
+public class FloatingWindowController {
+
+    private static final String TAG = "PomodoroFloatingWindow";
+    private static final String PREFS_NAME = "floating_window";
+    private static final String KEY_X = "x";
+    private static final String KEY_Y = "y";
+
+    public interface Callback {
+        void onComplete(Exception error);
+    }
+
+    private static FloatingWindowController instance;
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Handler timerHandler = TimerThread.getHandler();
+    private WindowManager windowManager;
+    // Main thread only
+    private OverlayTimerView timerView;
+    // Timer thread only
+    private int renderedSeconds = -1;
+    private volatile int pendingSeconds;
+    private final Runnable applySeconds = () -> {
+        if (timerView != null) {
+            timerView.setSeconds(pendingSeconds);
+            RefreshGovernor.getInstance().countUpdate(RefreshGovernor.Sink.OVERLAY);
+        }
+    };
+    private final Runnable forceRender = () -> renderedSeconds = -1;
+    // Published on the timer thread by the session service; IDLE means no session has run yet
+    private final TimerStateBus.Listener stateListener = snapshot -> {
+        if (snapshot != TimerSnapshot.IDLE) {
+            renderNow(snapshot.secondsLeft);
+        }
+    };
+    private final CountdownEngine boundCountdown = new CountdownEngine(SystemClock::elapsedRealtime);
+    // Timer thread only; 0 unless a tick is posted with diagnostics on
+    private long boundTickDueNanos;
+    private final Runnable boundTick = new Runnable() {
+        @Override
+        public void run() {
+            if (boundTickDueNanos != 0) {
+                Diagnostics.recordLateness(boundTickDueNanos, SystemClock.elapsedRealtimeNanos());
+                boundTickDueNanos = 0;
+            }
+            renderNow(boundCountdown.remainingSeconds());
+            if (!boundCountdown.isFinished()) {
+                long delay = boundCountdown.millisUntilNextTick();
+                if (Diagnostics.isEnabled()) {
+                    boundTickDueNanos = SystemClock.elapsedRealtimeNanos() + delay * 1_000_000L;
+                }
+                timerHandler.postDelayed(this, delay);
+            }
+        }
+    };
+
+    // Shown with the screen on: follow the session; otherwise draw nothing at all
+    private final RefreshGovernor.Listener overlayListener =
+            live -> timerHandler.post(live ? this::startRendering : this::stopRendering);
+
+    private FloatingWindowController(Context context) {
+        this.context = context.getApplicationContext();
+        ScreenMonitor.start(context);
+        RefreshGovernor.getInstance().setListener(RefreshGovernor.Sink.OVERLAY, overlayListener);
+    }
+
+    public static synchronized FloatingWindowController getInstance(Context context) {
+        if (instance == null) {
+            instance = new FloatingWindowController(context);
+        }
+        return instance;
+    }
+
+    public boolean isShowing() {
+        return timerView != null;
+    }
+
+    public void show(String initialText, Callback callback) {
+        mainHandler.post(() -> {
+            if (timerView != null) {
+                callback.onComplete(null);
+                return;
+            }
+
+            windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+            SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+
+            OverlayTimerView view = new OverlayTimerView(context);
+            view.setText(initialText);
+
+            int layoutFlag;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                layoutFlag = WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY;
+            } else {
+                layoutFlag = WindowManager.LayoutParams.TYPE_PHONE;
+            }
+
+            WindowManager.LayoutParams params = new WindowManager.LayoutParams(
+                    WindowManager.LayoutParams.WRAP_CONTENT,
+                    WindowManager.LayoutParams.WRAP_CONTENT,
+                    layoutFlag,
+                    WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE | WindowManager.LayoutParams.FLAG_LAYOUT_IN_SCREEN,
+                    PixelFormat.TRANSLUCENT);
+
+            params.gravity = Gravity.TOP | Gravity.START;
+            params.x = prefs.getInt(KEY_X, 100);
+            params.y = prefs.getInt(KEY_Y, 100);
+
+            view.setDragListener(new OverlayTimerView.DragListener() {
+                @Override
+                public void onDragged(int dx, int dy) {
+                    params.x += dx;
+                    params.y += dy;
+                    windowManager.updateViewLayout(view, params);
+                }
+
+                @Override
+                public void onDragFinished() {
+                    prefs.edit().putInt(KEY_X, params.x).putInt(KEY_Y, params.y).apply();
+                }
+            });
+
+            try {
+                windowManager.addView(view, params);
+                timerView = view;
+                RefreshGovernor.getInstance().setOverlayVisible(true);
+                callback.onComplete(null);
+            } catch (Exception e) {
+                Log.e(TAG, "Error adding floating view", e);
+                callback.onComplete(e);
+            }
+        });
+    }
+
+    public void hide(Callback callback) {
+        mainHandler.post(() -> {
+            if (timerView == null) {
+                callback.onComplete(null);
+                return;
+            }
+            RefreshGovernor.getInstance().setOverlayVisible(false);
+            mainHandler.removeCallbacks(applySeconds);
+            try {
+                windowManager.removeView(timerView);
+                timerView = null;
+                callback.onComplete(null);
+            } catch (Exception e) {
+                Log.e(TAG, "Error removing floating view", e);
+                callback.onComplete(e);
+            }
+        });
+    }
+
+    public void setText(String text) {
+        mainHandler.post(() -> {
+            if (timerView != null) {
+                timerView.setText(text);
+                // The text replaced the digits; draw the next tick even if its value is unchanged
+                timerHandler.post(forceRender);
+            }
+        });
+    }
+
+    /**
+     * Ticks the overlay locally towards {@code deadlineEpochMillis} (wall clock, as sent from JS).
+     * The deadline is converted to the monotonic clock once, so later wall-clock changes do not matter.
+     */
+    public void bind(long deadlineEpochMillis) {
+        long remaining = Math.max(0, deadlineEpochMillis - System.currentTimeMillis());
+        timerHandler.post(() -> {
+            boundCountdown.start(remaining);
+            cancelBoundTick();
+            if (RefreshGovernor.getInstance().isLive(RefreshGovernor.Sink.OVERLAY)) {
+                boundTick.run();
+            }
+        });
+    }
+
+    public void unbind() {
+        timerHandler.post(() -> {
+            boundCountdown.stop();
+            cancelBoundTick();
+        });
+    }
+
+    /**
+     * Timer thread: the overlay became visible, so redraw now and follow the session again.
+     * Subscribing delivers the current state right away.
+     */
+    private void startRendering() {
+        renderedSeconds = -1;
+        TimerStateBus.getInstance().subscribe(stateListener);
+        if (boundCountdown.isRunning()) {
+            cancelBoundTick();
+            boundTick.run();
+        }
+    }
+
+    /** Timer thread: nobody can see the overlay, so neither the bus nor the local countdown redraws it. */
+    private void stopRendering() {
+        TimerStateBus.getInstance().unsubscribe(stateListener);
+        cancelBoundTick();
+    }
+
+    private void cancelBoundTick() {
+        timerHandler.removeCallbacks(boundTick);
+        boundTickDueNanos = 0;
+    }
+
+    /** Timer thread: hands changed digits to the main thread, coalescing any not yet drawn. */
+    private void renderNow(int secondsLeft) {
+        if (secondsLeft == renderedSeconds) {
+            return;
+        }
+        renderedSeconds = secondsLeft;
+        pendingSeconds = secondsLeft;
+        mainHandler.removeCallbacks(applySeconds);
+        mainHandler.post(applySeconds);
+    }
+}
@@ -1,18 +1,9 @@
 package AntharLin.Prodomo;
 
-import android.content.Context;
 import android.content.Intent;
-import android.graphics.PixelFormat;
 import android.net.Uri;
 import android.os.Build;
-import android.os.Handler;
-import android.os.Looper;
 import android.provider.Settings;
-import android.util.Log;
-import android.view.Gravity;
-import android.view.View;
-import android.view.WindowManager;
-import android.widget.TextView;
 import androidx.annotation.RequiresApi;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
@@ -24,11 +15,6 @@ import com.getcapacitor.annotation.CapacitorPlugin;
 public class FloatingWindowPlugin extends Plugin {
 
     private static final int OVERLAY_PERMISSION_REQUEST_CODE = 1001;
-    private static final String FLOATING_WINDOW_TAG = "PomodoroFloatingWindow";
-
-    private WindowManager windowManager;
-    private View floatingView;
-    private TextView timerTextView;
 
     @PluginMethod
     public void checkPermission(PluginCall call) {
@@ -73,75 +59,52 @@ public class FloatingWindowPlugin extends Plugin {
             return;
         }
 
-        if (floatingView != null) {
-            call.resolve();
-            return;
-        }
-
-        windowManager = (WindowManager) getContext().getSystemService(Context.WINDOW_SERVICE);
-
-        timerTextView = new TextView(getContext());
-        timerTextView.setTextSize(24);
-        timerTextView.setTextColor(0xFFFFFFFF); // White
-        timerTextView.setBackgroundColor(0xAA000000); // Semi-transparent black
-        timerTextView.setPadding(20, 10, 20, 10);
-        timerTextView.setText(call.getString("initialText", "00:00"));
-
-        floatingView = timerTextView;
-
-        int layoutFlag;
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            layoutFlag = WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY;
-        } else {
-            layoutFlag = WindowManager.LayoutParams.TYPE_PHONE;
-        }
-
-        WindowManager.LayoutParams params = new WindowManager.LayoutParams(
-                WindowManager.LayoutParams.WRAP_CONTENT,
-                WindowManager.LayoutParams.WRAP_CONTENT,
-                layoutFlag,
-                WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE | WindowManager.LayoutParams.FLAG_LAYOUT_IN_SCREEN,
-                PixelFormat.TRANSLUCENT);
-
-        params.gravity = Gravity.TOP | Gravity.START;
-        params.x = 100;
-        params.y = 100;
-
-        new Handler(Looper.getMainLooper()).post(() -> {
-            try {
-                windowManager.addView(floatingView, params);
+        // The overlay is owned by FloatingWindowController; the session service keeps it ticking
+        FloatingWindowController.getInstance(getContext()).show(call.getString("initialText", "00:00"), error -> {
+            if (error == null) {
                 call.resolve();
-            } catch (Exception e) {
-                Log.e(FLOATING_WINDOW_TAG, "Error adding floating view", e);
-                call.reject("Error adding floating view", e);
+            } else {
+                call.reject("Error adding floating view", error);
             }
         });
     }
 
     @PluginMethod
     public void hide(PluginCall call) {
-        if (floatingView != null) {
-            new Handler(Looper.getMainLooper()).post(() -> {
-                try {
-                    windowManager.removeView(floatingView);
-                    floatingView = null;
-                    timerTextView = null;
-                    call.resolve();
-                } catch (Exception e) {
-                    Log.e(FLOATING_WINDOW_TAG, "Error removing floating view", e);
-                    call.reject("Error removing floating view", e);
-                }
-            });
-        } else {
-            call.resolve();
+        FloatingWindowController.getInstance(getContext()).hide(error -> {
+            if (error == null) {
+                call.resolve();
+            } else {
+                call.reject("Error removing floating view", error);
+            }
+        });
+    }
+
+    /**
+     * 綁定倒數截止時間（epoch 毫秒），之後由原生端自行更新懸浮視窗，每個階段只需呼叫一次
+     */
+    @PluginMethod
+    public void bind(PluginCall call) {
+        Long deadline = call.getLong("deadline");
+        if (deadline == null) {
+            call.reject("Missing deadline");
+            return;
         }
+        FloatingWindowController.getInstance(getContext()).bind(deadline);
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void unbind(PluginCall call) {
+        FloatingWindowController.getInstance(getContext()).unbind();
+        call.resolve();
     }
 
     @PluginMethod
     public void update(PluginCall call) {
-        final String newText = call.getString("text", "00:00");
-        if (timerTextView != null) {
-            new Handler(Looper.getMainLooper()).post(() -> timerTextView.setText(newText));
+        FloatingWindowController controller = FloatingWindowController.getInstance(getContext());
+        if (controller.isShowing()) {
+            controller.setText(call.getString("text", "00:00"));
             call.resolve();
         } else {
             call.reject("Floating window not visible");
@@ -2,16 +2,15 @@ package AntharLin.Prodomo;
 
 import android.content.Intent;
 import android.os.Build;
-import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
 import android.util.Log;
-import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
 
+/**
+ * Command facade over {@link PomodoroForegroundService}, which ticks the notification on its own.
+ */
 @CapacitorPlugin(name = "ForegroundService")
 public class ForegroundServicePlugin extends Plugin {
 
@@ -23,12 +22,41 @@ public class ForegroundServicePlugin extends Plugin {
         String title = call.getString("title", "Pomodoro Timer");
         String text = call.getString("text", "Running in background...");
         int secondsLeft = call.getInt("secondsLeft", 0);
-        
+        String phase = call.getString("phase", SessionPhase.WORK.getJsName());
+        // 未指定的時長與鈴聲直接取自原生設定（SettingsStore），不需 JS 傳入
+        SettingsStore.Snapshot settings = SettingsStorePlugin.getStore(getContext()).get();
+        int workSeconds = call.getInt("workSeconds", settings.getInt(SettingsStore.WORK_MINUTES) * 60);
+        int breakSeconds = call.getInt("breakSeconds", settings.getInt(SettingsStore.BREAK_MINUTES) * 60);
+        int longBreakSeconds = call.getInt("longBreakSeconds", settings.getInt(SettingsStore.LONG_BREAK_MINUTES) * 60);
+        int cyclesBeforeLongBreak = call.getInt("cyclesBeforeLongBreak", settings.getInt(SettingsStore.CYCLES_BEFORE_LONG_BREAK));
+        // 在此驗證，錯誤的參數不會送到服務的計時執行緒上
+        try {
+            validate(secondsLeft, phase, workSeconds, breakSeconds, longBreakSeconds, cyclesBeforeLongBreak);
+        } catch (IllegalArgumentException e) {
+            call.reject(e.getMessage());
+            return;
+        }
+
         // 建立 Intent
         Intent serviceIntent = new Intent(getContext(), PomodoroForegroundService.class);
-        serviceIntent.putExtra("title", title);
-        serviceIntent.putExtra("text", text);
-        serviceIntent.putExtra("secondsLeft", secondsLeft);
+        serviceIntent.setAction(PomodoroForegroundService.ACTION_START);
+        serviceIntent.putExtra(PomodoroForegroundService.EXTRA_TITLE, title);
+        serviceIntent.putExtra(PomodoroForegroundService.EXTRA_TEXT, text);
+        serviceIntent.putExtra(PomodoroForegroundService.EXTRA_SECONDS_LEFT, secondsLeft);
+        // 粗略模式：通知每分鐘更新一次，秒數交給系統計時器顯示
+        serviceIntent.putExtra(PomodoroForegroundService.EXTRA_COARSE_NOTIFICATION, call.getBoolean("coarseNotification", false));
+        // 工作/休息循環由原生端以精確鬧鐘推進，WebView 不在也能準時切換並播放鈴聲
+        serviceIntent.putExtra(PomodoroForegroundService.EXTRA_PHASE, phase);
+        serviceIntent.putExtra(PomodoroForegroundService.EXTRA_WORK_SECONDS, workSeconds);
+        serviceIntent.putExtra(PomodoroForegroundService.EXTRA_BREAK_SECONDS, breakSeconds);
+        // 長休息：每 cyclesBeforeLongBreak 個工作階段一次（0 表示不使用）
+        serviceIntent.putExtra(PomodoroForegroundService.EXTRA_LONG_BREAK_SECONDS, longBreakSeconds);
+        serviceIntent.putExtra(PomodoroForegroundService.EXTRA_CYCLES_BEFORE_LONG_BREAK, cyclesBeforeLongBreak);
+        serviceIntent.putExtra(PomodoroForegroundService.EXTRA_AUTO_ADVANCE, call.getBoolean("autoAdvance", settings.getBoolean(SettingsStore.AUTO_ADVANCE)));
+        serviceIntent.putExtra(PomodoroForegroundService.EXTRA_SOUND_PATH, call.getString("soundPath", settings.getString(SettingsStore.SOUND_PATH)));
+        serviceIntent.putExtra(PomodoroForegroundService.EXTRA_SOUND_IS_URL, call.getBoolean("soundIsUrl", settings.isSoundUrl()));
+        // 完成或中斷的階段會以此標籤寫入歷史紀錄
+        serviceIntent.putExtra(PomodoroForegroundService.EXTRA_TAG, call.getString("tag"));
 
         // 啟動服務
         try {
@@ -44,34 +72,49 @@ public class ForegroundServicePlugin extends Plugin {
         }
     }
 
+    /** Throws what the service would, so a bad start is rejected here instead of crashing it. */
+    static void validate(int secondsLeft, String phase, int workSeconds, int breakSeconds,
+                         int longBreakSeconds, int cyclesBeforeLongBreak) {
+        if (secondsLeft < 0 || workSeconds < 0 || breakSeconds < 0) {
+            throw new IllegalArgumentException("Durations must not be negative");
+        }
+        SessionPhase.fromJsName(phase);
+        if (workSeconds > 0 && breakSeconds > 0) {
+            new PomodoroSession.Config(workSeconds, breakSeconds, longBreakSeconds, cyclesBeforeLongBreak, true);
+        }
+    }
+
+    /**
+     * 結束目前的工作階段並停止服務；同時清除工作階段日誌，下次開啟 App 不會再還原它
+     */
     @PluginMethod
     public void stop(PluginCall call) {
+        // A bare stopService would leave the journal behind for restoreIfActive to bring back
         Intent serviceIntent = new Intent(getContext(), PomodoroForegroundService.class);
-        getContext().stopService(serviceIntent);
-        call.resolve();
+        serviceIntent.setAction(PomodoroForegroundService.ACTION_RESET);
+        try {
+            getContext().startService(serviceIntent);
+            call.resolve();
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to stop foreground service", e);
+            call.reject("Failed to stop foreground service", e);
+        }
     }
 
     @PluginMethod
     public void update(PluginCall call) {
-        // 獲取傳入的參數
-        String title = call.getString("title", "Pomodoro Timer");
-        String text = call.getString("text", "Running in background...");
-        int secondsLeft = call.getInt("secondsLeft", 0);
-
-        // 建立 Intent
+        // 只更新通知標題與內容；倒數由服務自行計時
         Intent serviceIntent = new Intent(getContext(), PomodoroForegroundService.class);
         serviceIntent.setAction(PomodoroForegroundService.ACTION_UPDATE);
-        serviceIntent.putExtra("title", title);
-        serviceIntent.putExtra("text", text);
-        serviceIntent.putExtra("secondsLeft", secondsLeft);
+        serviceIntent.putExtra(PomodoroForegroundService.EXTRA_TITLE, call.getString("title", "Pomodoro Timer"));
+        serviceIntent.putExtra(PomodoroForegroundService.EXTRA_TEXT, call.getString("text", "Running in background..."));
+        if (call.hasOption("secondsLeft")) {
+            serviceIntent.putExtra(PomodoroForegroundService.EXTRA_SECONDS_LEFT, call.getInt("secondsLeft", 0));
+        }
 
-        // 發送更新指令
+        // 發送更新指令（服務已在前景執行，不需再 startForegroundService）
         try {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                getContext().startForegroundService(serviceIntent);
-            } else {
-                getContext().startService(serviceIntent);
-            }
+            getContext().startService(serviceIntent);
             call.resolve();
         } catch (Exception e) {
             Log.e(TAG, "Failed to update foreground service", e);
@@ -0,0 +1,162 @@
+package AntharLin.Prodomo;
+
+import android.content.Context;
+import android.util.Log;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Read-only access to the session history written by {@link PomodoroForegroundService}.
+ * Stats come from the incremental totals in {@link HistoryStore}; lists are paged.
+ */
+@CapacitorPlugin(name = "History")
+public class HistoryPlugin extends Plugin {
+
+    private static final String TAG = "HistoryPlugin";
+    private static final String HISTORY_DIR = "history";
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private HistoryStore store;
+
+    static HistoryStore openStore(Context context) throws IOException {
+        return HistoryStore.getShared(new File(context.getFilesDir(), HISTORY_DIR));
+    }
+
+    /**
+     * 單日統計，time 為該日任一時刻（epoch 毫秒），預設為今天
+     */
+    @PluginMethod
+    public void getDay(PluginCall call) {
+        if (!ensureStore(call)) {
+            return;
+        }
+        call.resolve(toJson(store.day(store.epochDay(timeOption(call)))));
+    }
+
+    /**
+     * 以 time 所在日為最後一天，往前共 count 天的逐日統計（由舊到新）
+     */
+    @PluginMethod
+    public void getDays(PluginCall call) {
+        if (!ensureStore(call)) {
+            return;
+        }
+        int count = Math.max(1, Math.min(call.getInt("count", 7), 366));
+        int lastDay = store.epochDay(timeOption(call));
+        JSArray days = new JSArray();
+        for (int day = lastDay - count + 1; day <= lastDay; day++) {
+            JSObject stats = toJson(store.day(day));
+            stats.put("epochDay", day);
+            days.put(stats);
+        }
+        JSObject ret = new JSObject();
+        ret.put("days", days);
+        call.resolve(ret);
+    }
+
+    /**
+     * time 所在週（週一開始）的統計
+     */
+    @PluginMethod
+    public void getWeek(PluginCall call) {
+        if (!ensureStore(call)) {
+            return;
+        }
+        call.resolve(toJson(store.week(HistoryStore.weekOf(store.epochDay(timeOption(call))))));
+    }
+
+    @PluginMethod
+    public void getTags(PluginCall call) {
+        if (!ensureStore(call)) {
+            return;
+        }
+        JSArray tags = new JSArray();
+        for (String tag : store.tags()) {
+            JSObject stats = toJson(store.tag(tag));
+            stats.put("tag", tag);
+            tags.put(stats);
+        }
+        JSObject ret = new JSObject();
+        ret.put("tags", tags);
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void getTotals(PluginCall call) {
+        if (!ensureStore(call)) {
+            return;
+        }
+        JSObject ret = toJson(store.total());
+        ret.put("records", store.count());
+        call.resolve(ret);
+    }
+
+    /**
+     * 分頁列出紀錄，新的在前；offset 0 為最新一筆
+     */
+    @PluginMethod
+    public void list(PluginCall call) {
+        if (!ensureStore(call)) {
+            return;
+        }
+        int offset = Math.max(0, call.getInt("offset", 0));
+        int limit = Math.max(0, Math.min(call.getInt("limit", 50), MAX_PAGE_SIZE));
+        List<HistoryStore.Record> page;
+        try {
+            page = store.page(offset, limit);
+        } catch (IOException e) {
+            call.reject("Failed to read history", e);
+            return;
+        }
+        JSArray records = new JSArray();
+        for (HistoryStore.Record record : page) {
+            JSObject item = new JSObject();
+            item.put("endTime", record.endMillis);
+            item.put("phase", record.phase.getJsName());
+            item.put("completed", record.completed);
+            item.put("plannedSeconds", record.plannedSeconds);
+            item.put("actualSeconds", record.actualSeconds);
+            item.put("tag", record.tag);
+            records.put(item);
+        }
+        JSObject ret = new JSObject();
+        ret.put("total", store.count());
+        ret.put("records", records);
+        call.resolve(ret);
+    }
+
+    /** Opens the history on first use, on the plugin thread, rather than while the bridge starts. */
+    private boolean ensureStore(PluginCall call) {
+        if (store == null) {
+            try {
+                store = openStore(getContext());
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to open session history", e);
+                call.reject("Session history unavailable", e);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long timeOption(PluginCall call) {
+        Long time = call.getLong("time");
+        return time != null ? time : System.currentTimeMillis();
+    }
+
+    private static JSObject toJson(HistoryStore.Stats stats) {
+        JSObject ret = new JSObject();
+        ret.put("completed", stats.completed);
+        ret.put("abandoned", stats.abandoned);
+        ret.put("focusSeconds", stats.focusSeconds);
+        ret.put("breakSeconds", stats.breakSeconds);
+        return ret;
+    }
+}
@@ -0,0 +1,391 @@
+package AntharLin.Prodomo;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Append-only history of finished phases: one fixed-size binary record per completed or
+ * abandoned phase, plus a small tag table. Daily, weekly and per-tag totals are kept in
+ * memory and updated on every append, so stats reads are O(1); they are rebuilt with a
+ * single sequential scan when the store is opened. Pages are read with one positional read.
+ * <p>
+ * Safe to share between the session service (writer) and HistoryPlugin (reader).
+ */
+public class HistoryStore {
+
+    static final int RECORD_SIZE = 32;
+    static final String RECORDS_FILE = "history.bin";
+    static final String TAGS_FILE = "history_tags.txt";
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final int SCAN_CHUNK_RECORDS = 2048;
+
+    /** One finished phase. */
+    public static final class Record {
+        public final long endMillis;
+        public final int epochDay;
+        public final SessionPhase phase;
+        public final boolean completed;
+        public final int plannedSeconds;
+        public final int actualSeconds;
+        public final String tag;
+
+        Record(long endMillis, int epochDay, SessionPhase phase, boolean completed,
+               int plannedSeconds, int actualSeconds, String tag) {
+            this.endMillis = endMillis;
+            this.epochDay = epochDay;
+            this.phase = phase;
+            this.completed = completed;
+            this.plannedSeconds = plannedSeconds;
+            this.actualSeconds = actualSeconds;
+            this.tag = tag;
+        }
+    }
+
+    /** Totals for a day, a week, a tag, or all time. Pomodoro counts only include work phases. */
+    public static final class Stats {
+        public static final Stats EMPTY = new Stats(0, 0, 0, 0);
+
+        public final int completed;
+        public final int abandoned;
+        public final long focusSeconds;
+        public final long breakSeconds;
+
+        Stats(int completed, int abandoned, long focusSeconds, long breakSeconds) {
+            this.completed = completed;
+            this.abandoned = abandoned;
+            this.focusSeconds = focusSeconds;
+            this.breakSeconds = breakSeconds;
+        }
+    }
+
+    /** Receives records in order, e.g. while they are streamed into an export. */
+    public interface RecordVisitor {
+        void visit(Record record) throws IOException;
+    }
+
+    /** Growable counters indexed by day, week or tag id; negative offsets shift the base down. */
+    private static final class Buckets {
+        private int base;
+        private int[] completed = new int[0];
+        private int[] abandoned = new int[0];
+        private long[] focusSeconds = new long[0];
+        private long[] breakSeconds = new long[0];
+
+        void add(int key, SessionPhase phase, boolean done, int actualSeconds) {
+            int i = ensure(key);
+            if (phase == SessionPhase.WORK) {
+                if (done) {
+                    completed[i]++;
+                } else {
+                    abandoned[i]++;
+                }
+                focusSeconds[i] += actualSeconds;
+            } else {
+                breakSeconds[i] += actualSeconds;
+            }
+        }
+
+        Stats get(int key) {
+            int i = key - base;
+            if (i < 0 || i >= completed.length) {
+                return Stats.EMPTY;
+            }
+            return new Stats(completed[i], abandoned[i], focusSeconds[i], breakSeconds[i]);
+        }
+
+        void clear() {
+            base = 0;
+            completed = new int[0];
+            abandoned = new int[0];
+            focusSeconds = new long[0];
+            breakSeconds = new long[0];
+        }
+
+        private int ensure(int key) {
+            if (completed.length == 0) {
+                base = key;
+            }
+            int i = key - base;
+            if (i >= 0 && i < completed.length) {
+                return i;
+            }
+            int low = Math.min(base, key);
+            int high = Math.max(base + completed.length, key + 1);
+            // Grow with headroom so appending day after day stays amortised O(1)
+            int size = Math.max(high - low, completed.length * 2);
+            int shift = base - low;
+            completed = grow(completed, size, shift);
+            abandoned = grow(abandoned, size, shift);
+            focusSeconds = grow(focusSeconds, size, shift);
+            breakSeconds = grow(breakSeconds, size, shift);
+            base = low;
+            return key - base;
+        }
+
+        private static int[] grow(int[] values, int size, int shift) {
+            int[] grown = new int[size];
+            System.arraycopy(values, 0, grown, shift, values.length);
+            return grown;
+        }
+
+        private static long[] grow(long[] values, int size, int shift) {
+            long[] grown = new long[size];
+            System.arraycopy(values, 0, grown, shift, values.length);
+            return grown;
+        }
+    }
+
+    private static HistoryStore shared;
+
+    private final File directory;
+    private final TimeZone timeZone;
+    private final RandomAccessFile records;
+    private final FileChannel channel;
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(RECORD_SIZE);
+    private final List<String> tags = new ArrayList<>();
+    private final Map<String, Integer> tagIds = new HashMap<>();
+    private final Buckets days = new Buckets();
+    private final Buckets weeks = new Buckets();
+    private final Buckets tagTotals = new Buckets();
+    private final Buckets allTime = new Buckets();
+    private int count;
+
+    public HistoryStore(File directory, TimeZone timeZone) throws IOException {
+        this.directory = directory;
+        this.timeZone = timeZone;
+        tags.add("");
+        tagIds.put("", 0);
+        loadTags();
+        records = new RandomAccessFile(new File(directory, RECORDS_FILE), "rw");
+        channel = records.getChannel();
+        scan();
+    }
+
+    /** Process-wide store in {@code directory}, opened on first use. */
+    public static synchronized HistoryStore getShared(File directory) throws IOException {
+        if (shared == null) {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Cannot create " + directory);
+            }
+            shared = new HistoryStore(directory, TimeZone.getDefault());
+        }
+        return shared;
+    }
+
+    /** Local calendar day of {@code millis}; stored with each record so later time zone changes don't move it. */
+    public int epochDay(long millis) {
+        return (int) ((millis + timeZone.getOffset(millis)) / DAY_MILLIS);
+    }
+
+    /** Monday-based week number; epoch day 0 was a Thursday. */
+    public static int weekOf(int epochDay) {
+        return (epochDay + 3) / 7;
+    }
+
+    public synchronized void append(long endMillis, SessionPhase phase, boolean completed,
+                                    int plannedSeconds, int actualSeconds, String tag) throws IOException {
+        append(endMillis, epochDay(endMillis), phase, completed, plannedSeconds, actualSeconds, tag);
+    }
+
+    /** Appends a record that already has its day, e.g. one imported from another device. */
+    synchronized void append(long endMillis, int epochDay, SessionPhase phase, boolean completed,
+                             int plannedSeconds, int actualSeconds, String tag) throws IOException {
+        int tagId = tagId(tag);
+        recordBuffer.clear();
+        recordBuffer.putLong(endMillis)
+                .putInt(epochDay)
+                .putInt(plannedSeconds)
+                .putInt(actualSeconds)
+                .put((byte) phase.ordinal())
+                .put((byte) (completed ? 1 : 0))
+                .putShort((short) tagId)
+                .putLong(0L);
+        recordBuffer.flip();
+        channel.write(recordBuffer, (long) count * RECORD_SIZE);
+        count++;
+        index(epochDay, phase, completed, actualSeconds, tagId);
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    public synchronized Stats day(int epochDay) {
+        return days.get(epochDay);
+    }
+
+    public synchronized Stats week(int week) {
+        return weeks.get(week);
+    }
+
+    public synchronized Stats tag(String tag) {
+        Integer id = tagIds.get(tag == null ? "" : tag);
+        return id == null ? Stats.EMPTY : tagTotals.get(id);
+    }
+
+    public synchronized List<String> tags() {
+        return new ArrayList<>(tags);
+    }
+
+    public synchronized Stats total() {
+        return allTime.get(0);
+    }
+
+    /** Newest first: {@code offset} 0 is the most recent record. */
+    public synchronized List<Record> page(int offset, int limit) throws IOException {
+        int end = Math.max(0, count - offset);
+        int start = Math.max(0, end - limit);
+        List<Record> page = new ArrayList<>(end - start);
+        if (end == start) {
+            return page;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((end - start) * RECORD_SIZE);
+        readFully(buffer, (long) start * RECORD_SIZE);
+        for (int i = end - start - 1; i >= 0; i--) {
+            page.add(decode(buffer, i * RECORD_SIZE));
+        }
+        return page;
+    }
+
+    /**
+     * Visits every record oldest first, reading {@link #SCAN_CHUNK_RECORDS} at a time; appends
+     * made meanwhile are not visited, and the lock is only held while a chunk is read.
+     */
+    public void forEach(RecordVisitor visitor) throws IOException {
+        int end = count();
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_CHUNK_RECORDS * RECORD_SIZE);
+        List<Record> chunk = new ArrayList<>(SCAN_CHUNK_RECORDS);
+        for (int start = 0; start < end; start += SCAN_CHUNK_RECORDS) {
+            int size = Math.min(SCAN_CHUNK_RECORDS, end - start);
+            chunk.clear();
+            synchronized (this) {
+                buffer.clear();
+                buffer.limit(size * RECORD_SIZE);
+                readFully(buffer, (long) start * RECORD_SIZE);
+                for (int at = 0; at < size * RECORD_SIZE; at += RECORD_SIZE) {
+                    chunk.add(decode(buffer, at));
+                }
+            }
+            for (Record record : chunk) {
+                visitor.visit(record);
+            }
+        }
+    }
+
+    /** Drops every record from {@code records} on and rebuilds the totals, e.g. to undo a failed import. */
+    public synchronized void truncate(int records) throws IOException {
+        if (records < 0 || records > count) {
+            throw new IllegalArgumentException("Cannot truncate " + count + " records to " + records);
+        }
+        channel.truncate((long) records * RECORD_SIZE);
+        days.clear();
+        weeks.clear();
+        tagTotals.clear();
+        allTime.clear();
+        scan();
+    }
+
+    public synchronized void close() throws IOException {
+        records.close();
+    }
+
+    private Record decode(ByteBuffer buffer, int at) {
+        int tagId = buffer.getShort(at + 22);
+        return new Record(buffer.getLong(at), buffer.getInt(at + 8), SessionPhase.values()[buffer.get(at + 20)],
+                buffer.get(at + 21) != 0, buffer.getInt(at + 12), buffer.getInt(at + 16), tags.get(tagId < tags.size() ? tagId : 0));
+    }
+
+    private void index(int epochDay, SessionPhase phase, boolean completed, int actualSeconds, int tagId) {
+        days.add(epochDay, phase, completed, actualSeconds);
+        weeks.add(weekOf(epochDay), phase, completed, actualSeconds);
+        tagTotals.add(tagId, phase, completed, actualSeconds);
+        allTime.add(0, phase, completed, actualSeconds);
+    }
+
+    private void scan() throws IOException {
+        long length = channel.size();
+        count = (int) (length / RECORD_SIZE);
+        if (length % RECORD_SIZE != 0) {
+            // A kill in the middle of an append; drop the partial record
+            channel.truncate((long) count * RECORD_SIZE);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_CHUNK_RECORDS * RECORD_SIZE);
+        for (int start = 0; start < count; start += SCAN_CHUNK_RECORDS) {
+            int chunk = Math.min(SCAN_CHUNK_RECORDS, count - start);
+            buffer.clear();
+            buffer.limit(chunk * RECORD_SIZE);
+            readFully(buffer, (long) start * RECORD_SIZE);
+            for (int at = 0; at < chunk * RECORD_SIZE; at += RECORD_SIZE) {
+                int tagId = buffer.getShort(at + 22);
+                index(buffer.getInt(at + 8), SessionPhase.values()[buffer.get(at + 20)], buffer.get(at + 21) != 0,
+                        buffer.getInt(at + 16), tagId < tags.size() ? tagId : 0);
+            }
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of history file");
+            }
+            position += read;
+        }
+    }
+
+    private int tagId(String tag) throws IOException {
+        if (tag == null) {
+            return 0;
+        }
+        Integer id = tagIds.get(tag);
+        if (id != null) {
+            return id;
+        }
+        if (tags.size() > Short.MAX_VALUE || !isStorableTag(tag)) {
+            throw new IllegalArgumentException("Invalid tag: " + tag);
+        }
+        try (Writer writer = new OutputStreamWriter(
+                new FileOutputStream(new File(directory, TAGS_FILE), true), StandardCharsets.UTF_8)) {
+            writer.write(tag);
+            writer.write('\n');
+        }
+        tagIds.put(tag, tags.size());
+        tags.add(tag);
+        return tags.size() - 1;
+    }
+
+    /** Tags are stored one per line and read back with readLine, which also splits on '\r'. */
+    static boolean isStorableTag(String tag) {
+        return tag.indexOf('\n') < 0 && tag.indexOf('\r') < 0;
+    }
+
+    private void loadTags() throws IOException {
+        File file = new File(directory, TAGS_FILE);
+        if (!file.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                tagIds.put(line, tags.size());
+                tags.add(line);
+            }
+        }
+    }
+}
@@ -1,20 +1,71 @@
 package AntharLin.Prodomo;
 
+import android.content.pm.ApplicationInfo;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.view.WindowManager;
+import android.webkit.WebView;
 import com.getcapacitor.BridgeActivity;
+import com.getcapacitor.WebViewListener;
 import android.os.Bundle;
+import AntharLin.Prodomo.DiagnosticsPlugin;
 import AntharLin.Prodomo.FloatingWindowPlugin;
 import AntharLin.Prodomo.ForegroundServicePlugin;
+import AntharLin.Prodomo.HistoryPlugin;
+import AntharLin.Prodomo.SettingsStorePlugin;
+import AntharLin.Prodomo.TimerPlugin;
 
 public class MainActivity extends BridgeActivity {
+    private StartupSplash splash;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
+        StartupTrace.getInstance().begin(SystemClock.elapsedRealtimeNanos());
+        if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            // Like StrictMode: log timer work that slipped back onto the main thread
+            TimerThread.detectMainThreadWork(TimerThread::logViolation);
+        }
+        registerPlugin(BackupPlugin.class);
+        registerPlugin(DiagnosticsPlugin.class);
         registerPlugin(FloatingWindowPlugin.class);
         registerPlugin(ForegroundServicePlugin.class);
+        registerPlugin(HistoryPlugin.class);
+        registerPlugin(SettingsStorePlugin.class);
+        registerPlugin(TimerPlugin.class);
+        // Bring a killed session back from its journal before the WebView starts loading
+        SessionJournal.Entry restored = PomodoroForegroundService.restoreIfActive(this);
+        super.onCreate(savedInstanceState);
+        showSplash(restored);
 
         // Keep the screen on while the app is in the foreground
         getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
+        StartupTrace.getInstance().mark(StartupTrace.Stage.ACTIVITY_CREATED, SystemClock.elapsedRealtimeNanos());
+    }
+
+    /** Native digits over the WebView until the page has loaded; see {@link StartupSplash}. */
+    private void showSplash(SessionJournal.Entry restored) {
+        TimerSnapshot initial = TimerStateBus.getInstance().getLatest();
+        if (initial == TimerSnapshot.IDLE && restored != null) {
+            // The restarted service has not published yet, but the journal already knows the time
+            initial = restored.toSnapshot(SystemClock.elapsedRealtime());
+        }
+        int idleSeconds = SettingsStorePlugin.getStore(this).get().getInt(SettingsStore.WORK_MINUTES) * 60;
+        splash = new StartupSplash(this, initial, idleSeconds);
+        splash.show(this);
+        getBridge().addWebViewListener(new WebViewListener() {
+            @Override
+            public void onPageLoaded(WebView webView) {
+                StartupTrace.getInstance().mark(StartupTrace.Stage.PAGE_LOADED, SystemClock.elapsedRealtimeNanos());
+                splash.dismiss();
+            }
+        });
+    }
+
+    @Override
+    public void onDestroy() {
+        if (splash != null) {
+            splash.dismiss();
+        }
+        super.onDestroy();
     }
 }
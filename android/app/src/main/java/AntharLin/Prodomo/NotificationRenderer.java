@@ -0,0 +1,150 @@
+package AntharLin.Prodomo;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import androidx.core.app.NotificationCompat;
+
+/**
+ * Builds the session notification from a cached builder and content intent, and only
+ * calls {@link NotificationManager#notify} when the visible text actually changes.
+ * In coarse mode the text moves per minute and the system chronometer counts seconds.
+ * Pause/resume, skip and stop actions go straight to the service, without opening the app.
+ */
+public class NotificationRenderer {
+
+    private final int notificationId;
+    private final NotificationManager manager;
+    private final NotificationCompat.Builder builder;
+    private final Notification placeholder;
+    private final NotificationThrottle throttle;
+    private final StringBuilder content = new StringBuilder(64);
+    private int contentLength;
+    private final NotificationCompat.Action pauseAction;
+    private final NotificationCompat.Action resumeAction;
+    private final NotificationCompat.Action skipAction;
+    private final NotificationCompat.Action stopAction;
+    private boolean skippable;
+    /** The actions currently on the builder: 0 none yet, else 1 + running + 2 * skippable. */
+    private int actionsKey;
+
+    public NotificationRenderer(Context context, String channelId, int notificationId, CountdownEngine.Clock clock) {
+        this.notificationId = notificationId;
+        this.manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        this.throttle = new NotificationThrottle(clock);
+
+        Intent notificationIntent = new Intent(context, MainActivity.class);
+        PendingIntent pendingIntent = PendingIntent.getActivity(context,
+                0, notificationIntent, PendingIntent.FLAG_IMMUTABLE);
+
+        builder = new NotificationCompat.Builder(context, channelId)
+                .setSmallIcon(R.drawable.ic_launcher_foreground) // Use a default icon
+                .setContentIntent(pendingIntent)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
+                .setShowWhen(false);
+        // Built once, on its own builder, so the main thread can show it while the timer thread renders
+        placeholder = new NotificationCompat.Builder(context, channelId)
+                .setSmallIcon(R.drawable.ic_launcher_foreground)
+                .setContentIntent(pendingIntent)
+                .setOngoing(true)
+                .setShowWhen(false)
+                .setContentTitle("Pomodoro Timer")
+                .build();
+        pauseAction = action(context, R.string.action_pause, PomodoroForegroundService.ACTION_PAUSE, 1);
+        resumeAction = action(context, R.string.action_resume, PomodoroForegroundService.ACTION_RESUME, 2);
+        skipAction = action(context, R.string.action_skip, PomodoroForegroundService.ACTION_SKIP, 3);
+        stopAction = action(context, R.string.action_stop, PomodoroForegroundService.ACTION_RESET, 4);
+    }
+
+    private static NotificationCompat.Action action(Context context, int titleRes, String serviceAction, int requestCode) {
+        // The service is already in the foreground while its notification shows, so a plain start is allowed
+        Intent intent = new Intent(context, PomodoroForegroundService.class).setAction(serviceAction);
+        PendingIntent pendingIntent = PendingIntent.getService(context, requestCode, intent, PendingIntent.FLAG_IMMUTABLE);
+        return new NotificationCompat.Action(0, context.getString(titleRes), pendingIntent);
+    }
+
+    public NotificationThrottle getThrottle() {
+        return throttle;
+    }
+
+    /** Whether to offer "skip"; a one-shot countdown has no next phase. */
+    public void setSkippable(boolean skippable) {
+        this.skippable = skippable;
+    }
+
+    public void setCoarse(boolean coarse) {
+        throttle.setGranularity(coarse ? NotificationThrottle.Granularity.MINUTES : NotificationThrottle.Granularity.SECONDS);
+    }
+
+    /** A fixed notification for startForeground before the session is known; safe from any thread. */
+    public Notification getPlaceholder() {
+        return placeholder;
+    }
+
+    /** Posts the notification unconditionally, e.g. over the placeholder. */
+    public void repost(String title, String text, CountdownEngine countdown) {
+        throttle.invalidate();
+        render(title, text, countdown);
+    }
+
+    /** Reposts the notification if, and only if, its visible content changed. */
+    public void render(String title, String text, CountdownEngine countdown) {
+        if (throttle.offer(describe(title, text, countdown))) {
+            apply(title, countdown);
+            long begin = Diagnostics.begin();
+            manager.notify(notificationId, builder.build());
+            Diagnostics.end(Diagnostics.NOTIFY_DURATION, begin);
+            RefreshGovernor.getInstance().countUpdate(RefreshGovernor.Sink.NOTIFICATION);
+        }
+    }
+
+    private boolean usesChronometer(CountdownEngine countdown) {
+        return throttle.getGranularity() == NotificationThrottle.Granularity.MINUTES && countdown.isRunning();
+    }
+
+    /**
+     * Writes the content text into the reused {@link #content} buffer and returns the key
+     * the throttle compares on; nothing is allocated when the content is unchanged.
+     */
+    private CharSequence describe(String title, String text, CountdownEngine countdown) {
+        int secondsLeft = countdown.remainingSeconds();
+        content.setLength(0);
+        content.append(text).append(" - ");
+        if (usesChronometer(countdown)) {
+            content.append(throttle.displayUnits(secondsLeft)).append(" min");
+        } else {
+            TimeFormatter.appendTo(content, secondsLeft);
+        }
+        contentLength = content.length();
+        // The chronometer base and the actions are part of what is visible, so a pause/resume must repost
+        return content.append('\n').append(title).append('\n').append(usesChronometer(countdown))
+                .append(countdown.isRunning()).append(skippable);
+    }
+
+    private void apply(String title, CountdownEngine countdown) {
+        if (usesChronometer(countdown)) {
+            builder.setUsesChronometer(true)
+                    .setChronometerCountDown(true)
+                    .setShowWhen(true)
+                    .setWhen(System.currentTimeMillis() + countdown.remainingMillis());
+        } else {
+            builder.setUsesChronometer(false)
+                    .setShowWhen(false);
+        }
+        builder.setContentTitle(title)
+                .setContentText(content.substring(0, contentLength));
+        boolean running = countdown.isRunning();
+        int key = 1 + (running ? 1 : 0) + (skippable ? 2 : 0);
+        if (key != actionsKey) {
+            actionsKey = key;
+            builder.clearActions().addAction(running ? pauseAction : resumeAction);
+            if (skippable) {
+                builder.addAction(skipAction);
+            }
+            builder.addAction(stopAction);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package AntharLin.Prodomo;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.TypedValue;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+
+/**
+ * Overlay countdown drawn from a pre-rendered digit atlas into fixed-width cells.
+ * The size never depends on the digits shown, so a tick never triggers a measure/layout
+ * or a WindowManager relayout, and only the cells whose glyph changed are invalidated.
+ */
+public class OverlayTimerView extends View {
+
+    public interface DragListener {
+        void onDragged(int dx, int dy);
+
+        void onDragFinished();
+    }
+
+    private static final String GLYPHS = "0123456789:";
+    private static final int DEFAULT_CELLS = 5; // "mm:ss"
+    private static final int BACKGROUND_COLOR = 0xAA000000; // Semi-transparent black
+    private static final int TEXT_COLOR = 0xFFFFFFFF; // White
+
+    private final Bitmap atlas;
+    private final int cellWidth;
+    private final int cellHeight;
+    private final int paddingX;
+    private final int paddingY;
+    private final Rect src = new Rect();
+    private final Rect dst = new Rect();
+    private final Rect dirty = new Rect();
+    private final char[] next = new char[16];
+    private char[] cells = new char[DEFAULT_CELLS];
+    private int cellCount;
+
+    private final int touchSlop;
+    private DragListener dragListener;
+    private float lastRawX;
+    private float lastRawY;
+    private boolean dragging;
+
+    public OverlayTimerView(Context context) {
+        super(context);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(TEXT_COLOR);
+        paint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 24,
+                context.getResources().getDisplayMetrics()));
+        paint.setTextAlign(Paint.Align.CENTER);
+
+        float widest = 0;
+        for (int i = 0; i < GLYPHS.length(); i++) {
+            widest = Math.max(widest, paint.measureText(GLYPHS, i, i + 1));
+        }
+        Paint.FontMetricsInt metrics = paint.getFontMetricsInt();
+        cellWidth = (int) Math.ceil(widest);
+        cellHeight = metrics.descent - metrics.ascent;
+        paddingX = 20;
+        paddingY = 10;
+
+        atlas = Bitmap.createBitmap(cellWidth * GLYPHS.length(), cellHeight, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(atlas);
+        for (int i = 0; i < GLYPHS.length(); i++) {
+            canvas.drawText(GLYPHS, i, i + 1, cellWidth * i + cellWidth / 2f, -metrics.ascent, paint);
+        }
+
+        touchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+        setSeconds(0);
+    }
+
+    public void setDragListener(DragListener dragListener) {
+        this.dragListener = dragListener;
+    }
+
+    public void setSeconds(int secondsLeft) {
+        setChars(next, TimeFormatter.formatInto(next, 0, secondsLeft));
+    }
+
+    /** Shows arbitrary text; characters without a glyph are left blank. */
+    public void setText(String text) {
+        int length = Math.min(text.length(), next.length);
+        text.getChars(0, length, next, 0);
+        setChars(next, length);
+    }
+
+    private void setChars(char[] source, int length) {
+        if (length > cells.length) {
+            // Only an over-99-minute value can grow the view; the size is stable from then on
+            char[] grown = new char[length];
+            System.arraycopy(cells, 0, grown, 0, cellCount);
+            cells = grown;
+            requestLayout();
+        }
+        int offset = cells.length - length; // right-align within the fixed cells
+        for (int i = 0; i < cells.length; i++) {
+            char c = i < offset ? ' ' : source[i - offset];
+            if (cells[i] != c) {
+                cells[i] = c;
+                cellBounds(i, dirty);
+                invalidate(dirty);
+            }
+        }
+        cellCount = cells.length;
+    }
+
+    private void cellBounds(int index, Rect out) {
+        int left = paddingX + index * cellWidth;
+        out.set(left, paddingY, left + cellWidth, paddingY + cellHeight);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        setMeasuredDimension(paddingX * 2 + cellWidth * cells.length, paddingY * 2 + cellHeight);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        long begin = Diagnostics.begin();
+        canvas.drawColor(BACKGROUND_COLOR);
+        for (int i = 0; i < cellCount; i++) {
+            int glyph = GLYPHS.indexOf(cells[i]);
+            if (glyph < 0) {
+                continue;
+            }
+            src.set(glyph * cellWidth, 0, (glyph + 1) * cellWidth, cellHeight);
+            cellBounds(i, dst);
+            canvas.drawBitmap(atlas, src, dst, null);
+        }
+        Diagnostics.end(Diagnostics.OVERLAY_REDRAW, begin);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                lastRawX = event.getRawX();
+                lastRawY = event.getRawY();
+                dragging = false;
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                float dx = event.getRawX() - lastRawX;
+                float dy = event.getRawY() - lastRawY;
+                if (!dragging && Math.hypot(dx, dy) < touchSlop) {
+                    return true;
+                }
+                dragging = true;
+                lastRawX = event.getRawX();
+                lastRawY = event.getRawY();
+                if (dragListener != null) {
+                    dragListener.onDragged(Math.round(dx), Math.round(dy));
+                }
+                return true;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                if (dragging && dragListener != null) {
+                    dragListener.onDragFinished();
+                }
+                dragging = false;
+                return true;
+            default:
+                return super.onTouchEvent(event);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package AntharLin.Prodomo;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import androidx.core.content.ContextCompat;
+
+/**
+ * Receives the exact phase-end alarm and hands it to the session service, which advances
+ * work -> break -> work and plays the alarm without any WebView involvement.
+ */
+public class PhaseAlarmReceiver extends BroadcastReceiver {
+
+    public static final String ACTION_PHASE_END = "AntharLin.Prodomo.ACTION_PHASE_END";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (!ACTION_PHASE_END.equals(intent.getAction())) {
+            return;
+        }
+        Intent serviceIntent = new Intent(context, PomodoroForegroundService.class);
+        serviceIntent.setAction(ACTION_PHASE_END);
+        ContextCompat.startForegroundService(context, serviceIntent);
+    }
+}
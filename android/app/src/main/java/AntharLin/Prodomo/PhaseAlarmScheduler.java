@@ -0,0 +1,48 @@
+package AntharLin.Prodomo;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+
+/**
+ * Schedules the end of the current phase as an exact, Doze-exempt alarm, so the boundary
+ * fires on time with the screen off while the CPU sleeps in between.
+ */
+public class PhaseAlarmScheduler {
+
+    private static final int REQUEST_CODE = 2001;
+
+    private final Context context;
+    private final AlarmManager alarmManager;
+
+    public PhaseAlarmScheduler(Context context) {
+        this.context = context;
+        this.alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+    }
+
+    /** @param triggerAtElapsed {@code elapsedRealtime()} of the phase boundary */
+    public void schedule(long triggerAtElapsed) {
+        PendingIntent operation = pendingIntent();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && !alarmManager.canScheduleExactAlarms()) {
+            // Without the exact-alarm grant this is still Doze-exempt, just inexact by a few minutes at most
+            alarmManager.setAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAtElapsed, operation);
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAtElapsed, operation);
+        } else {
+            alarmManager.setExact(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAtElapsed, operation);
+        }
+    }
+
+    public void cancel() {
+        alarmManager.cancel(pendingIntent());
+    }
+
+    private PendingIntent pendingIntent() {
+        Intent intent = new Intent(context, PhaseAlarmReceiver.class);
+        intent.setAction(PhaseAlarmReceiver.ACTION_PHASE_END);
+        return PendingIntent.getBroadcast(context, REQUEST_CODE, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+}
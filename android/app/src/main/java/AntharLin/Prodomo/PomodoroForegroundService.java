@@ -1,79 +1,392 @@
 package AntharLin.Prodomo;
 
-import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
-import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
 import android.os.IBinder;
 import android.os.Handler;
-import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
 import android.util.Log;
-import androidx.core.app.NotificationCompat;
+import androidx.core.content.ContextCompat;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * The single authoritative session service. It owns the countdown, the notification and
+ * the overlay, and one wakeup per tick drives all of them. TimerPlugin and
+ * ForegroundServicePlugin only send commands to it.
+ * <p>
+ * Phase boundaries are exact alarms ({@link PhaseAlarmScheduler}); the per-second tick only
+ * runs while the screen is on, so with the screen off the CPU sleeps until the boundary.
+ * That timing lives in {@link SessionRunner}; this class supplies its Handler, alarms,
+ * wake lock, sound and notification.
+ * <p>
+ * Every transition is recorded in a {@link SessionJournal}, so a sticky restart, an alarm
+ * in a fresh process, or a cold app start continues the session at its exact deadline.
+ */
 public class PomodoroForegroundService extends Service {
 
     private static final String CHANNEL_ID = "PomodoroTimerChannel";
     private static final int NOTIFICATION_ID = 1;
+    public static final String ACTION_START = "AntharLin.Prodomo.ACTION_START";
     public static final String ACTION_UPDATE = "AntharLin.Prodomo.ACTION_UPDATE";
+    public static final String ACTION_PAUSE = "AntharLin.Prodomo.ACTION_PAUSE";
+    public static final String ACTION_RESUME = "AntharLin.Prodomo.ACTION_RESUME";
+    public static final String ACTION_RESET = "AntharLin.Prodomo.ACTION_RESET";
+    public static final String ACTION_RESTORE = "AntharLin.Prodomo.ACTION_RESTORE";
+    /** Next phase right away; a one-shot countdown just ends. */
+    public static final String ACTION_SKIP = "AntharLin.Prodomo.ACTION_SKIP";
+    /** Pause or resume, or start a session from the saved settings when none is active. */
+    public static final String ACTION_TOGGLE = "AntharLin.Prodomo.ACTION_TOGGLE";
+    public static final String EXTRA_TITLE = "title";
+    public static final String EXTRA_TEXT = "text";
+    public static final String EXTRA_SECONDS_LEFT = "secondsLeft";
+    public static final String EXTRA_COARSE_NOTIFICATION = "coarseNotification";
+    public static final String EXTRA_PHASE = "phase";
+    public static final String EXTRA_WORK_SECONDS = "workSeconds";
+    public static final String EXTRA_BREAK_SECONDS = "breakSeconds";
+    public static final String EXTRA_LONG_BREAK_SECONDS = "longBreakSeconds";
+    public static final String EXTRA_CYCLES_BEFORE_LONG_BREAK = "cyclesBeforeLongBreak";
+    public static final String EXTRA_AUTO_ADVANCE = "autoAdvance";
+    public static final String EXTRA_SOUND_PATH = "soundPath";
+    public static final String EXTRA_SOUND_IS_URL = "soundIsUrl";
+    public static final String EXTRA_TAG = "tag";
     private static final String TAG = "PomodoroService";
+    private static final String JOURNAL_FILE = "session.journal";
 
     private Handler handler;
-    private Runnable runnable;
-    private int secondsLeft = 0;
+    // Main thread only: whether onStartCommand already put the service in the foreground
+    private boolean foreground;
+    // Timer thread only: start id of the command handled last, for stopSelf(int)
+    private int handledStartId;
+    private SessionRunner runner;
+    private PomodoroSession session;
+    private CountdownEngine countdown;
+    private HistoryStore history;
+    // Appends in phase order, without holding up ticks while BackupArchive imports into the store
+    private final ExecutorService historyWriter = Executors.newSingleThreadExecutor();
+    private String tag;
+    private SettingsStore settings;
+    // Settings can change on the plugin thread; the session is only touched on the handler's thread
+    private final SettingsStore.Listener settingsListener = snapshot -> handler.post(() -> applySettings(snapshot));
+    private NotificationRenderer notificationRenderer;
+    private PhaseAlarmScheduler alarmScheduler;
     private String currentTitle = "Pomodoro Timer";
     private String currentText = "Running in background...";
+    private AlarmPlayer alarmPlayer;
+    private final AlarmLatencyRecorder alarmLatency = AlarmLatencyRecorder.getInstance();
+    private PowerManager.WakeLock boundaryWakeLock;
+    private final RefreshGovernor governor = RefreshGovernor.getInstance();
+    // The screen went on or off; the runner stops or resumes ticking
+    private final RefreshGovernor.Listener notificationListener = live -> handler.post(() -> runner.onVisibilityChanged());
+
+    // The runner posts only its tick, so one wrapper times it for Diagnostics
+    private Runnable scheduledTick;
+    // When the posted tick is due, for Diagnostics; 0 if none is posted or diagnostics are off
+    private long tickDueNanos;
+    private final Runnable timedTick = () -> {
+        if (tickDueNanos != 0) {
+            Diagnostics.recordLateness(tickDueNanos, SystemClock.elapsedRealtimeNanos());
+            tickDueNanos = 0;
+        }
+        scheduledTick.run();
+    };
+
+    private final SessionRunner.Scheduler scheduler = new SessionRunner.Scheduler() {
+        @Override
+        public void schedule(Runnable task, long delayMillis) {
+            scheduledTick = task;
+            if (Diagnostics.isEnabled()) {
+                tickDueNanos = SystemClock.elapsedRealtimeNanos() + delayMillis * 1_000_000L;
+            }
+            handler.postDelayed(timedTick, delayMillis);
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            handler.removeCallbacks(timedTick);
+            tickDueNanos = 0;
+        }
+    };
+
+    private final SessionRunner.Host host = new SessionRunner.Host() {
+        @Override
+        public void scheduleBoundaryAlarm(long triggerAtMillis) {
+            alarmScheduler.schedule(triggerAtMillis);
+        }
+
+        @Override
+        public void cancelBoundaryAlarm() {
+            alarmScheduler.cancel();
+        }
+
+        @Override
+        public void acquireWakeLock(long timeoutMillis) {
+            boundaryWakeLock.acquire(timeoutMillis);
+        }
+
+        @Override
+        public void releaseWakeLock() {
+            if (boundaryWakeLock.isHeld()) {
+                boundaryWakeLock.release();
+            }
+        }
+
+        @Override
+        public boolean isWakeLockHeld() {
+            return boundaryWakeLock.isHeld();
+        }
+
+        @Override
+        public boolean isVisible() {
+            return governor.isAnyLive();
+        }
+
+        @Override
+        public void onPhaseEnd(long deadlineMillis) {
+            playAlarm(deadlineMillis);
+        }
+
+        @Override
+        public void onStateChanged(boolean periodic) {
+            if (!periodic || governor.isLive(RefreshGovernor.Sink.NOTIFICATION)) {
+                updateNotification();
+            }
+            publishState();
+        }
+
+        @Override
+        public void onFinished() {
+            publishState();
+            // A command received after the last one handled keeps the service alive
+            stopSelf(handledStartId);
+        }
+
+        @Override
+        public void onJournalFailed(IOException e) {
+            Log.w(TAG, "Failed to write session journal", e);
+        }
+    };
 
     @Override
     public void onCreate() {
         super.onCreate();
-        handler = new Handler(Looper.getMainLooper());
-        runnable = new Runnable() {
-            @Override
-            public void run() {
-                if (secondsLeft > 0) {
-                    secondsLeft--;
-                    updateNotification();
-                    handler.postDelayed(this, 1000);
-                } else {
-                    // Timer finished, stop the service
-                    stopSelf();
-                }
+        // Ticks, notifications and journal writes run on the timer thread, history writes on their own
+        handler = TimerThread.getHandler();
+        createNotificationChannel();
+        notificationRenderer = new NotificationRenderer(this, CHANNEL_ID, NOTIFICATION_ID, SystemClock::elapsedRealtime);
+        alarmScheduler = new PhaseAlarmScheduler(this);
+        settings = SettingsStorePlugin.getStore(this);
+        settings.addListener(settingsListener);
+        runner = new SessionRunner(SystemClock::elapsedRealtime,
+                new PomodoroSession.Config(25 * 60, 5 * 60, 15 * 60, 0, true), openJournal(this), scheduler, host);
+        session = runner.getSession();
+        countdown = session.getCountdown();
+        // Home-screen widgets get the transitions only; their chronometer counts the seconds
+        WidgetUpdater.getInstance().attach(this);
+        try {
+            history = HistoryPlugin.openStore(this);
+            session.setPhaseListener(this::recordHistory);
+        } catch (IOException e) {
+            Log.w(TAG, "Session history unavailable", e);
+        }
+
+        PowerManager powerManager = (PowerManager) getSystemService(Context.POWER_SERVICE);
+        boundaryWakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "Prodomo:phaseBoundary");
+        boundaryWakeLock.setReferenceCounted(false);
+        ScreenMonitor.start(this);
+        governor.setListener(RefreshGovernor.Sink.NOTIFICATION, notificationListener);
+        handler.post(() -> {
+            // Created on the timer thread so its load callbacks arrive where play() is called
+            alarmPlayer = new AlarmPlayer(this);
+            restoreFromJournal();
+        });
+    }
+
+    /**
+     * Starts the service if the journal holds an unfinished session, e.g. from the activity's
+     * onCreate after the process was killed, so the timer is back before the WebView loads.
+     * Returns the restored entry, or null when there was nothing to restore.
+     */
+    public static SessionJournal.Entry restoreIfActive(Context context) {
+        SessionJournal.Entry entry;
+        try {
+            entry = openJournal(context).read();
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Failed to read session journal", e);
+            return null;
+        }
+        if (entry == null || !entry.active) {
+            return null;
+        }
+        Intent intent = new Intent(context, PomodoroForegroundService.class);
+        intent.setAction(ACTION_RESTORE);
+        ContextCompat.startForegroundService(context, intent);
+        return entry;
+    }
+
+    private static SessionJournal openJournal(Context context) {
+        return new SessionJournal(new File(context.getNoBackupFilesDir(), JOURNAL_FILE),
+                SystemClock::elapsedRealtime, System::currentTimeMillis);
+    }
+
+    private void restoreFromJournal() {
+        try {
+            SessionJournal.Entry entry = runner.restore();
+            if (entry != null) {
+                notificationRenderer.setSkippable(entry.cycling);
+                // The journal holds timing only; the alarm sound comes from the settings
+                alarmPlayer.prepare(settings.get().getString(SettingsStore.SOUND_PATH), settings.get().isSoundUrl());
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Failed to restore session journal", e);
+        }
+    }
+
+    /** Durations and sound edited mid-session apply from the next phase, without a bridge hop. */
+    private void applySettings(SettingsStore.Snapshot snapshot) {
+        if (runner.setConfig(snapshot.sessionConfig())) {
+            alarmPlayer.prepare(snapshot.getString(SettingsStore.SOUND_PATH), snapshot.isSoundUrl());
+        }
+    }
+
+    private void recordHistory(SessionPhase phase, boolean completed, int plannedSeconds, int actualSeconds, long endTime) {
+        long endMillis = System.currentTimeMillis() - (SystemClock.elapsedRealtime() - endTime);
+        String phaseTag = tag;
+        // Off the timer thread: the store's lock may be held for a whole import
+        historyWriter.execute(() -> {
+            try {
+                history.append(endMillis, phase, completed, plannedSeconds, actualSeconds, phaseTag);
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Failed to record session history", e);
             }
-        };
+        });
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
-        if (intent != null) {
-            String action = intent.getAction();
-            if (ACTION_UPDATE.equals(action)) {
-                // Update command
-                currentTitle = intent.getStringExtra("title");
-                currentText = intent.getStringExtra("text");
-                secondsLeft = intent.getIntExtra("secondsLeft", secondsLeft);
-                updateNotification();
+        // Synchronously, so a timer thread busy with the journal or history cannot make it late;
+        // the session notification replaces the placeholder once the command has run
+        if (!foreground) {
+            startForeground(NOTIFICATION_ID, notificationRenderer.getPlaceholder());
+            foreground = true;
+        }
+        handler.post(() -> handleCommand(intent, startId));
+        return START_STICKY;
+    }
+
+    private void handleCommand(Intent intent, int startId) {
+        handledStartId = startId;
+        // A sticky restart after a process kill redelivers no intent; onCreate already restored the journal
+        String action = intent != null ? intent.getAction() : ACTION_RESTORE;
+        if (ACTION_UPDATE.equals(action)) {
+            // Title/text change; the countdown itself is native and needs no per-second push
+            readLabels(intent);
+            if (intent.hasExtra(EXTRA_SECONDS_LEFT)) {
+                runner.setSecondsLeft(intent.getIntExtra(EXTRA_SECONDS_LEFT, 0));
+            }
+        } else if (ACTION_PAUSE.equals(action)) {
+            runner.pause();
+        } else if (ACTION_RESUME.equals(action)) {
+            runner.resume();
+        } else if (ACTION_RESET.equals(action)) {
+            runner.reset();
+        } else if (ACTION_SKIP.equals(action)) {
+            runner.skip();
+        } else if (ACTION_TOGGLE.equals(action)) {
+            // From the tile, possibly into a fresh service
+            if (!runner.isActive()) {
+                startFromSettings();
+            } else if (countdown.isRunning()) {
+                runner.pause();
             } else {
-                // Start command
-                currentTitle = intent.getStringExtra("title");
-                currentText = intent.getStringExtra("text");
-                secondsLeft = intent.getIntExtra("secondsLeft", 0);
-                
-                createNotificationChannel();
-                Notification notification = buildNotification();
-                startForeground(NOTIFICATION_ID, notification);
-
-                // Start the internal timer logic
-                handler.removeCallbacks(runnable);
-                if (secondsLeft > 0) {
-                    handler.post(runnable);
-                }
+                runner.resume();
+            }
+        } else if (PhaseAlarmReceiver.ACTION_PHASE_END.equals(action) || ACTION_RESTORE.equals(action)) {
+            // Started through startForegroundService by the alarm receiver or the activity
+            if (runner.isActive()) {
+                runner.onWakeup();
+            }
+        } else {
+            // Start command
+            readLabels(intent);
+            notificationRenderer.setCoarse(intent.getBooleanExtra(EXTRA_COARSE_NOTIFICATION, false));
+            try {
+                readSession(intent);
+            } catch (IllegalArgumentException e) {
+                // The plugin validates these extras; anything else sending them must not crash the process
+                Log.e(TAG, "Ignoring invalid start command", e);
             }
         }
-        return START_STICKY;
+        if (runner.isActive()) {
+            notificationRenderer.repost(currentTitle, currentText, countdown);
+        } else {
+            // Only if no later command is queued behind this one
+            stopSelf(startId);
+        }
+    }
+
+    /** A work phase with the durations and sound JS last saved, for starts that bypass the WebView. */
+    private void startFromSettings() {
+        SettingsStore.Snapshot snapshot = settings.get();
+        PomodoroSession.Config config = snapshot.sessionConfig();
+        notificationRenderer.setSkippable(true);
+        alarmPlayer.prepare(snapshot.getString(SettingsStore.SOUND_PATH), snapshot.isSoundUrl());
+        tag = null;
+        runner.start(config, SessionPhase.WORK, config.workSeconds * 1000L);
+    }
+
+    private void readLabels(Intent intent) {
+        String title = intent.getStringExtra(EXTRA_TITLE);
+        String text = intent.getStringExtra(EXTRA_TEXT);
+        if (title != null) {
+            currentTitle = title;
+        }
+        if (text != null) {
+            currentText = text;
+        }
+    }
+
+    private void readSession(Intent intent) {
+        int workSeconds = intent.getIntExtra(EXTRA_WORK_SECONDS, 0);
+        int breakSeconds = intent.getIntExtra(EXTRA_BREAK_SECONDS, 0);
+        boolean cycling = workSeconds > 0 && breakSeconds > 0;
+        notificationRenderer.setSkippable(cycling);
+        PomodoroSession.Config config = null;
+        if (cycling) {
+            config = new PomodoroSession.Config(workSeconds, breakSeconds,
+                    intent.getIntExtra(EXTRA_LONG_BREAK_SECONDS, breakSeconds),
+                    intent.getIntExtra(EXTRA_CYCLES_BEFORE_LONG_BREAK, 0),
+                    intent.getBooleanExtra(EXTRA_AUTO_ADVANCE, true));
+        }
+        String phaseName = intent.getStringExtra(EXTRA_PHASE);
+        SessionPhase phase = phaseName != null ? SessionPhase.fromJsName(phaseName) : SessionPhase.WORK;
+        // Decoded now, long before the boundary, so playing it there costs nothing
+        alarmPlayer.prepare(intent.getStringExtra(EXTRA_SOUND_PATH), intent.getBooleanExtra(EXTRA_SOUND_IS_URL, false));
+        tag = intent.getStringExtra(EXTRA_TAG);
+        runner.start(config, phase, intent.getIntExtra(EXTRA_SECONDS_LEFT, 0) * 1000L);
+    }
+
+    private void playAlarm(long deadline) {
+        if (!alarmPlayer.hasSound()) {
+            return;
+        }
+        boolean played = alarmPlayer.play();
+        long latency = alarmLatency.record(deadline, SystemClock.elapsedRealtime(), played);
+        if (!played || latency > AlarmLatencyRecorder.BUDGET_MILLIS) {
+            Log.w(TAG, "Alarm " + (played ? "late by " + latency + " ms" : "not ready"));
+        }
+    }
+
+    /** The overlay and TimerPlugin listen on the bus; no Intent is built per tick. */
+    private void publishState() {
+        TimerStateBus.getInstance().publish(session.snapshot());
     }
 
     private void createNotificationChannel() {
@@ -88,31 +401,23 @@ public class PomodoroForegroundService extends Service {
         }
     }
 
-    private Notification buildNotification() {
-        Intent notificationIntent = new Intent(this, MainActivity.class);
-        PendingIntent pendingIntent = PendingIntent.getActivity(this,
-                0, notificationIntent, PendingIntent.FLAG_IMMUTABLE);
-
-        String timeString = String.format("%02d:%02d", secondsLeft / 60, secondsLeft % 60);
-
-        return new NotificationCompat.Builder(this, CHANNEL_ID)
-                .setContentTitle(currentTitle)
-                .setContentText(currentText + " - " + timeString)
-                .setSmallIcon(R.drawable.ic_launcher_foreground) // Use a default icon
-                .setContentIntent(pendingIntent)
-                .setOngoing(true)
-                .build();
-    }
-
     private void updateNotification() {
-        NotificationManager manager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
-        manager.notify(NOTIFICATION_ID, buildNotification());
+        notificationRenderer.render(currentTitle, currentText, countdown);
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
-        handler.removeCallbacks(runnable);
+        settings.removeListener(settingsListener);
+        governor.removeListener(RefreshGovernor.Sink.NOTIFICATION, notificationListener);
+        WidgetUpdater.getInstance().detach();
+        // Queued behind any command still pending on the timer thread
+        handler.post(() -> {
+            runner.release();
+            alarmPlayer.release();
+            // Records already queued are still written
+            historyWriter.shutdown();
+        });
         Log.d(TAG, "Foreground Service Destroyed");
     }
 
@@ -0,0 +1,73 @@
+package AntharLin.Prodomo;
+
+import android.app.PendingIntent;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.service.quicksettings.Tile;
+import android.service.quicksettings.TileService;
+import android.util.Log;
+import androidx.annotation.RequiresApi;
+import androidx.core.content.ContextCompat;
+
+/**
+ * Quick Settings tile that starts, pauses and resumes the session through
+ * {@link PomodoroForegroundService#ACTION_TOGGLE}, without starting the activity or WebView.
+ * While the panel is open the tile follows the {@link TimerStateBus}.
+ */
+@RequiresApi(api = Build.VERSION_CODES.N)
+public class PomodoroTileService extends TileService {
+
+    private static final String TAG = "PomodoroTile";
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final TimerStateBus.Listener stateListener = this::render;
+
+    @Override
+    public void onStartListening() {
+        super.onStartListening();
+        TimerStateBus.getInstance().subscribe(stateListener, mainHandler::post);
+    }
+
+    @Override
+    public void onStopListening() {
+        super.onStopListening();
+        TimerStateBus.getInstance().unsubscribe(stateListener);
+    }
+
+    @Override
+    public void onClick() {
+        super.onClick();
+        Intent intent = new Intent(this, PomodoroForegroundService.class)
+                .setAction(PomodoroForegroundService.ACTION_TOGGLE);
+        try {
+            ContextCompat.startForegroundService(this, intent);
+        } catch (IllegalStateException e) {
+            // Foreground starts from the background can be refused on Android 12+; open the app instead
+            Log.w(TAG, "Cannot start the session service from the tile", e);
+            openApp();
+        }
+    }
+
+    private void openApp() {
+        Intent intent = new Intent(this, MainActivity.class).addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
+            startActivityAndCollapse(PendingIntent.getActivity(this, 0, intent, PendingIntent.FLAG_IMMUTABLE));
+        } else {
+            startActivityAndCollapse(intent);
+        }
+    }
+
+    private void render(TimerSnapshot snapshot) {
+        Tile tile = getQsTile();
+        if (tile == null) {
+            return;
+        }
+        tile.setState(snapshot.running ? Tile.STATE_ACTIVE : Tile.STATE_INACTIVE);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            tile.setSubtitle(snapshot.running ? TimeFormatter.format(snapshot.secondsLeft) : null);
+        }
+        tile.updateTile();
+    }
+}
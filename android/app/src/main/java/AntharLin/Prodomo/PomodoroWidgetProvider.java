@@ -0,0 +1,66 @@
+package AntharLin.Prodomo;
+
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProvider;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.SystemClock;
+import android.widget.RemoteViews;
+
+/**
+ * Home-screen widget with the phase and a {@code Chronometer} in countdown mode, so the launcher
+ * draws every second itself. The app only pushes new RemoteViews through {@link WidgetUpdater}
+ * when the chronometer's base or state changes.
+ */
+public class PomodoroWidgetProvider extends AppWidgetProvider {
+
+    @Override
+    public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        // A widget was added or the launcher restarted; nothing ticks here
+        appWidgetManager.updateAppWidget(appWidgetIds, render(context, TimerStateBus.getInstance().getLatest()));
+    }
+
+    static ComponentName component(Context context) {
+        return new ComponentName(context, PomodoroWidgetProvider.class);
+    }
+
+    static RemoteViews render(Context context, TimerSnapshot snapshot) {
+        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_timer);
+        long secondsLeft = snapshot != TimerSnapshot.IDLE ? snapshot.secondsLeft
+                : SettingsStorePlugin.getStore(context).get().getInt(SettingsStore.WORK_MINUTES) * 60L;
+        // Where the chronometer reads 0. While paused it is frozen at the remaining time; the
+        // half second keeps its rounded-down reading on the right second when the launcher applies it
+        long end = snapshot.running ? snapshot.deadline : SystemClock.elapsedRealtime() + secondsLeft * 1000 + 500;
+        long base = end;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            views.setChronometerCountDown(R.id.widget_chronometer, true);
+        } else {
+            // No countdown mode before N: count the time spent in the phase instead
+            base = end - snapshot.phaseSeconds * 1000L;
+        }
+        views.setChronometer(R.id.widget_chronometer, base, null, snapshot.running);
+
+        String phase = context.getString(phaseLabel(snapshot.phase));
+        boolean paused = !snapshot.running && snapshot.secondsLeft > 0 && snapshot.secondsLeft < snapshot.phaseSeconds;
+        views.setTextViewText(R.id.widget_phase, paused ? context.getString(R.string.widget_paused, phase) : phase);
+
+        Intent intent = new Intent(context, MainActivity.class);
+        views.setOnClickPendingIntent(R.id.widget_root,
+                PendingIntent.getActivity(context, 0, intent, PendingIntent.FLAG_IMMUTABLE));
+        return views;
+    }
+
+    private static int phaseLabel(SessionPhase phase) {
+        switch (phase) {
+            case SHORT_BREAK:
+                return R.string.phase_short_break;
+            case LONG_BREAK:
+                return R.string.phase_long_break;
+            default:
+                return R.string.phase_work;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package AntharLin.Prodomo;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.PowerManager;
+
+/**
+ * Feeds ACTION_SCREEN_ON/OFF into the {@link RefreshGovernor}, from one receiver per process
+ * running on the {@link TimerThread}, so every sink stops redrawing while the display is off.
+ */
+final class ScreenMonitor {
+
+    private static boolean started;
+
+    private ScreenMonitor() {
+    }
+
+    static synchronized void start(Context context) {
+        if (started) {
+            return;
+        }
+        started = true;
+        Context app = context.getApplicationContext();
+        PowerManager powerManager = (PowerManager) app.getSystemService(Context.POWER_SERVICE);
+        RefreshGovernor.getInstance().setScreenOn(powerManager.isInteractive());
+        BroadcastReceiver receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                RefreshGovernor.getInstance().setScreenOn(Intent.ACTION_SCREEN_ON.equals(intent.getAction()));
+            }
+        };
+        IntentFilter filter = new IntentFilter(Intent.ACTION_SCREEN_ON);
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
+        // Registered on the application context for the life of the process
+        app.registerReceiver(receiver, filter, null, TimerThread.getHandler());
+    }
+}
@@ -0,0 +1,200 @@
+package AntharLin.Prodomo;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-memory settings with write-behind persistence. Reads never touch storage after the
+ * first load; updates are applied to memory at once, pushed to native listeners, and the
+ * changed keys are coalesced until writes have been quiet for {@link #DEBOUNCE_MILLIS},
+ * then persisted in one {@link Storage#write} (a single SharedPreferences apply()).
+ */
+public class SettingsStore {
+
+    public static final String WORK_MINUTES = "workMinutes";
+    public static final String BREAK_MINUTES = "breakMinutes";
+    public static final String LONG_BREAK_MINUTES = "longBreakMinutes";
+    public static final String CYCLES_BEFORE_LONG_BREAK = "cyclesBeforeLongBreak";
+    public static final String AUTO_ADVANCE = "autoAdvance";
+    public static final String SOUND_ID = "soundId";
+    /** Web asset path or file URI of the alarm; empty for no sound. */
+    public static final String SOUND_PATH = "soundPath";
+    public static final String CUSTOM_SOUND_NAME = "customSoundName";
+    public static final String SOUND_ID_CUSTOM = "custom";
+
+    static final long DEBOUNCE_MILLIS = 400;
+
+    public interface Storage {
+        /** Everything persisted so far; keys that were never written may be missing. */
+        Map<String, ?> load();
+
+        void write(Map<String, Object> changes);
+    }
+
+    public interface Scheduler {
+        void schedule(Runnable task, long delayMillis);
+
+        void cancel(Runnable task);
+    }
+
+    public interface Listener {
+        void onSettingsChanged(Snapshot settings);
+    }
+
+    private static final Map<String, Object> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put(WORK_MINUTES, 40);
+        DEFAULTS.put(BREAK_MINUTES, 10);
+        DEFAULTS.put(LONG_BREAK_MINUTES, 15);
+        DEFAULTS.put(CYCLES_BEFORE_LONG_BREAK, 0);
+        DEFAULTS.put(AUTO_ADVANCE, true);
+        DEFAULTS.put(SOUND_ID, "sound_mp3");
+        DEFAULTS.put(SOUND_PATH, "assets/sounds/Sound.mp3");
+        DEFAULTS.put(CUSTOM_SOUND_NAME, "");
+    }
+
+    /** Immutable view of every setting. */
+    public static final class Snapshot {
+        private final Map<String, Object> values;
+
+        Snapshot(Map<String, Object> values) {
+            this.values = Collections.unmodifiableMap(values);
+        }
+
+        public int getInt(String key) {
+            return (Integer) values.get(key);
+        }
+
+        public boolean getBoolean(String key) {
+            return (Boolean) values.get(key);
+        }
+
+        public String getString(String key) {
+            return (String) values.get(key);
+        }
+
+        public Map<String, Object> asMap() {
+            return values;
+        }
+
+        public boolean isSoundUrl() {
+            return SOUND_ID_CUSTOM.equals(getString(SOUND_ID));
+        }
+
+        public PomodoroSession.Config sessionConfig() {
+            return new PomodoroSession.Config(getInt(WORK_MINUTES) * 60, getInt(BREAK_MINUTES) * 60,
+                    getInt(LONG_BREAK_MINUTES) * 60, getInt(CYCLES_BEFORE_LONG_BREAK), getBoolean(AUTO_ADVANCE));
+        }
+    }
+
+    private final Storage storage;
+    private final Scheduler scheduler;
+    private final Map<String, Object> pending = new HashMap<>();
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Runnable flushTask = this::flush;
+    private volatile Snapshot current;
+
+    public SettingsStore(Storage storage, Scheduler scheduler) {
+        this.storage = storage;
+        this.scheduler = scheduler;
+        Map<String, Object> values = new LinkedHashMap<>(DEFAULTS);
+        for (Map.Entry<String, ?> entry : storage.load().entrySet()) {
+            if (DEFAULTS.containsKey(entry.getKey())) {
+                try {
+                    values.put(entry.getKey(), coerce(entry.getKey(), entry.getValue()));
+                } catch (IllegalArgumentException e) {
+                    // Keep the default for a value written by an older, incompatible version
+                }
+            }
+        }
+        try {
+            new Snapshot(values).sessionConfig();
+        } catch (IllegalArgumentException e) {
+            // e.g. a 0-minute phase saved before durations were validated
+            for (String key : new String[] {WORK_MINUTES, BREAK_MINUTES, LONG_BREAK_MINUTES, CYCLES_BEFORE_LONG_BREAK}) {
+                values.put(key, DEFAULTS.get(key));
+            }
+        }
+        current = new Snapshot(values);
+    }
+
+    public Snapshot get() {
+        return current;
+    }
+
+    /**
+     * Applies {@code changes} atomically: either every key is valid and applied, or an
+     * IllegalArgumentException is thrown and nothing changes. Returns false if no value differed.
+     */
+    public boolean update(Map<String, ?> changes) {
+        Snapshot updated;
+        synchronized (this) {
+            Map<String, Object> values = new LinkedHashMap<>(current.values);
+            Map<String, Object> changed = new HashMap<>();
+            for (Map.Entry<String, ?> entry : changes.entrySet()) {
+                Object value = coerce(entry.getKey(), entry.getValue());
+                if (!value.equals(values.put(entry.getKey(), value))) {
+                    changed.put(entry.getKey(), value);
+                }
+            }
+            if (changed.isEmpty()) {
+                return false;
+            }
+            // Validates the combination before anything is committed
+            new Snapshot(values).sessionConfig();
+            updated = new Snapshot(values);
+            current = updated;
+            pending.putAll(changed);
+            scheduler.cancel(flushTask);
+            scheduler.schedule(flushTask, DEBOUNCE_MILLIS);
+        }
+        for (Listener listener : listeners) {
+            listener.onSettingsChanged(updated);
+        }
+        return true;
+    }
+
+    /** Persists pending changes now, e.g. when the app goes to the background. */
+    public void flush() {
+        Map<String, Object> batch;
+        synchronized (this) {
+            scheduler.cancel(flushTask);
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new HashMap<>(pending);
+            pending.clear();
+        }
+        storage.write(batch);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private static Object coerce(String key, Object value) {
+        Object defaultValue = DEFAULTS.get(key);
+        if (defaultValue == null) {
+            throw new IllegalArgumentException("Unknown setting: " + key);
+        }
+        if (defaultValue instanceof Integer && value instanceof Number) {
+            double number = ((Number) value).doubleValue();
+            if (number == Math.rint(number) && number >= 0 && number <= Integer.MAX_VALUE) {
+                return (int) number;
+            }
+        } else if (defaultValue instanceof Boolean && value instanceof Boolean) {
+            return value;
+        } else if (defaultValue instanceof String && value instanceof String) {
+            return value;
+        }
+        throw new IllegalArgumentException("Invalid value for " + key + ": " + value);
+    }
+}
@@ -0,0 +1,171 @@
+package AntharLin.Prodomo;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Settings for JS and for the native services, backed by one {@link SettingsStore} per process.
+ * JS gets everything in one getAll() at startup; set() calls are debounced natively and land
+ * in SharedPreferences as a single apply().
+ */
+@CapacitorPlugin(name = "SettingsStore")
+public class SettingsStorePlugin extends Plugin {
+
+    private static final String TAG = "SettingsStorePlugin";
+    private static final String PREFS_NAME = "pomodoro_settings";
+    // Written by @capacitor/preferences before this store existed; read once to migrate
+    private static final String LEGACY_PREFS_NAME = "CapacitorStorage";
+    private static final String LEGACY_WORK_MINUTES = "pomodoro_work_minutes";
+    private static final String LEGACY_BREAK_MINUTES = "pomodoro_break_minutes";
+    private static final String LEGACY_SOUND_OPTION = "pomodoro_sound_option";
+    private static final String LEGACY_CUSTOM_SOUND = "pomodoro_custom_sound_file_uri";
+
+    private static SettingsStore store;
+
+    public static synchronized SettingsStore getStore(Context context) {
+        if (store == null) {
+            Context app = context.getApplicationContext();
+            Handler handler = new Handler(Looper.getMainLooper());
+            store = new SettingsStore(new PreferencesStorage(app), new SettingsStore.Scheduler() {
+                @Override
+                public void schedule(Runnable task, long delayMillis) {
+                    handler.postDelayed(task, delayMillis);
+                }
+
+                @Override
+                public void cancel(Runnable task) {
+                    handler.removeCallbacks(task);
+                }
+            });
+        }
+        return store;
+    }
+
+    /**
+     * 一次取得所有設定，啟動時只需一次呼叫
+     */
+    @PluginMethod
+    public void getAll(PluginCall call) {
+        JSObject ret = new JSObject();
+        for (Map.Entry<String, Object> entry : getStore(getContext()).get().asMap().entrySet()) {
+            ret.put(entry.getKey(), entry.getValue());
+        }
+        call.resolve(ret);
+    }
+
+    /**
+     * 批次更新設定；寫入會在原生端合併並延遲，最後以一次 apply() 儲存
+     */
+    @PluginMethod
+    public void set(PluginCall call) {
+        JSObject data = call.getData();
+        Map<String, Object> changes = new HashMap<>();
+        Iterator<String> keys = data.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            changes.put(key, data.opt(key));
+        }
+        try {
+            getStore(getContext()).update(changes);
+        } catch (IllegalArgumentException e) {
+            call.reject(e.getMessage());
+            return;
+        }
+        call.resolve();
+    }
+
+    /**
+     * 立即寫入尚未儲存的設定
+     */
+    @PluginMethod
+    public void flush(PluginCall call) {
+        getStore(getContext()).flush();
+        call.resolve();
+    }
+
+    @Override
+    protected void handleOnPause() {
+        super.handleOnPause();
+        // The process may be killed in the background; don't leave writes waiting on the debounce
+        getStore(getContext()).flush();
+    }
+
+    private static final class PreferencesStorage implements SettingsStore.Storage {
+        private final Context context;
+        private final SharedPreferences prefs;
+
+        PreferencesStorage(Context context) {
+            this.context = context;
+            this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        }
+
+        @Override
+        public Map<String, ?> load() {
+            Map<String, ?> values = prefs.getAll();
+            return values.isEmpty() ? loadLegacy() : values;
+        }
+
+        @Override
+        public void write(Map<String, Object> changes) {
+            SharedPreferences.Editor editor = prefs.edit();
+            for (Map.Entry<String, Object> entry : changes.entrySet()) {
+                Object value = entry.getValue();
+                if (value instanceof Integer) {
+                    editor.putInt(entry.getKey(), (Integer) value);
+                } else if (value instanceof Boolean) {
+                    editor.putBoolean(entry.getKey(), (Boolean) value);
+                } else {
+                    editor.putString(entry.getKey(), (String) value);
+                }
+            }
+            editor.apply();
+        }
+
+        private Map<String, Object> loadLegacy() {
+            SharedPreferences legacy = context.getSharedPreferences(LEGACY_PREFS_NAME, Context.MODE_PRIVATE);
+            Map<String, Object> values = new HashMap<>();
+            try {
+                String work = legacy.getString(LEGACY_WORK_MINUTES, null);
+                if (work != null) {
+                    values.put(SettingsStore.WORK_MINUTES, Integer.parseInt(work));
+                }
+                String breakMinutes = legacy.getString(LEGACY_BREAK_MINUTES, null);
+                if (breakMinutes != null) {
+                    values.put(SettingsStore.BREAK_MINUTES, Integer.parseInt(breakMinutes));
+                }
+                String soundId = legacy.getString(LEGACY_SOUND_OPTION, null);
+                if ("none".equals(soundId)) {
+                    values.put(SettingsStore.SOUND_ID, soundId);
+                    values.put(SettingsStore.SOUND_PATH, "");
+                } else if (SettingsStore.SOUND_ID_CUSTOM.equals(soundId)) {
+                    String custom = legacy.getString(LEGACY_CUSTOM_SOUND, null);
+                    if (custom != null) {
+                        JSONObject sound = new JSONObject(custom);
+                        values.put(SettingsStore.SOUND_ID, soundId);
+                        values.put(SettingsStore.SOUND_PATH, sound.getString("uri"));
+                        values.put(SettingsStore.CUSTOM_SOUND_NAME, sound.optString("name"));
+                    }
+                }
+            } catch (NumberFormatException | JSONException e) {
+                Log.w(TAG, "Ignoring unreadable legacy preferences", e);
+            }
+            if (!values.isEmpty()) {
+                write(values);
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package AntharLin.Prodomo;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Gravity;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.widget.FrameLayout;
+
+/**
+ * Native stand-in for the timer screen while the WebView loads. Its first frame already shows
+ * the right remaining time, taken from native state, and it follows the {@link TimerStateBus}
+ * until {@link #dismiss()} once the page is up. Main thread only.
+ */
+final class StartupSplash {
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final FrameLayout root;
+    private final OverlayTimerView digits;
+    private final TimerStateBus.Listener stateListener = this::onState;
+    private boolean shown;
+
+    /**
+     * @param initial state to show first: the live session, the one just restored from the
+     *                journal, or {@link TimerSnapshot#IDLE} for none
+     * @param idleSeconds what the timer screen shows without a session, i.e. a full work phase
+     */
+    StartupSplash(Activity activity, TimerSnapshot initial, int idleSeconds) {
+        root = new FrameLayout(activity);
+        root.setBackgroundResource(R.drawable.splash);
+        // Swallow touches so nothing reaches the half-loaded page underneath
+        root.setClickable(true);
+        digits = new OverlayTimerView(activity);
+        digits.setSeconds(initial != TimerSnapshot.IDLE ? initial.secondsLeft : idleSeconds);
+        root.addView(digits, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT, Gravity.CENTER));
+    }
+
+    void show(Activity activity) {
+        if (shown) {
+            return;
+        }
+        shown = true;
+        root.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                root.getViewTreeObserver().removeOnPreDrawListener(this);
+                StartupTrace.getInstance().mark(StartupTrace.Stage.NATIVE_DIGITS, SystemClock.elapsedRealtimeNanos());
+                return true;
+            }
+        });
+        activity.addContentView(root, new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.MATCH_PARENT));
+        TimerStateBus.getInstance().subscribe(stateListener, mainHandler::post);
+    }
+
+    void dismiss() {
+        if (!shown) {
+            return;
+        }
+        shown = false;
+        TimerStateBus.getInstance().unsubscribe(stateListener);
+        ViewGroup parent = (ViewGroup) root.getParent();
+        if (parent != null) {
+            parent.removeView(root);
+        }
+    }
+
+    private void onState(TimerSnapshot snapshot) {
+        // IDLE only means no service has published yet; keep the digits read from the journal
+        if (shown && snapshot != TimerSnapshot.IDLE) {
+            digits.setSeconds(snapshot.secondsLeft);
+        }
+    }
+}
@@ -1,46 +1,120 @@
 package AntharLin.Prodomo;
 
-import android.content.BroadcastReceiver;
-import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
-import androidx.localbroadcastmanager.content.LocalBroadcastManager;
+import android.os.Build;
+import android.os.SystemClock;
 
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
 
+/**
+ * Command facade over {@link PomodoroForegroundService}; the countdown itself lives in the service.
+ * Ticks reach JS through a {@link TickGate}, at the rate JS subscribed with, and only on
+ * phase changes while the {@link RefreshGovernor} has the bridge idle (background or screen off).
+ *
+ * <p>Besides the session, any number of named timers (startTimer/pauseTimer/...) run in
+ * {@link NamedTimers}, owned by the {@link TimerThread} and driven by a single delayed post at
+ * the next expiry, however many are running. Nothing here starts a thread or a service until
+ * JS first calls into it, so opening the app only to change settings stays cheap.
+ */
 @CapacitorPlugin(name = "Timer")
 public class TimerPlugin extends Plugin {
 
-    private BroadcastReceiver timerUpdateReceiver;
+    private final TickGate tickGate = new TickGate();
+    // Serialized synchronously by notifyListeners, so one instance is reused for every tick
+    private final JSObject tickPayload = new JSObject();
+    private final RefreshGovernor governor = RefreshGovernor.getInstance();
+    // In the foreground with the screen on, JS gets its chosen rate; otherwise phase changes only
+    private final RefreshGovernor.Listener bridgeListener = live -> {
+        tickGate.setBackground(!live);
+        if (live) {
+            // One snapshot brings JS back in sync after the ticks it missed
+            emitTick(TimerStateBus.getInstance().getLatest(), true);
+        }
+    };
+    private final TimerStateBus.Listener stateListener = snapshot -> {
+        if (tickGate.offer(snapshot.secondsLeft, snapshot.running)) {
+            emitTick(snapshot, false);
+        }
+    };
+
+    // Timers due within one tick expire in the same wakeup
+    private static final long NAMED_TIMER_TICK_MILLIS = 50;
+
+    private final NamedTimers namedTimers = new NamedTimers(SystemClock::elapsedRealtime, NAMED_TIMER_TICK_MILLIS);
+    private final Runnable namedTimerWakeup = this::onNamedTimerWakeup;
+    private long namedTimerDueNanos;
 
     @Override
     public void load() {
         super.load();
-        // The service is now started on demand, but we can still start it here if needed
-        // to ensure it's ready.
-        Intent serviceIntent = new Intent(getContext(), TimerService.class);
-        getContext().startService(serviceIntent);
-
-        timerUpdateReceiver = new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context context, Intent intent) {
-                if (TimerService.ACTION_TIMER_UPDATE.equals(intent.getAction())) {
-                    int secondsLeft = intent.getIntExtra(TimerService.EXTRA_SECONDS_LEFT, 0);
-                    JSObject ret = new JSObject();
-                    ret.put("secondsLeft", secondsLeft);
-                    notifyListeners("timerTick", ret);
-                }
-            }
-        };
-        LocalBroadcastManager.getInstance(getContext()).registerReceiver(timerUpdateReceiver, new IntentFilter(TimerService.ACTION_TIMER_UPDATE));
+        // The service is started on demand by start(); here we only listen for its state.
+        TimerStateBus.getInstance().subscribe(stateListener);
+        ScreenMonitor.start(getContext());
+        governor.setListener(RefreshGovernor.Sink.BRIDGE, bridgeListener);
+        tickGate.setBackground(!governor.isLive(RefreshGovernor.Sink.BRIDGE));
+        namedTimers.setListener(timer -> {
+            JSObject event = new JSObject();
+            event.put("id", timer.getId());
+            event.put("label", timer.getLabel());
+            notifyListeners("namedTimerExpired", event);
+        });
+    }
+
+    private synchronized void emitTick(TimerSnapshot state, boolean snapshot) {
+        fill(tickPayload, state);
+        tickPayload.put("snapshot", snapshot);
+        long begin = Diagnostics.begin();
+        notifyListeners("timerTick", tickPayload);
+        Diagnostics.end(Diagnostics.BRIDGE_EMIT, begin);
+        governor.countUpdate(RefreshGovernor.Sink.BRIDGE);
+    }
+
+    private static JSObject fill(JSObject target, TimerSnapshot state) {
+        target.put("secondsLeft", state.secondsLeft);
+        target.put("running", state.running);
+        target.put("phase", state.phase.getJsName());
+        target.put("phaseSeconds", state.phaseSeconds);
+        target.put("completedCycles", state.completedCycles);
+        return target;
+    }
+
+    /** Current session state in one call, e.g. for the first render after the WebView loads. */
+    @PluginMethod
+    public void getState(PluginCall call) {
+        StartupTrace.getInstance().mark(StartupTrace.Stage.WEB_DIGITS, SystemClock.elapsedRealtimeNanos());
+        call.resolve(fill(new JSObject(), TimerStateBus.getInstance().getLatest()));
+    }
+
+    @PluginMethod
+    public void subscribe(PluginCall call) {
+        try {
+            tickGate.setRate(TickGate.Rate.fromJsName(call.getString("rate", TickGate.Rate.EVERY_SECOND.getJsName())));
+        } catch (IllegalArgumentException e) {
+            call.reject(e.getMessage());
+            return;
+        }
+        call.resolve();
+    }
+
+    @Override
+    protected void handleOnPause() {
+        super.handleOnPause();
+        governor.setForeground(false);
+    }
+
+    @Override
+    protected void handleOnResume() {
+        super.handleOnResume();
+        governor.setForeground(true);
     }
 
     private void sendCommand(String action) {
-        Intent intent = new Intent(getContext(), TimerService.class);
+        Intent intent = new Intent(getContext(), PomodoroForegroundService.class);
         intent.setAction(action);
         getContext().startService(intent);
     }
@@ -49,31 +123,151 @@ public class TimerPlugin extends Plugin {
     public void start(PluginCall call) {
         Integer seconds = call.getInt("seconds");
         if (seconds != null) {
-            Intent intent = new Intent(getContext(), TimerService.class);
-            intent.setAction("START");
-            intent.putExtra("seconds", seconds.intValue());
-            getContext().startService(intent);
+            Intent intent = new Intent(getContext(), PomodoroForegroundService.class);
+            intent.setAction(PomodoroForegroundService.ACTION_START);
+            intent.putExtra(PomodoroForegroundService.EXTRA_SECONDS_LEFT, seconds.intValue());
+            if (call.hasOption("title")) {
+                intent.putExtra(PomodoroForegroundService.EXTRA_TITLE, call.getString("title"));
+            }
+            if (call.hasOption("text")) {
+                intent.putExtra(PomodoroForegroundService.EXTRA_TEXT, call.getString("text"));
+            }
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                getContext().startForegroundService(intent);
+            } else {
+                getContext().startService(intent);
+            }
         }
         call.resolve();
     }
 
     @PluginMethod
     public void pause(PluginCall call) {
-        sendCommand("PAUSE");
+        sendCommand(PomodoroForegroundService.ACTION_PAUSE);
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void resume(PluginCall call) {
+        sendCommand(PomodoroForegroundService.ACTION_RESUME);
         call.resolve();
     }
 
     @PluginMethod
     public void reset(PluginCall call) {
-        sendCommand("RESET");
+        sendCommand(PomodoroForegroundService.ACTION_RESET);
         call.resolve();
     }
 
+    /**
+     * 啟動具名計時器，同一 id 會取代原本的計時器
+     */
+    @PluginMethod
+    public void startTimer(PluginCall call) {
+        String id = call.getString("id");
+        Integer seconds = call.getInt("seconds");
+        if (id == null || seconds == null || seconds <= 0) {
+            call.reject("id and a positive seconds are required");
+            return;
+        }
+        String label = call.getString("label");
+        TimerThread.getHandler().post(() -> {
+            NamedTimers.Timer timer = namedTimers.start(id, label, seconds * 1000L);
+            rescheduleNamedTimers();
+            call.resolve(toJson(timer));
+        });
+    }
+
+    @PluginMethod
+    public void pauseTimer(PluginCall call) {
+        updateNamedTimer(call, false);
+    }
+
+    @PluginMethod
+    public void resumeTimer(PluginCall call) {
+        updateNamedTimer(call, true);
+    }
+
+    @PluginMethod
+    public void cancelTimer(PluginCall call) {
+        String id = call.getString("id");
+        TimerThread.getHandler().post(() -> {
+            JSObject ret = new JSObject();
+            ret.put("cancelled", id != null && namedTimers.cancel(id));
+            rescheduleNamedTimers();
+            call.resolve(ret);
+        });
+    }
+
+    /**
+     * 所有具名計時器的目前狀態
+     */
+    @PluginMethod
+    public void getTimers(PluginCall call) {
+        TimerThread.getHandler().post(() -> {
+            JSArray list = new JSArray();
+            for (NamedTimers.Timer timer : namedTimers.list()) {
+                list.put(toJson(timer));
+            }
+            JSObject ret = new JSObject();
+            ret.put("timers", list);
+            call.resolve(ret);
+        });
+    }
+
+    private void updateNamedTimer(PluginCall call, boolean resume) {
+        String id = call.getString("id");
+        if (id == null) {
+            call.reject("id is required");
+            return;
+        }
+        TimerThread.getHandler().post(() -> {
+            boolean changed = resume ? namedTimers.resume(id) : namedTimers.pause(id);
+            NamedTimers.Timer timer = namedTimers.get(id);
+            if (!changed && timer == null) {
+                call.reject("No timer " + id);
+                return;
+            }
+            rescheduleNamedTimers();
+            call.resolve(toJson(timer));
+        });
+    }
+
+    private JSObject toJson(NamedTimers.Timer timer) {
+        JSObject json = new JSObject();
+        json.put("id", timer.getId());
+        json.put("label", timer.getLabel());
+        json.put("running", timer.isRunning());
+        json.put("durationMillis", timer.getDurationMillis());
+        json.put("remainingMillis", timer.remainingMillis(SystemClock.elapsedRealtime()));
+        return json;
+    }
+
+    private void onNamedTimerWakeup() {
+        Diagnostics.recordLateness(namedTimerDueNanos, SystemClock.elapsedRealtimeNanos());
+        namedTimers.advance();
+        rescheduleNamedTimers();
+    }
+
+    /** One post for all named timers, at the earliest expiry. */
+    private void rescheduleNamedTimers() {
+        TimerThread.getHandler().removeCallbacks(namedTimerWakeup);
+        namedTimerDueNanos = 0;
+        long next = namedTimers.nextExpiry();
+        if (next != Long.MAX_VALUE) {
+            long delay = Math.max(0, next - SystemClock.elapsedRealtime());
+            if (Diagnostics.isEnabled()) {
+                namedTimerDueNanos = SystemClock.elapsedRealtimeNanos() + delay * 1_000_000L;
+            }
+            TimerThread.getHandler().postDelayed(namedTimerWakeup, delay);
+        }
+    }
+
     @Override
     protected void handleOnDestroy() {
         super.handleOnDestroy();
-        if (timerUpdateReceiver != null) {
-            LocalBroadcastManager.getInstance(getContext()).unregisterReceiver(timerUpdateReceiver);
-        }
+        TimerStateBus.getInstance().unsubscribe(stateListener);
+        governor.removeListener(RefreshGovernor.Sink.BRIDGE, bridgeListener);
+        TimerThread.getHandler().removeCallbacks(namedTimerWakeup);
     }
 }
@@ -0,0 +1,64 @@
+package AntharLin.Prodomo;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+/**
+ * The one thread that owns timer state: the session service's countdown, its notification,
+ * the named timers and the overlay's local countdown all run here, so a janky WebView frame
+ * on the main looper cannot delay a tick. Only the final overlay redraw hops to the main thread.
+ */
+public final class TimerThread {
+
+    private static final String TAG = "TimerThread";
+
+    public interface ViolationListener {
+        void onViolation(String work);
+    }
+
+    private static HandlerThread thread;
+    private static Handler handler;
+
+    private TimerThread() {
+    }
+
+    public static synchronized Looper getLooper() {
+        if (thread == null || !thread.isAlive()) {
+            // Below default so it never competes with rendering, above plain background so ticks stay prompt
+            thread = new HandlerThread("Prodomo-timer",
+                    Process.THREAD_PRIORITY_BACKGROUND + Process.THREAD_PRIORITY_MORE_FAVORABLE);
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+        return thread.getLooper();
+    }
+
+    public static synchronized Handler getHandler() {
+        getLooper();
+        return handler;
+    }
+
+    /**
+     * Reports timer work done on the main looper to {@code listener}, like a StrictMode thread
+     * policy; meant for debug builds and tests. Pass null to stop checking.
+     */
+    public static void detectMainThreadWork(ViolationListener listener) {
+        if (listener == null) {
+            TimerThreadPolicy.setGuard(null);
+            return;
+        }
+        TimerThreadPolicy.setGuard(work -> {
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                listener.onViolation(work);
+            }
+        });
+    }
+
+    /** The penalty used in debug builds: log the offending stack. */
+    static void logViolation(String work) {
+        Log.w(TAG, "Timer work on the main thread: " + work, new Throwable());
+    }
+}
@@ -0,0 +1,64 @@
+package AntharLin.Prodomo;
+
+import android.appwidget.AppWidgetManager;
+import android.content.Context;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes the session to the home-screen widgets when {@link ChronometerGate} lets a snapshot
+ * through, i.e. on starts, pauses, resumes and phase changes but never per tick. Counts its
+ * updateAppWidget() calls, so tests can check exactly that.
+ */
+public final class WidgetUpdater {
+
+    private static final WidgetUpdater INSTANCE = new WidgetUpdater();
+
+    private final ChronometerGate gate = new ChronometerGate();
+    private final TimerStateBus.Listener stateListener = this::onState;
+    private final AtomicInteger updateCount = new AtomicInteger();
+    private Context context;
+
+    private WidgetUpdater() {
+    }
+
+    public static WidgetUpdater getInstance() {
+        return INSTANCE;
+    }
+
+    /** Follows the bus, on the publishing thread, from now on; the session service attaches while it runs. */
+    public synchronized void attach(Context context) {
+        if (this.context != null) {
+            return;
+        }
+        this.context = context.getApplicationContext();
+        gate.invalidate();
+        TimerStateBus.getInstance().subscribe(stateListener);
+    }
+
+    public synchronized void detach() {
+        TimerStateBus.getInstance().unsubscribe(stateListener);
+        context = null;
+    }
+
+    /** updateAppWidget() calls made so far. */
+    public int getUpdateCount() {
+        return updateCount.get();
+    }
+
+    private void onState(TimerSnapshot snapshot) {
+        Context current;
+        synchronized (this) {
+            current = context;
+        }
+        if (current == null || !gate.offer(snapshot)) {
+            return;
+        }
+        AppWidgetManager manager = AppWidgetManager.getInstance(current);
+        int[] ids = manager.getAppWidgetIds(PomodoroWidgetProvider.component(current));
+        if (ids.length == 0) {
+            return;
+        }
+        manager.updateAppWidget(ids, PomodoroWidgetProvider.render(current, snapshot));
+        updateCount.incrementAndGet();
+    }
+}
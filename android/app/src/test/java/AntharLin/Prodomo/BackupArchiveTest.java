@@ -0,0 +1,310 @@
+package AntharLin.Prodomo;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Each test exports from one "device" and imports into a fresh one, both on disk. */
+public class BackupArchiveTest {
+
+    private static final TimeZone TAIPEI = TimeZone.getTimeZone("Asia/Taipei");
+    // 2024-01-01 00:00 in Taipei
+    private static final long MONDAY = 1704038400000L;
+    private static final int HUNDRED_THOUSAND = 100_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HistoryStore history;
+    private SettingsStore settings;
+    private File archive;
+
+    private static class MemoryStorage implements SettingsStore.Storage {
+        final Map<String, Object> saved = new HashMap<>();
+
+        @Override
+        public Map<String, ?> load() {
+            return new HashMap<>(saved);
+        }
+
+        @Override
+        public void write(Map<String, Object> changes) {
+            saved.putAll(changes);
+        }
+    }
+
+    private static SettingsStore newSettings() {
+        return new SettingsStore(new MemoryStorage(), new SettingsStore.Scheduler() {
+            @Override
+            public void schedule(Runnable task, long delayMillis) {
+            }
+
+            @Override
+            public void cancel(Runnable task) {
+            }
+        });
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        history = new HistoryStore(folder.newFolder(), TAIPEI);
+        settings = newSettings();
+        archive = new File(folder.getRoot(), "backup");
+    }
+
+    private BackupArchive.Summary export(BackupArchive.Format format) throws IOException {
+        try (FileChannel out = FileChannel.open(archive.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return BackupArchive.export(settings.get(), history, format, out);
+        }
+    }
+
+    private static BackupArchive.Summary importInto(File file, SettingsStore settings, HistoryStore history)
+            throws IOException {
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return BackupArchive.importFrom(in, settings, history);
+        }
+    }
+
+    private void fillHistory() throws IOException {
+        long t = MONDAY + 9 * 60 * 60 * 1000L;
+        history.append(t, SessionPhase.WORK, true, 1500, 1500, "study");
+        history.append(t + 300_000, SessionPhase.SHORT_BREAK, true, 300, 300, null);
+        history.append(t + 600_000, SessionPhase.WORK, false, 1500, 600, "a, \"quoted\" tag");
+        history.append(t + 24 * 60 * 60 * 1000L, SessionPhase.LONG_BREAK, true, 900, 900, "study");
+    }
+
+    private void assertRoundTrip(BackupArchive.Format format) throws Exception {
+        fillHistory();
+        Map<String, Object> changes = new HashMap<>();
+        changes.put(SettingsStore.WORK_MINUTES, 50);
+        changes.put(SettingsStore.AUTO_ADVANCE, false);
+        changes.put(SettingsStore.CUSTOM_SOUND_NAME, "bell, soft");
+        settings.update(changes);
+        BackupArchive.Summary exported = export(format);
+        assertEquals(4, exported.records);
+        assertEquals(archive.length(), exported.bytes);
+
+        HistoryStore target = new HistoryStore(folder.newFolder(), TimeZone.getTimeZone("UTC"));
+        SettingsStore targetSettings = newSettings();
+        BackupArchive.Summary imported = importInto(archive, targetSettings, target);
+        assertEquals(format, imported.format);
+        assertEquals(4, imported.records);
+        assertEquals(exported.settings, imported.settings);
+        assertEquals(settings.get().asMap(), targetSettings.get().asMap());
+
+        List<HistoryStore.Record> source = history.page(0, 10);
+        List<HistoryStore.Record> copy = target.page(0, 10);
+        for (int i = 0; i < source.size(); i++) {
+            assertEquals(source.get(i).endMillis, copy.get(i).endMillis);
+            // Days stay those of the exporting device, not of the UTC importer
+            assertEquals(source.get(i).epochDay, copy.get(i).epochDay);
+            assertEquals(source.get(i).phase, copy.get(i).phase);
+            assertEquals(source.get(i).completed, copy.get(i).completed);
+            assertEquals(source.get(i).plannedSeconds, copy.get(i).plannedSeconds);
+            assertEquals(source.get(i).actualSeconds, copy.get(i).actualSeconds);
+            assertEquals(source.get(i).tag, copy.get(i).tag);
+        }
+        assertEquals(history.tag("study").completed, target.tag("study").completed);
+
+        // The same file again adds nothing
+        BackupArchive.Summary again = importInto(archive, newSettings(), target);
+        assertEquals(0, again.records);
+        assertEquals(4, again.skipped);
+        assertEquals(4, target.count());
+    }
+
+    @Test
+    public void binaryRoundTrip() throws Exception {
+        assertRoundTrip(BackupArchive.Format.BINARY);
+    }
+
+    @Test
+    public void csvRoundTrip() throws Exception {
+        assertRoundTrip(BackupArchive.Format.CSV);
+        List<String> lines = Files.readAllLines(archive.toPath(), StandardCharsets.UTF_8);
+        assertEquals("#prodomo,1", lines.get(0));
+        assertTrue(lines.contains(BackupArchive.CSV_HEADER));
+        assertTrue(lines.contains("#setting,customSoundName,s,\"bell, soft\""));
+        assertEquals("#end,4", lines.get(lines.size() - 1));
+    }
+
+    @Test
+    public void corruptBinaryChunkImportsNothing() throws Exception {
+        fillHistory();
+        export(BackupArchive.Format.BINARY);
+        byte[] bytes = Files.readAllBytes(archive.toPath());
+        // Flip a bit in the last record's actual seconds; the end chunk and a CRC follow it
+        bytes[bytes.length - 13 - 4 - 6] ^= 1;
+        Files.write(archive.toPath(), bytes);
+
+        HistoryStore target = new HistoryStore(folder.newFolder(), TAIPEI);
+        SettingsStore targetSettings = newSettings();
+        try {
+            importInto(archive, targetSettings, target);
+            fail("corrupt archive imported");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("Checksum"));
+        }
+        assertEquals(0, target.count());
+    }
+
+    @Test
+    public void shortChunkWithValidChecksumIsRejected() throws Exception {
+        fillHistory();
+        export(BackupArchive.Format.BINARY);
+        byte[] bytes = Files.readAllBytes(archive.toPath());
+        // Swap the end chunk for one with an empty payload; the CRC of nothing is 0 and matches
+        byte[] empty = {'E', 0, 0, 0, 0, 0, 0, 0, 0};
+        byte[] cut = Arrays.copyOf(bytes, bytes.length - 13 + empty.length);
+        System.arraycopy(empty, 0, cut, bytes.length - 13, empty.length);
+        Files.write(archive.toPath(), cut);
+
+        HistoryStore target = new HistoryStore(folder.newFolder(), TAIPEI);
+        try {
+            importInto(archive, newSettings(), target);
+            fail("end chunk without a count imported");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().startsWith("Invalid archive"));
+        }
+        assertEquals(0, target.count());
+    }
+
+    @Test
+    public void invalidCsvRecordRollsBackRecordsAndSettings() throws Exception {
+        history.append(MONDAY + 60_000, SessionPhase.WORK, true, 1500, 1500, null);
+        String csv = "#prodomo,1\n"
+                + "#setting,workMinutes,i,55\n"
+                + BackupArchive.CSV_HEADER + "\n"
+                + (MONDAY + 120_000) + ",19723,work,1,1500,1500,study\n"
+                + (MONDAY + 180_000) + ",19723,work,1,1500,1600,study\n"
+                + "#end,2\n";
+        Files.write(archive.toPath(), csv.getBytes(StandardCharsets.UTF_8));
+        int workMinutes = settings.get().getInt(SettingsStore.WORK_MINUTES);
+        try {
+            importInto(archive, settings, history);
+            fail("actual seconds beyond the planned ones imported");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().startsWith("Invalid record 2"));
+        }
+        assertEquals(1, history.count());
+        assertEquals(0, history.tag("study").completed);
+        assertEquals(1, history.total().completed);
+        assertEquals(workMinutes, settings.get().getInt(SettingsStore.WORK_MINUTES));
+    }
+
+    @Test
+    public void importedTagsWithCarriageReturnsAreRejected() throws Exception {
+        String csv = "#prodomo,1\n"
+                + BackupArchive.CSV_HEADER + "\n"
+                + (MONDAY + 120_000) + ",19723,work,1,1500,1500,\"a\rb\"\n"
+                + "#end,1\n";
+        Files.write(archive.toPath(), csv.getBytes(StandardCharsets.UTF_8));
+        try {
+            importInto(archive, settings, history);
+            fail("tag with a carriage return imported");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().startsWith("Invalid record 1"));
+        }
+        assertEquals(0, history.count());
+    }
+
+    @Test
+    public void truncatedArchivesAreRejected() throws Exception {
+        fillHistory();
+        for (BackupArchive.Format format : BackupArchive.Format.values()) {
+            export(format);
+            byte[] bytes = Files.readAllBytes(archive.toPath());
+            Files.write(archive.toPath(), Arrays.copyOf(bytes, bytes.length * 2 / 3));
+            HistoryStore target = new HistoryStore(folder.newFolder(), TAIPEI);
+            try {
+                importInto(archive, newSettings(), target);
+                fail(format + " archive cut short imported");
+            } catch (IOException expected) {
+                // Missing end marker, or a chunk cut in half
+            }
+            assertEquals(0, target.count());
+        }
+    }
+
+    @Test
+    public void csvParsingHandlesQuotes() throws Exception {
+        List<String> fields = new ArrayList<>();
+        assertTrue(BackupArchive.parseCsv("1,\"a, \"\"b\"\"\",", fields));
+        assertEquals(3, fields.size());
+        assertEquals("a, \"b\"", fields.get(1));
+        assertEquals("", fields.get(2));
+        assertFalse(BackupArchive.parseCsv("1,\"open", fields));
+    }
+
+    /** A heavy user's 100k phases, about three years of them. */
+    private void fillHundredThousand() throws IOException {
+        String[] tags = {null, "study", "work", "reading", "code"};
+        Random random = new Random(42);
+        long t = MONDAY;
+        for (int i = 0; i < HUNDRED_THOUSAND; i++) {
+            t += 15 * 60 * 1000L;
+            SessionPhase phase = i % 2 == 0 ? SessionPhase.WORK : SessionPhase.SHORT_BREAK;
+            history.append(t, phase, random.nextInt(10) != 0, 1500, 1200 + random.nextInt(300), tags[random.nextInt(tags.length)]);
+        }
+    }
+
+    /** 100k phases through both formats, many buffers' worth each way. */
+    @Test
+    public void hundredThousandRecordsRoundTrip() throws Exception {
+        fillHundredThousand();
+        for (BackupArchive.Format format : BackupArchive.Format.values()) {
+            BackupArchive.Summary exported = export(format);
+            HistoryStore target = new HistoryStore(folder.newFolder(), TAIPEI);
+            BackupArchive.Summary imported = importInto(archive, newSettings(), target);
+
+            assertEquals(HUNDRED_THOUSAND, exported.records);
+            assertEquals(HUNDRED_THOUSAND, imported.records);
+            assertEquals(HUNDRED_THOUSAND, target.count());
+            assertEquals(history.total().completed, target.total().completed);
+            assertEquals(history.total().focusSeconds, target.total().focusSeconds);
+            target.close();
+        }
+    }
+
+    /**
+     * Export and import of {@link #hundredThousandRecordsRoundTrip} each stay well within two
+     * seconds per format. Like HistoryStoreTest's bounds, only with {@code -Pprodomo.timing=true}.
+     */
+    @Test
+    public void hundredThousandRecordsStayFast() throws Exception {
+        assumeTrue(Boolean.getBoolean("prodomo.timing"));
+        fillHundredThousand();
+        for (BackupArchive.Format format : BackupArchive.Format.values()) {
+            long start = System.nanoTime();
+            export(format);
+            long exportMillis = (System.nanoTime() - start) / 1_000_000;
+
+            HistoryStore target = new HistoryStore(folder.newFolder(), TAIPEI);
+            start = System.nanoTime();
+            importInto(archive, newSettings(), target);
+            long importMillis = (System.nanoTime() - start) / 1_000_000;
+            target.close();
+
+            assertTrue(format + " export took " + exportMillis + " ms", exportMillis < 2_000);
+            assertTrue(format + " import took " + importMillis + " ms", importMillis < 2_000);
+        }
+    }
+}
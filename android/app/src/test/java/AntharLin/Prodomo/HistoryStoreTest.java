@@ -0,0 +1,244 @@
+package AntharLin.Prodomo;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class HistoryStoreTest {
+
+    private static final TimeZone TAIPEI = TimeZone.getTimeZone("Asia/Taipei");
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    // 2024-01-01 00:00 in Taipei, a Monday
+    private static final long MONDAY = 1704038400000L;
+    private static final int HUNDRED_THOUSAND = 100_000;
+    private static final String[] TAGS = {null, "study", "work", "reading", "code"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = folder.newFolder("history");
+    }
+
+    @Test
+    public void dayUsesLocalTimeZone() throws Exception {
+        HistoryStore store = new HistoryStore(dir, TAIPEI);
+        // Monday 00:00 in Taipei is still Sunday in UTC
+        assertEquals(19723, store.epochDay(MONDAY));
+        assertEquals(19723, store.epochDay(MONDAY + DAY - 1));
+        assertEquals(19722, store.epochDay(MONDAY - 1));
+        assertEquals(HistoryStore.weekOf(store.epochDay(MONDAY)), HistoryStore.weekOf(store.epochDay(MONDAY + 6 * DAY)));
+        assertEquals(HistoryStore.weekOf(store.epochDay(MONDAY)) + 1, HistoryStore.weekOf(store.epochDay(MONDAY + 7 * DAY)));
+    }
+
+    @Test
+    public void aggregatesByDayWeekTagAndTotal() throws Exception {
+        HistoryStore store = new HistoryStore(dir, TAIPEI);
+        long t = MONDAY + 9 * 60 * 60 * 1000L;
+        store.append(t, SessionPhase.WORK, true, 1500, 1500, "study");
+        store.append(t + 300_000, SessionPhase.SHORT_BREAK, true, 300, 300, "study");
+        store.append(t + 600_000, SessionPhase.WORK, false, 1500, 600, "writing");
+        store.append(t + DAY, SessionPhase.WORK, true, 1500, 1500, null);
+
+        int monday = store.epochDay(t);
+        HistoryStore.Stats day = store.day(monday);
+        assertEquals(1, day.completed);
+        assertEquals(1, day.abandoned);
+        assertEquals(2100, day.focusSeconds);
+        assertEquals(300, day.breakSeconds);
+
+        HistoryStore.Stats week = store.week(HistoryStore.weekOf(monday));
+        assertEquals(2, week.completed);
+        assertEquals(3600, week.focusSeconds);
+
+        assertEquals(1, store.tag("study").completed);
+        assertEquals(1, store.tag("writing").abandoned);
+        assertEquals(1, store.tag("").completed);
+        assertSame(HistoryStore.Stats.EMPTY, store.tag("unknown"));
+        assertSame(HistoryStore.Stats.EMPTY, store.day(monday - 1));
+
+        assertEquals(4, store.count());
+        assertEquals(2, store.total().completed);
+    }
+
+    @Test
+    public void reopenRebuildsAggregatesAndTags() throws Exception {
+        HistoryStore store = new HistoryStore(dir, TAIPEI);
+        store.append(MONDAY, SessionPhase.WORK, true, 1500, 1500, "study");
+        store.append(MONDAY - 3 * DAY, SessionPhase.WORK, true, 1500, 1500, "gym");
+        store.close();
+
+        HistoryStore reopened = new HistoryStore(dir, TAIPEI);
+        assertEquals(2, reopened.count());
+        assertEquals(1, reopened.day(reopened.epochDay(MONDAY - 3 * DAY)).completed);
+        assertEquals(1, reopened.tag("gym").completed);
+        assertEquals("study", reopened.page(1, 1).get(0).tag);
+    }
+
+    @Test
+    public void tagsWithLineBreaksAreRejected() throws Exception {
+        HistoryStore store = new HistoryStore(dir, TAIPEI);
+        for (String tag : new String[] {"a\nb", "a\rb", "a\r\nb"}) {
+            try {
+                store.append(MONDAY, SessionPhase.WORK, true, 1500, 1500, tag);
+                fail("tag with a line break accepted");
+            } catch (IllegalArgumentException expected) {
+                // readLine would split it when the store is reopened
+            }
+        }
+        assertEquals(0, store.count());
+        assertEquals(1, store.tags().size());
+    }
+
+    @Test
+    public void partialRecordFromKilledAppendIsDropped() throws Exception {
+        HistoryStore store = new HistoryStore(dir, TAIPEI);
+        store.append(MONDAY, SessionPhase.WORK, true, 1500, 1500, null);
+        store.close();
+        try (RandomAccessFile raf = new RandomAccessFile(new File(dir, HistoryStore.RECORDS_FILE), "rw")) {
+            raf.seek(raf.length());
+            raf.write(new byte[11]);
+        }
+
+        HistoryStore reopened = new HistoryStore(dir, TAIPEI);
+        assertEquals(1, reopened.count());
+        reopened.append(MONDAY + 1000, SessionPhase.SHORT_BREAK, true, 300, 300, null);
+        assertEquals(SessionPhase.SHORT_BREAK, reopened.page(0, 1).get(0).phase);
+        assertEquals(2 * HistoryStore.RECORD_SIZE, new File(dir, HistoryStore.RECORDS_FILE).length());
+    }
+
+    @Test
+    public void pagesAreNewestFirst() throws Exception {
+        HistoryStore store = new HistoryStore(dir, TAIPEI);
+        for (int i = 0; i < 10; i++) {
+            store.append(MONDAY + i * 60_000L, SessionPhase.WORK, true, 1500, i, null);
+        }
+        List<HistoryStore.Record> first = store.page(0, 4);
+        assertEquals(4, first.size());
+        assertEquals(9, first.get(0).actualSeconds);
+        assertEquals(6, first.get(3).actualSeconds);
+
+        List<HistoryStore.Record> last = store.page(8, 4);
+        assertEquals(2, last.size());
+        assertEquals(0, last.get(1).actualSeconds);
+        assertTrue(store.page(10, 4).isEmpty());
+    }
+
+    @Test
+    public void recordsPhaseEndsFromSession() throws Exception {
+        HistoryStore store = new HistoryStore(dir, TAIPEI);
+        long[] now = {0};
+        PomodoroSession session = new PomodoroSession(() -> now[0], new PomodoroSession.Config(1500, 300, 900, 4, true));
+        session.setPhaseListener((phase, completed, planned, actual, endTime) -> {
+            try {
+                store.append(MONDAY + endTime, phase, completed, planned, actual, "focus");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        session.start();
+        now[0] = 1500_000;
+        session.advanceIfDue();
+        now[0] += 100_000;
+        session.reset();
+        // Resetting an idle session records nothing
+        session.reset();
+
+        List<HistoryStore.Record> records = store.page(0, 10);
+        assertEquals(2, records.size());
+        assertEquals(SessionPhase.SHORT_BREAK, records.get(0).phase);
+        assertFalse(records.get(0).completed);
+        assertEquals(100, records.get(0).actualSeconds);
+        assertEquals(SessionPhase.WORK, records.get(1).phase);
+        assertTrue(records.get(1).completed);
+        assertEquals(MONDAY + 1500_000, records.get(1).endMillis);
+    }
+
+    /** About three years of heavy use (100k phases), written and closed; returns the last end time. */
+    private static long fillHundredThousand(HistoryStore store, String[] tags) throws IOException {
+        Random random = new Random(42);
+        long t = MONDAY;
+        for (int i = 0; i < HUNDRED_THOUSAND; i++) {
+            t += 15 * 60 * 1000L;
+            SessionPhase phase = i % 2 == 0 ? SessionPhase.WORK : SessionPhase.SHORT_BREAK;
+            store.append(t, phase, random.nextInt(10) != 0, 1500, 1200 + random.nextInt(300), tags[random.nextInt(tags.length)]);
+        }
+        store.close();
+        return t;
+    }
+
+    @Test
+    public void hundredThousandRecordsReopenIntact() throws Exception {
+        long t = fillHundredThousand(new HistoryStore(dir, TAIPEI), TAGS);
+        HistoryStore reopened = new HistoryStore(dir, TAIPEI);
+        assertEquals(HUNDRED_THOUSAND, reopened.count());
+
+        long total = 0;
+        for (String tag : reopened.tags()) {
+            total += reopened.tag(tag).completed + reopened.tag(tag).abandoned;
+        }
+        assertEquals(HUNDRED_THOUSAND / 2, total);
+        assertEquals(reopened.total().completed + reopened.total().abandoned, total);
+
+        List<HistoryStore.Record> newest = reopened.page(0, 50);
+        assertEquals(50, newest.size());
+        assertEquals(t, newest.get(0).endMillis);
+        assertEquals(reopened.epochDay(t), newest.get(0).epochDay);
+        assertEquals(10, reopened.page(HUNDRED_THOUSAND - 10, 50).size());
+    }
+
+    /**
+     * The open-time scan, aggregate reads and page reads of {@link #hundredThousandRecordsReopenIntact}
+     * must stay cheap. Wall-clock bounds only mean something on a quiet machine, so this runs
+     * only with {@code -Pprodomo.timing=true}.
+     */
+    @Test
+    public void hundredThousandRecordsStayCheap() throws Exception {
+        assumeTrue(Boolean.getBoolean("prodomo.timing"));
+        long t = fillHundredThousand(new HistoryStore(dir, TAIPEI), TAGS);
+
+        long start = System.nanoTime();
+        HistoryStore reopened = new HistoryStore(dir, TAIPEI);
+        long openMillis = (System.nanoTime() - start) / 1_000_000;
+
+        int lastDay = reopened.epochDay(t);
+        int iterations = 10_000;
+        long checksum = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            int day = lastDay - (i % 1000);
+            checksum += reopened.day(day).completed;
+            checksum += reopened.week(HistoryStore.weekOf(day)).focusSeconds;
+            checksum += reopened.tag(TAGS[i % TAGS.length]).completed;
+        }
+        double statsMicros = (System.nanoTime() - start) / 1000.0 / iterations;
+
+        Random random = new Random(7);
+        int pages = 1_000;
+        start = System.nanoTime();
+        for (int i = 0; i < pages; i++) {
+            checksum += reopened.page(random.nextInt(HUNDRED_THOUSAND), 50).size();
+        }
+        double pageMicros = (System.nanoTime() - start) / 1000.0 / pages;
+
+        assertTrue(checksum > 0);
+        assertTrue("open took " + openMillis + " ms", openMillis < 2_000);
+        assertTrue("stats took " + statsMicros + " us", statsMicros < 1_000);
+        assertTrue("page took " + pageMicros + " us", pageMicros < 5_000);
+    }
+}
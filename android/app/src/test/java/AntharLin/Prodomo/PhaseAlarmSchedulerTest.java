@@ -0,0 +1,84 @@
+package AntharLin.Prodomo;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.AlarmManager;
+import android.app.Application;
+import android.content.Context;
+import android.content.Intent;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowAlarmManager;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class PhaseAlarmSchedulerTest {
+
+    private Application context;
+    private ShadowAlarmManager alarms;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        alarms = shadowOf((AlarmManager) context.getSystemService(Context.ALARM_SERVICE));
+        ShadowAlarmManager.setCanScheduleExactAlarms(true);
+    }
+
+    @Test
+    public void schedulesExactIdleAlarmAtPhaseDeadline() throws Exception {
+        new PhaseAlarmScheduler(context).schedule(40 * 60_000L);
+
+        ShadowAlarmManager.ScheduledAlarm alarm = alarms.peekNextScheduledAlarm();
+        assertNotNull(alarm);
+        assertEquals(AlarmManager.ELAPSED_REALTIME_WAKEUP, alarm.getType());
+        assertEquals(40 * 60_000L, alarm.getTriggerAtMs());
+        assertTrue(alarm.isAllowWhileIdle());
+
+        Intent intent = shadowOf(alarm.operation).getSavedIntent();
+        assertEquals(PhaseAlarmReceiver.ACTION_PHASE_END, intent.getAction());
+        assertEquals(PhaseAlarmReceiver.class.getName(), intent.getComponent().getClassName());
+    }
+
+    @Test
+    public void reschedulingReplacesThePreviousBoundary() throws Exception {
+        PhaseAlarmScheduler scheduler = new PhaseAlarmScheduler(context);
+        scheduler.schedule(1_000L);
+        scheduler.schedule(2_000L);
+
+        assertEquals(1, alarms.getScheduledAlarms().size());
+        assertEquals(2_000L, alarms.peekNextScheduledAlarm().getTriggerAtMs());
+    }
+
+    @Test
+    public void cancelRemovesTheBoundary() throws Exception {
+        PhaseAlarmScheduler scheduler = new PhaseAlarmScheduler(context);
+        scheduler.schedule(1_000L);
+        scheduler.cancel();
+
+        assertNull(alarms.peekNextScheduledAlarm());
+    }
+
+    @Test
+    public void fallsBackToInexactIdleAlarmWithoutExactGrant() throws Exception {
+        ShadowAlarmManager.setCanScheduleExactAlarms(false);
+        new PhaseAlarmScheduler(context).schedule(5_000L);
+
+        ShadowAlarmManager.ScheduledAlarm alarm = alarms.peekNextScheduledAlarm();
+        assertEquals(5_000L, alarm.getTriggerAtMs());
+        assertTrue(alarm.isAllowWhileIdle());
+    }
+
+    @Test
+    public void receiverForwardsPhaseEndToTheService() throws Exception {
+        new PhaseAlarmReceiver().onReceive(context, new Intent(PhaseAlarmReceiver.ACTION_PHASE_END));
+
+        Intent started = shadowOf(context).getNextStartedService();
+        assertEquals(PhaseAlarmReceiver.ACTION_PHASE_END, started.getAction());
+        assertEquals(PomodoroForegroundService.class.getName(), started.getComponent().getClassName());
+    }
+}
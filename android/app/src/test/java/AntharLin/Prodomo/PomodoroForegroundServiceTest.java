@@ -0,0 +1,60 @@
+package AntharLin.Prodomo;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Application;
+import android.content.Intent;
+import android.os.Looper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ServiceController;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class PomodoroForegroundServiceTest {
+
+    private Application context;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+    }
+
+    private static void idleAll() {
+        shadowOf(TimerThread.getLooper()).idle();
+        shadowOf(Looper.getMainLooper()).idle();
+        shadowOf(TimerThread.getLooper()).idle();
+    }
+
+    @Test
+    public void aStoppedSessionIsNotRestoredOnTheNextLaunch() throws Exception {
+        Intent start = new Intent(context, PomodoroForegroundService.class)
+                .setAction(PomodoroForegroundService.ACTION_START)
+                .putExtra(PomodoroForegroundService.EXTRA_SECONDS_LEFT, 25 * 60)
+                .putExtra(PomodoroForegroundService.EXTRA_WORK_SECONDS, 25 * 60)
+                .putExtra(PomodoroForegroundService.EXTRA_BREAK_SECONDS, 5 * 60);
+        ServiceController<PomodoroForegroundService> service =
+                Robolectric.buildService(PomodoroForegroundService.class, start).create().startCommand(0, 1);
+        idleAll();
+        assertNotNull(PomodoroForegroundService.restoreIfActive(context));
+
+        // What ForegroundServicePlugin.stop sends
+        service.withIntent(new Intent(context, PomodoroForegroundService.class)
+                .setAction(PomodoroForegroundService.ACTION_RESET)).startCommand(0, 2);
+        idleAll();
+        service.destroy();
+        idleAll();
+
+        shadowOf(context).clearStartedServices();
+        assertNull(PomodoroForegroundService.restoreIfActive(context));
+        assertNull(shadowOf(context).getNextStartedService());
+    }
+}
@@ -0,0 +1,71 @@
+package AntharLin.Prodomo;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Application;
+import android.appwidget.AppWidgetManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+/** The widget must be updated on transitions only; its chronometer draws the seconds. */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class PomodoroWidgetProviderTest {
+
+    private long now = 1_000_000L;
+    private final PomodoroSession session = new PomodoroSession(() -> now,
+            new PomodoroSession.Config(25 * 60, 5 * 60, 15 * 60, 4, true));
+    private final WidgetUpdater updater = WidgetUpdater.getInstance();
+    private int updatesBefore;
+
+    @Before
+    public void setUp() {
+        Application context = RuntimeEnvironment.getApplication();
+        shadowOf(AppWidgetManager.getInstance(context))
+                .createWidgets(PomodoroWidgetProvider.class, R.layout.widget_timer, 2);
+        updater.attach(context);
+        updatesBefore = updater.getUpdateCount();
+    }
+
+    @After
+    public void tearDown() {
+        updater.detach();
+    }
+
+    /** What the service does every second: advance the session and publish it. */
+    private void run(int seconds) {
+        for (int i = 0; i < seconds; i++) {
+            now += 1000;
+            session.advanceIfDue();
+            TimerStateBus.getInstance().publish(session.snapshot());
+        }
+    }
+
+    private void publish() {
+        TimerStateBus.getInstance().publish(session.snapshot());
+    }
+
+    @Test
+    public void noPerTickUpdatesOverASimulatedSession() throws Exception {
+        session.start();
+        publish();
+        run(10 * 60);
+        session.pause();
+        publish();
+        run(2 * 60);
+        session.resume();
+        publish();
+        // Rest of the work phase, the break and a second work phase
+        run(15 * 60 + 5 * 60 + 25 * 60);
+        assertEquals(SessionPhase.SHORT_BREAK, session.getPhase());
+
+        // Start, pause, resume and three phase changes across ~2,900 ticks
+        assertEquals(6, updater.getUpdateCount() - updatesBefore);
+    }
+}
@@ -0,0 +1,164 @@
+package AntharLin.Prodomo;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class SettingsStoreTest {
+
+    private static class FakeStorage implements SettingsStore.Storage {
+        final Map<String, Object> saved = new HashMap<>();
+        final List<Map<String, Object>> writes = new ArrayList<>();
+
+        @Override
+        public Map<String, ?> load() {
+            return new HashMap<>(saved);
+        }
+
+        @Override
+        public void write(Map<String, Object> changes) {
+            writes.add(changes);
+            saved.putAll(changes);
+        }
+    }
+
+    /** Runs a task once time has advanced past its delay, like Handler.postDelayed. */
+    private static class FakeScheduler implements SettingsStore.Scheduler {
+        long now;
+        Runnable task;
+        long dueAt;
+
+        @Override
+        public void schedule(Runnable task, long delayMillis) {
+            this.task = task;
+            dueAt = now + delayMillis;
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            if (this.task == task) {
+                this.task = null;
+            }
+        }
+
+        void advance(long millis) {
+            now += millis;
+            if (task != null && now >= dueAt) {
+                Runnable due = task;
+                task = null;
+                due.run();
+            }
+        }
+    }
+
+    private final FakeStorage storage = new FakeStorage();
+    private final FakeScheduler scheduler = new FakeScheduler();
+
+    private static Map<String, Object> change(String key, Object value) {
+        return Collections.singletonMap(key, value);
+    }
+
+    @Test
+    public void defaultsFillMissingKeys() throws Exception {
+        storage.saved.put(SettingsStore.WORK_MINUTES, 25);
+        SettingsStore store = new SettingsStore(storage, scheduler);
+        assertEquals(25, store.get().getInt(SettingsStore.WORK_MINUTES));
+        assertEquals(10, store.get().getInt(SettingsStore.BREAK_MINUTES));
+        assertTrue(store.get().getBoolean(SettingsStore.AUTO_ADVANCE));
+        assertEquals(25 * 60, store.get().sessionConfig().workSeconds);
+    }
+
+    @Test
+    public void burstOfUpdatesIsCoalescedIntoOneWrite() throws Exception {
+        SettingsStore store = new SettingsStore(storage, scheduler);
+        // A slider dragged from 40 to 10, one update every 16 ms
+        for (int minutes = 40; minutes >= 10; minutes--) {
+            store.update(change(SettingsStore.WORK_MINUTES, minutes));
+            scheduler.advance(16);
+        }
+        store.update(change(SettingsStore.SOUND_ID, "none"));
+        assertTrue(storage.writes.isEmpty());
+        assertEquals(10, store.get().getInt(SettingsStore.WORK_MINUTES));
+
+        scheduler.advance(SettingsStore.DEBOUNCE_MILLIS);
+        assertEquals(1, storage.writes.size());
+        assertEquals(10, storage.writes.get(0).get(SettingsStore.WORK_MINUTES));
+        assertEquals("none", storage.writes.get(0).get(SettingsStore.SOUND_ID));
+        assertEquals(2, storage.writes.get(0).size());
+    }
+
+    @Test
+    public void listenersSeeChangesImmediatelyButNotNoOps() throws Exception {
+        SettingsStore store = new SettingsStore(storage, scheduler);
+        List<SettingsStore.Snapshot> seen = new ArrayList<>();
+        store.addListener(seen::add);
+
+        assertTrue(store.update(change(SettingsStore.BREAK_MINUTES, 7)));
+        assertFalse(store.update(change(SettingsStore.BREAK_MINUTES, 7)));
+        assertEquals(1, seen.size());
+        assertEquals(7 * 60, seen.get(0).sessionConfig().shortBreakSeconds);
+    }
+
+    @Test
+    public void numbersFromJsonAreCoerced() throws Exception {
+        SettingsStore store = new SettingsStore(storage, scheduler);
+        store.update(change(SettingsStore.WORK_MINUTES, 30.0));
+        store.update(change(SettingsStore.BREAK_MINUTES, 5L));
+        assertEquals(30, store.get().getInt(SettingsStore.WORK_MINUTES));
+        assertEquals(5, store.get().getInt(SettingsStore.BREAK_MINUTES));
+    }
+
+    @Test
+    public void invalidBatchChangesNothing() throws Exception {
+        SettingsStore store = new SettingsStore(storage, scheduler);
+        Map<String, Object> batch = new HashMap<>();
+        batch.put(SettingsStore.BREAK_MINUTES, 3);
+        batch.put(SettingsStore.WORK_MINUTES, 0);
+        try {
+            store.update(batch);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(10, store.get().getInt(SettingsStore.BREAK_MINUTES));
+        assertTrue(storage.writes.isEmpty());
+        scheduler.advance(SettingsStore.DEBOUNCE_MILLIS);
+        assertTrue(storage.writes.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownKeys() throws Exception {
+        new SettingsStore(storage, scheduler).update(change("volume", 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsWrongTypes() throws Exception {
+        new SettingsStore(storage, scheduler).update(change(SettingsStore.AUTO_ADVANCE, "yes"));
+    }
+
+    @Test
+    public void unreadableStoredValuesFallBackToDefaults() throws Exception {
+        storage.saved.put(SettingsStore.WORK_MINUTES, 0);
+        storage.saved.put(SettingsStore.SOUND_ID, 12);
+        SettingsStore store = new SettingsStore(storage, scheduler);
+        assertEquals(40, store.get().getInt(SettingsStore.WORK_MINUTES));
+        assertEquals("sound_mp3", store.get().getString(SettingsStore.SOUND_ID));
+    }
+
+    @Test
+    public void flushWritesPendingImmediatelyOnce() throws Exception {
+        SettingsStore store = new SettingsStore(storage, scheduler);
+        store.update(change(SettingsStore.CYCLES_BEFORE_LONG_BREAK, 4));
+        store.flush();
+        store.flush();
+        scheduler.advance(SettingsStore.DEBOUNCE_MILLIS);
+        assertEquals(1, storage.writes.size());
+
+        SettingsStore reloaded = new SettingsStore(storage, scheduler);
+        assertEquals(4, reloaded.get().sessionConfig().cyclesBeforeLongBreak);
+    }
+}
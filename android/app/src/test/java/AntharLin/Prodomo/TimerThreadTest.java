@@ -0,0 +1,79 @@
+package AntharLin.Prodomo;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Intent;
+import android.os.Looper;
+import android.os.SystemClock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ServiceController;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+/** StrictMode-style check that the session's timer work never runs on the main looper. */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class TimerThreadTest {
+
+    private final List<String> violations = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() {
+        TimerThread.detectMainThreadWork(violations::add);
+    }
+
+    @After
+    public void tearDown() {
+        TimerThread.detectMainThreadWork(null);
+    }
+
+    private void idleAll(Duration time) {
+        shadowOf(TimerThread.getLooper()).idleFor(time);
+        shadowOf(Looper.getMainLooper()).idle();
+        shadowOf(TimerThread.getLooper()).idle();
+    }
+
+    @Test
+    public void sessionTicksOnTheTimerThread() throws Exception {
+        Intent start = new Intent(RuntimeEnvironment.getApplication(), PomodoroForegroundService.class)
+                .setAction(PomodoroForegroundService.ACTION_START)
+                .putExtra(PomodoroForegroundService.EXTRA_SECONDS_LEFT, 3)
+                .putExtra(PomodoroForegroundService.EXTRA_WORK_SECONDS, 3)
+                .putExtra(PomodoroForegroundService.EXTRA_BREAK_SECONDS, 2);
+        ServiceController<PomodoroForegroundService> service =
+                Robolectric.buildService(PomodoroForegroundService.class, start).create().startCommand(0, 1);
+        idleAll(Duration.ZERO);
+        assertTrue(TimerStateBus.getInstance().getLatest().running);
+
+        // Through the end of the work phase and into the break
+        idleAll(Duration.ofSeconds(4));
+        assertEquals(SessionPhase.SHORT_BREAK, TimerStateBus.getInstance().getLatest().phase);
+
+        service.withIntent(new Intent(start).setAction(PomodoroForegroundService.ACTION_PAUSE)).startCommand(0, 2);
+        service.withIntent(new Intent(start).setAction(PomodoroForegroundService.ACTION_RESET)).startCommand(0, 3);
+        idleAll(Duration.ZERO);
+        service.destroy();
+        idleAll(Duration.ZERO);
+
+        assertTrue("Timer work on the main looper: " + violations, violations.isEmpty());
+    }
+
+    @Test
+    public void timerWorkOnTheMainLooperIsReported() throws Exception {
+        // Robolectric runs the test body on the main looper
+        new CountdownEngine(SystemClock::elapsedRealtime).start(1000);
+        assertEquals(1, violations.size());
+        assertEquals("CountdownEngine", violations.get(0));
+    }
+}
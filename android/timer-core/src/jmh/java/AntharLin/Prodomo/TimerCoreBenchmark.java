@@ -0,0 +1,128 @@
+package AntharLin.Prodomo;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Hot paths of one service tick, on a virtual clock so every invocation sees a new second.
+ * Run with {@code ./gradlew :timer-core:jmh}; the gc profiler reports the allocation rate.
+ * Per tick, {@code gc.alloc.rate.norm} should only show the published snapshot and the
+ * throttle's copy of the changed notification text; formatting and fan-out allocate nothing.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TimerCoreBenchmark {
+
+    /** A running 25-minute work phase whose clock advances one second per tick. */
+    @State(Scope.Thread)
+    public static class Tick {
+        long now;
+        final PomodoroSession session = new PomodoroSession(() -> now,
+                new PomodoroSession.Config(25 * 60, 5 * 60, 15 * 60, 4, true));
+        final CountdownEngine countdown = session.getCountdown();
+        final NotificationThrottle throttle = new NotificationThrottle(() -> now);
+        final TickGate tickGate = new TickGate();
+        final StringBuilder content = new StringBuilder(64);
+        final char[] chars = new char[16];
+        final TimerStateBus bus = new TimerStateBus();
+
+        @Setup(Level.Trial)
+        public void start() {
+            session.start(SessionPhase.WORK, 25 * 60 * 1000L);
+        }
+
+        void advance() {
+            now += 1000;
+            if (countdown.isFinished()) {
+                session.advanceIfDue();
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean tick(Tick state) {
+        // What the service does every second before anything leaves the process
+        state.advance();
+        int secondsLeft = state.countdown.remainingSeconds();
+        state.content.setLength(0);
+        TimeFormatter.appendTo(state.content.append("Focus - "), secondsLeft);
+        boolean repost = state.throttle.offer(state.content);
+        return state.tickGate.offer(secondsLeft, true) & repost & state.countdown.millisUntilNextTick() > 0;
+    }
+
+    @Benchmark
+    public String formatCached(Tick state) {
+        state.advance();
+        return TimeFormatter.format(state.countdown.remainingSeconds());
+    }
+
+    @Benchmark
+    public int formatInto(Tick state) {
+        state.advance();
+        return TimeFormatter.formatInto(state.chars, 0, state.countdown.remainingSeconds());
+    }
+
+    @Benchmark
+    public TimerSnapshot publishSnapshot(Tick state) {
+        state.advance();
+        TimerSnapshot snapshot = state.session.snapshot();
+        state.bus.publish(snapshot);
+        return snapshot;
+    }
+
+    /** Publishing one snapshot to every subscribed listener, as the service, overlay and plugin do. */
+    @State(Scope.Thread)
+    public static class FanOut {
+        @Param({"1", "4", "16"})
+        int listeners;
+
+        final TimerStateBus bus = new TimerStateBus();
+        final TimerSnapshot snapshot = new TimerSnapshot(1499, true, 1_500_000L, SessionPhase.WORK, 1500, 0);
+
+        @Setup(Level.Trial)
+        public void subscribe(Blackhole blackhole) {
+            for (int i = 0; i < listeners; i++) {
+                bus.subscribe(s -> blackhole.consume(s.secondsLeft));
+            }
+        }
+    }
+
+    @Benchmark
+    public void fanOut(FanOut state) {
+        state.bus.publish(state.snapshot);
+    }
+
+    /** A wheel with {@code pending} timeouts spread over two hours ahead. */
+    @State(Scope.Thread)
+    public static class Wheel {
+        @Param({"0", "200000"})
+        int pending;
+
+        static final long START = 1_000_000L;
+        final TimingWheel.Task task = timeout -> { };
+        TimingWheel wheel;
+
+        @Setup(Level.Trial)
+        public void fill() {
+            wheel = new TimingWheel(1, START);
+            for (int i = 0; i < pending; i++) {
+                wheel.schedule(START + 1 + i * 37L, task);
+            }
+        }
+    }
+
+    /** Should not depend on {@code pending}: both touch one slot's list head. */
+    @Benchmark
+    public boolean scheduleAndCancel(Wheel state) {
+        return state.wheel.cancel(state.wheel.schedule(Wheel.START + 500_000, state.task));
+    }
+}
@@ -0,0 +1,106 @@
+package AntharLin.Prodomo;
+
+/**
+ * Records, for every alarm, how long after the phase deadline playback was started, and
+ * counts the alarms that missed {@link #BUDGET_MILLIS}. Keeps the last {@link #CAPACITY}
+ * samples for inspection; the service records from one thread, readers may be on any.
+ */
+public class AlarmLatencyRecorder {
+
+    public static final long BUDGET_MILLIS = 50;
+    static final int CAPACITY = 64;
+
+    /** Optional hook called for every alarm, e.g. to log or export a sample. */
+    public interface Sink {
+        void onAlarm(long scheduledElapsed, long actualElapsed, boolean played);
+    }
+
+    private static final AlarmLatencyRecorder INSTANCE = new AlarmLatencyRecorder();
+
+    private final long[] scheduled = new long[CAPACITY];
+    private final long[] actual = new long[CAPACITY];
+    private int count;
+    private int overBudget;
+    private int failed;
+    private long maxLatency;
+    private long totalLatency;
+    private volatile Sink sink;
+
+    AlarmLatencyRecorder() {
+    }
+
+    public static AlarmLatencyRecorder getInstance() {
+        return INSTANCE;
+    }
+
+    public void setSink(Sink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * @param scheduledElapsed the deadline the alarm belonged to
+     * @param actualElapsed    when playback was started
+     * @param played           false if no sound was ready to play
+     * @return the latency in milliseconds; negative if playback started early
+     */
+    public long record(long scheduledElapsed, long actualElapsed, boolean played) {
+        long latency = actualElapsed - scheduledElapsed;
+        synchronized (this) {
+            int slot = count % CAPACITY;
+            scheduled[slot] = scheduledElapsed;
+            actual[slot] = actualElapsed;
+            count++;
+            if (!played) {
+                failed++;
+            } else if (latency > BUDGET_MILLIS) {
+                overBudget++;
+            }
+            maxLatency = Math.max(maxLatency, latency);
+            totalLatency += latency;
+        }
+        Sink current = sink;
+        if (current != null) {
+            current.onAlarm(scheduledElapsed, actualElapsed, played);
+        }
+        return latency;
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    public synchronized int getOverBudgetCount() {
+        return overBudget;
+    }
+
+    public synchronized int getFailedCount() {
+        return failed;
+    }
+
+    public synchronized long getMaxLatency() {
+        return maxLatency;
+    }
+
+    public synchronized long getMeanLatency() {
+        return count == 0 ? 0 : totalLatency / count;
+    }
+
+    /** Latencies of the retained samples, oldest first. */
+    public synchronized long[] recentLatencies() {
+        int size = Math.min(count, CAPACITY);
+        long[] latencies = new long[size];
+        for (int i = 0; i < size; i++) {
+            int slot = (count - size + i) % CAPACITY;
+            latencies[i] = actual[slot] - scheduled[slot];
+        }
+        return latencies;
+    }
+
+    synchronized void clear() {
+        count = 0;
+        overBudget = 0;
+        failed = 0;
+        maxLatency = 0;
+        totalLatency = 0;
+    }
+}
@@ -0,0 +1,33 @@
+package AntharLin.Prodomo;
+
+/**
+ * Passes only the snapshots that a system-drawn countdown chronometer cannot work out by
+ * itself: a start, pause or resume, a phase change, or a moved deadline. The per-second ticks
+ * of a running phase are dropped, since the chronometer counts those on its own.
+ */
+public class ChronometerGate {
+
+    private boolean primed;
+    private SessionPhase phase;
+    private boolean running;
+    /** The deadline while running, else the frozen seconds left. */
+    private long position;
+
+    /** Records {@code snapshot} and returns whether a chronometer showing the previous one needs an update. */
+    public synchronized boolean offer(TimerSnapshot snapshot) {
+        long next = snapshot.running ? snapshot.deadline : snapshot.secondsLeft;
+        if (primed && snapshot.phase == phase && snapshot.running == running && next == position) {
+            return false;
+        }
+        primed = true;
+        phase = snapshot.phase;
+        running = snapshot.running;
+        position = next;
+        return true;
+    }
+
+    /** Forgets the last snapshot, so the next one passes, e.g. when a new chronometer appears. */
+    public synchronized void invalidate() {
+        primed = false;
+    }
+}
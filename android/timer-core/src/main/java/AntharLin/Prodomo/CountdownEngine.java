@@ -0,0 +1,122 @@
+package AntharLin.Prodomo;
+
+/**
+ * Countdown driven by a monotonic deadline instead of a per-second decrement.
+ * Remaining time is always derived from the clock, so late or skipped wakeups
+ * never accumulate into drift.
+ */
+public class CountdownEngine {
+
+    public interface Clock {
+        long elapsedRealtime();
+    }
+
+    private static final String POLICY_TAG = "CountdownEngine";
+
+    private final Clock clock;
+    private long durationMillis;
+    private long deadline;
+    private long pausedRemaining;
+    private boolean running;
+
+    public CountdownEngine(Clock clock) {
+        this.clock = clock;
+    }
+
+    public void start(long durationMillis) {
+        startAt(clock.elapsedRealtime(), durationMillis);
+    }
+
+    /**
+     * Starts a countdown that began at {@code startTime} rather than now, so back-to-back
+     * phases can be chained deadline to deadline without picking up wakeup latency.
+     */
+    public void startAt(long startTime, long durationMillis) {
+        TimerThreadPolicy.check(POLICY_TAG);
+        this.durationMillis = Math.max(0, durationMillis);
+        pausedRemaining = this.durationMillis;
+        deadline = startTime + this.durationMillis;
+        running = this.durationMillis > 0;
+    }
+
+    /** Stopped countdown holding {@code durationMillis}, as if started and reset; construction, not timer work. */
+    void prepare(long durationMillis) {
+        this.durationMillis = Math.max(0, durationMillis);
+        pausedRemaining = this.durationMillis;
+        running = false;
+    }
+
+    public void pause() {
+        TimerThreadPolicy.check(POLICY_TAG);
+        if (running) {
+            pausedRemaining = remainingMillis();
+            running = false;
+        }
+    }
+
+    public void resume() {
+        TimerThreadPolicy.check(POLICY_TAG);
+        if (!running && pausedRemaining > 0) {
+            deadline = clock.elapsedRealtime() + pausedRemaining;
+            running = true;
+        }
+    }
+
+    /** Runs out now: still running, with its deadline reached, so its owner finishes it like any other. */
+    public void expire() {
+        TimerThreadPolicy.check(POLICY_TAG);
+        deadline = clock.elapsedRealtime();
+        pausedRemaining = 0;
+        running = true;
+    }
+
+    /** Stops the countdown and restores the duration passed to the last {@link #start}. */
+    public void reset() {
+        running = false;
+        pausedRemaining = durationMillis;
+    }
+
+    /** Stops the countdown with nothing left on it. */
+    public void stop() {
+        running = false;
+        pausedRemaining = 0;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public boolean isFinished() {
+        return remainingMillis() == 0;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public long remainingMillis() {
+        TimerThreadPolicy.check(POLICY_TAG);
+        if (!running) {
+            return pausedRemaining;
+        }
+        return Math.max(0, deadline - clock.elapsedRealtime());
+    }
+
+    /** Whole seconds to display; rounds up so "00:01" stays visible until the deadline. */
+    public int remainingSeconds() {
+        return (int) ((remainingMillis() + 999) / 1000);
+    }
+
+    /**
+     * Delay until {@link #remainingSeconds()} next changes, i.e. the next whole-second
+     * boundary relative to the deadline. Returns 0 once the countdown has finished.
+     */
+    public long millisUntilNextTick() {
+        long remaining = remainingMillis();
+        if (remaining == 0) {
+            return 0;
+        }
+        long fraction = remaining % 1000;
+        return fraction == 0 ? 1000 : fraction;
+    }
+}
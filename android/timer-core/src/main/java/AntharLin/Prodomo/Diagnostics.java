@@ -0,0 +1,103 @@
+package AntharLin.Prodomo;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Process-wide timing histograms for the tick path, all in microseconds. Disabled by default:
+ * then every hook below is one volatile read and a branch, so they stay in release builds.
+ * Sections are timed with {@link #begin()} / {@link #end}; wakeups record how long after
+ * their scheduled {@code elapsedRealtimeNanos} they actually ran.
+ */
+public final class Diagnostics {
+
+    /** How late a posted tick ran, against its elapsedRealtime target. */
+    public static final LatencyHistogram TICK_LATENESS = new LatencyHistogram("tickLateness");
+    /** Time spent in NotificationManager.notify(). */
+    public static final LatencyHistogram NOTIFY_DURATION = new LatencyHistogram("notifyDuration");
+    /** Time spent handing a tick to the WebView in notifyListeners(). */
+    public static final LatencyHistogram BRIDGE_EMIT = new LatencyHistogram("bridgeEmit");
+    /** Time spent in the overlay's onDraw(). */
+    public static final LatencyHistogram OVERLAY_REDRAW = new LatencyHistogram("overlayRedraw");
+
+    public static final List<LatencyHistogram> ALL = Collections.unmodifiableList(
+            Arrays.asList(TICK_LATENESS, NOTIFY_DURATION, BRIDGE_EMIT, OVERLAY_REDRAW));
+    public static final List<Double> PERCENTILES = Collections.unmodifiableList(Arrays.asList(50.0, 90.0, 99.0, 99.9));
+
+    /** Returned by {@link #begin()} while disabled; {@link #end} ignores it. */
+    static final long NOT_TIMED = Long.MIN_VALUE;
+
+    private static volatile boolean enabled;
+
+    private Diagnostics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    /** Start of a timed section, in nanoseconds; {@link #NOT_TIMED} while disabled. */
+    public static long begin() {
+        return enabled ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /** Records the time since {@code begin}, unless the section started while disabled. */
+    public static void end(LatencyHistogram histogram, long begin) {
+        if (begin != NOT_TIMED) {
+            histogram.record((System.nanoTime() - begin) / 1000);
+        }
+    }
+
+    /**
+     * Records a wakeup that was due at {@code scheduledNanos} and ran at {@code actualNanos},
+     * both on the elapsedRealtime clock. A scheduled time of 0 means it was not tracked.
+     */
+    public static void recordLateness(long scheduledNanos, long actualNanos) {
+        if (enabled && scheduledNanos != 0) {
+            TICK_LATENESS.record((actualNanos - scheduledNanos) / 1000);
+        }
+    }
+
+    public static void reset() {
+        for (LatencyHistogram histogram : ALL) {
+            histogram.reset();
+        }
+    }
+
+    /** Writes every histogram as JSON: summary percentiles plus the raw non-empty buckets. */
+    public static void writeReport(Writer out, long wallTimeMillis) throws IOException {
+        StringBuilder json = new StringBuilder(4096);
+        json.append("{\"time\":").append(wallTimeMillis)
+                .append(",\"enabled\":").append(enabled)
+                .append(",\"unit\":\"us\",\"histograms\":{");
+        for (int h = 0; h < ALL.size(); h++) {
+            LatencyHistogram histogram = ALL.get(h);
+            json.append(h == 0 ? "\"" : ",\"").append(histogram.getName())
+                    .append("\":{\"count\":").append(histogram.getCount())
+                    .append(",\"mean\":").append(histogram.getMean())
+                    .append(",\"max\":").append(histogram.getMax());
+            for (double percentile : PERCENTILES) {
+                json.append(",\"").append(percentileKey(percentile)).append("\":").append(histogram.percentile(percentile));
+            }
+            json.append(",\"buckets\":[");
+            int start = json.length();
+            histogram.forEachBucket((lowest, highest, count) -> json.append(json.length() == start ? "[" : ",[")
+                    .append(lowest).append(',').append(highest).append(',').append(count).append(']'));
+            json.append("]}");
+        }
+        json.append("}}");
+        out.write(json.toString());
+    }
+
+    /** "p50", "p99", "p99.9". */
+    public static String percentileKey(double percentile) {
+        return percentile == Math.rint(percentile) ? "p" + (long) percentile : "p" + percentile;
+    }
+}
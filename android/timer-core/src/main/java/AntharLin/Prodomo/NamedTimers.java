@@ -0,0 +1,158 @@
+package AntharLin.Prodomo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Any number of independent countdowns keyed by ID, e.g. a stand-up reminder and a tea timer
+ * next to the pomodoro session. All of them share one {@link TimingWheel}, so the driver needs a
+ * single wakeup at {@link #nextExpiry()} however many are running; start, pause, resume and
+ * cancel are O(1). Owned by one scheduler thread, like the wheel.
+ */
+public class NamedTimers {
+
+    public interface Listener {
+        void onTimerExpired(Timer timer);
+    }
+
+    /** State of one named timer; read it on the scheduler thread or copy it there. */
+    public static final class Timer {
+        private final String id;
+        private final String label;
+        private final long durationMillis;
+        private long deadline;
+        private long remainingMillis;
+        private TimingWheel.Timeout timeout;
+
+        private Timer(String id, String label, long durationMillis) {
+            this.id = id;
+            this.label = label;
+            this.durationMillis = durationMillis;
+            this.remainingMillis = durationMillis;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public boolean isRunning() {
+            return timeout != null;
+        }
+
+        public long remainingMillis(long now) {
+            return isRunning() ? Math.max(0, deadline - now) : remainingMillis;
+        }
+    }
+
+    private final CountdownEngine.Clock clock;
+    private final TimingWheel wheel;
+    private final Map<String, Timer> timers = new HashMap<>();
+    private Listener listener;
+
+    /** @param tickMillis wheel resolution; timers due within the same tick expire together */
+    public NamedTimers(CountdownEngine.Clock clock, long tickMillis) {
+        this.clock = clock;
+        this.wheel = new TimingWheel(tickMillis, clock.elapsedRealtime());
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /** Starts {@code id} from its full duration, replacing any timer with the same ID. */
+    public Timer start(String id, String label, long durationMillis) {
+        if (durationMillis <= 0) {
+            throw new IllegalArgumentException("Duration must be positive: " + durationMillis);
+        }
+        cancel(id);
+        Timer timer = new Timer(id, label, durationMillis);
+        timers.put(id, timer);
+        run(timer, clock.elapsedRealtime());
+        return timer;
+    }
+
+    /** Returns false if there is no such running timer. */
+    public boolean pause(String id) {
+        Timer timer = timers.get(id);
+        if (timer == null || !timer.isRunning()) {
+            return false;
+        }
+        timer.remainingMillis = timer.remainingMillis(clock.elapsedRealtime());
+        unschedule(timer);
+        return true;
+    }
+
+    /** Returns false if there is no such paused timer. */
+    public boolean resume(String id) {
+        Timer timer = timers.get(id);
+        if (timer == null || timer.isRunning() || timer.remainingMillis == 0) {
+            return false;
+        }
+        run(timer, clock.elapsedRealtime());
+        return true;
+    }
+
+    /** Removes the timer, running or not; returns false if there was none. */
+    public boolean cancel(String id) {
+        Timer timer = timers.remove(id);
+        if (timer == null) {
+            return false;
+        }
+        unschedule(timer);
+        return true;
+    }
+
+    public Timer get(String id) {
+        return timers.get(id);
+    }
+
+    public List<Timer> list() {
+        return new ArrayList<>(timers.values());
+    }
+
+    public int size() {
+        return timers.size();
+    }
+
+    /** Expires every timer due by now and returns how many did. */
+    public int advance() {
+        return wheel.advance(clock.elapsedRealtime());
+    }
+
+    /** When the driver should call {@link #advance()} next; {@link Long#MAX_VALUE} if nothing runs. */
+    public long nextExpiry() {
+        return wheel.nextExpiry();
+    }
+
+    private void run(Timer timer, long now) {
+        timer.deadline = now + timer.remainingMillis;
+        timer.timeout = wheel.schedule(timer.deadline, timeout -> onExpired(timer));
+    }
+
+    private void unschedule(Timer timer) {
+        if (timer.timeout != null) {
+            wheel.cancel(timer.timeout);
+            timer.timeout = null;
+        }
+    }
+
+    private void onExpired(Timer timer) {
+        timer.timeout = null;
+        timer.remainingMillis = 0;
+        // Finished timers are dropped; the listener still gets their final state
+        timers.remove(timer.id);
+        if (listener != null) {
+            listener.onTimerExpired(timer);
+        }
+    }
+}
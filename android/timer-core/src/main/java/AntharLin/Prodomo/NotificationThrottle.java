@@ -0,0 +1,92 @@
+package AntharLin.Prodomo;
+
+/**
+ * Decides whether a notification repost is needed and counts the ones that happen.
+ * A repost is a binder call plus a SystemUI re-layout, so identical content is dropped
+ * and, in {@link Granularity#MINUTES} mode, the visible text only changes once a minute.
+ */
+public class NotificationThrottle {
+
+    public enum Granularity {
+        SECONDS,
+        MINUTES
+    }
+
+    private static final String POLICY_TAG = "NotificationThrottle";
+    private static final long WINDOW_MILLIS = 60_000L;
+    private static final int MAX_TRACKED_POSTS = 256;
+
+    private final CountdownEngine.Clock clock;
+    private final long[] postTimes = new long[MAX_TRACKED_POSTS];
+    private int postHead;
+    private int postCount;
+    private long totalPosts;
+    private Granularity granularity = Granularity.SECONDS;
+    private String lastPosted;
+
+    public NotificationThrottle(CountdownEngine.Clock clock) {
+        this.clock = clock;
+    }
+
+    public Granularity getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(Granularity granularity) {
+        if (this.granularity != granularity) {
+            this.granularity = granularity;
+            invalidate();
+        }
+    }
+
+    /** Value the visible text is keyed on: seconds, or whole minutes rounded up. */
+    public int displayUnits(int secondsLeft) {
+        return granularity == Granularity.MINUTES ? (secondsLeft + 59) / 60 : secondsLeft;
+    }
+
+    /**
+     * Returns true and records a post when {@code visibleText} differs from what is on screen.
+     * The unchanged case compares in place, so callers can pass a reused builder.
+     */
+    public boolean offer(CharSequence visibleText) {
+        TimerThreadPolicy.check(POLICY_TAG);
+        if (lastPosted != null && lastPosted.contentEquals(visibleText)) {
+            return false;
+        }
+        lastPosted = visibleText.toString();
+        record();
+        return true;
+    }
+
+    /** Forces the next {@link #offer} through, e.g. after startForeground replaced the notification. */
+    public void invalidate() {
+        lastPosted = null;
+    }
+
+    public long getTotalPosts() {
+        return totalPosts;
+    }
+
+    /** Posts within the last minute of the injected clock. */
+    public int postsPerMinute() {
+        long cutoff = clock.elapsedRealtime() - WINDOW_MILLIS;
+        int count = 0;
+        for (int i = 0; i < postCount; i++) {
+            int index = (postHead - 1 - i + MAX_TRACKED_POSTS) % MAX_TRACKED_POSTS;
+            if (postTimes[index] <= cutoff) {
+                break;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private void record() {
+        postTimes[postHead] = clock.elapsedRealtime();
+        postHead = (postHead + 1) % MAX_TRACKED_POSTS;
+        if (postCount < MAX_TRACKED_POSTS) {
+            postCount++;
+        }
+        totalPosts++;
+    }
+}
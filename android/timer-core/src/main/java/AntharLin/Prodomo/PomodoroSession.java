@@ -0,0 +1,249 @@
+package AntharLin.Prodomo;
+
+/**
+ * Native work/break state machine: work, short break, and a long break after every
+ * {@link Config#cyclesBeforeLongBreak} work phases. Each phase is chained onto the previous
+ * deadline, so boundaries are precomputed and a late wakeup never shifts the schedule.
+ * Not thread-safe; the session service drives it from a single thread.
+ */
+public class PomodoroSession {
+
+    public static final class Config {
+        public final int workSeconds;
+        public final int shortBreakSeconds;
+        public final int longBreakSeconds;
+        /** Work phases per long break; 0 disables long breaks. */
+        public final int cyclesBeforeLongBreak;
+        /** Whether the next phase starts by itself or waits paused at its full duration. */
+        public final boolean autoAdvance;
+
+        public Config(int workSeconds, int shortBreakSeconds, int longBreakSeconds,
+                      int cyclesBeforeLongBreak, boolean autoAdvance) {
+            if (workSeconds <= 0 || shortBreakSeconds <= 0) {
+                throw new IllegalArgumentException("Work and break durations must be positive");
+            }
+            if (cyclesBeforeLongBreak < 0 || (cyclesBeforeLongBreak > 0 && longBreakSeconds <= 0)) {
+                throw new IllegalArgumentException("Invalid long break configuration");
+            }
+            this.workSeconds = workSeconds;
+            this.shortBreakSeconds = shortBreakSeconds;
+            this.longBreakSeconds = longBreakSeconds;
+            this.cyclesBeforeLongBreak = cyclesBeforeLongBreak;
+            this.autoAdvance = autoAdvance;
+        }
+
+        public int secondsFor(SessionPhase phase) {
+            switch (phase) {
+                case WORK:
+                    return workSeconds;
+                case SHORT_BREAK:
+                    return shortBreakSeconds;
+                default:
+                    return longBreakSeconds;
+            }
+        }
+    }
+
+    /** Told about every phase that ends, whether it ran out or was cut short by skip or reset. */
+    public interface PhaseListener {
+        /** @param endTime {@code elapsedRealtime()} at which the phase ended; its deadline if it ran out */
+        void onPhaseEnded(SessionPhase phase, boolean completed, int plannedSeconds, int actualSeconds, long endTime);
+    }
+
+    private final CountdownEngine.Clock clock;
+    private final CountdownEngine countdown;
+    private Config config;
+    private SessionPhase phase = SessionPhase.WORK;
+    private int completedCycles;
+    /** What the current phase started with; differs from the config after a one-shot or corrected countdown. */
+    private long plannedMillis;
+    private PhaseListener listener;
+
+    public PomodoroSession(CountdownEngine.Clock clock, Config config) {
+        this.clock = clock;
+        this.countdown = new CountdownEngine(clock);
+        this.config = config;
+        plannedMillis = config.workSeconds * 1000L;
+        countdown.prepare(plannedMillis);
+    }
+
+    public void setPhaseListener(PhaseListener listener) {
+        this.listener = listener;
+    }
+
+    public CountdownEngine getCountdown() {
+        return countdown;
+    }
+
+    public Config getConfig() {
+        return config;
+    }
+
+    /** Takes effect from the next phase; the running phase keeps its deadline. */
+    public void setConfig(Config config) {
+        this.config = config;
+    }
+
+    public SessionPhase getPhase() {
+        return phase;
+    }
+
+    /** Work phases completed since the last {@link #reset()}. */
+    public int getCompletedCycles() {
+        return completedCycles;
+    }
+
+    public long getPlannedMillis() {
+        return plannedMillis;
+    }
+
+    public boolean isRunning() {
+        return countdown.isRunning();
+    }
+
+    /** Starts (or restarts) {@code phase} with {@code remainingMillis} on the clock. */
+    public void start(SessionPhase phase, long remainingMillis) {
+        this.phase = phase;
+        plannedMillis = Math.max(0, remainingMillis);
+        countdown.start(remainingMillis);
+    }
+
+    /** Starts the current phase from its full duration. */
+    public void start() {
+        start(phase, config.secondsFor(phase) * 1000L);
+    }
+
+    /**
+     * Rebuilds a recorded state, e.g. from {@link SessionJournal} after a process restart.
+     * A running phase keeps its original {@code deadline}; a paused one keeps {@code remainingMillis}.
+     * A {@code plannedMillis} of 0 means the phase started with its configured duration.
+     */
+    public void restore(SessionPhase phase, int completedCycles, boolean running, long deadline, long remainingMillis,
+                        long plannedMillis) {
+        this.phase = phase;
+        this.completedCycles = completedCycles;
+        this.plannedMillis = plannedMillis > 0 ? plannedMillis : config.secondsFor(phase) * 1000L;
+        if (running) {
+            countdown.startAt(deadline - this.plannedMillis, this.plannedMillis);
+        } else {
+            countdown.start(remainingMillis);
+            countdown.reset();
+        }
+    }
+
+    /** Puts {@code remainingMillis} on the current phase and leaves it paused, without starting it. */
+    public void hold(long remainingMillis) {
+        plannedMillis = Math.max(0, remainingMillis);
+        countdown.start(remainingMillis);
+        countdown.reset();
+    }
+
+    public void pause() {
+        countdown.pause();
+    }
+
+    public void resume() {
+        countdown.resume();
+    }
+
+    /** Back to an idle first work phase. */
+    public void reset() {
+        reportPhaseEnd(clock.elapsedRealtime());
+        phase = SessionPhase.WORK;
+        completedCycles = 0;
+        plannedMillis = config.workSeconds * 1000L;
+        countdown.prepare(plannedMillis);
+    }
+
+    /** Ends the current phase now and moves to the next one. */
+    public void skip() {
+        boolean wasRunning = countdown.isRunning();
+        enterNextPhase(clock.elapsedRealtime(), wasRunning);
+    }
+
+    /**
+     * Advances past every boundary that is already due, e.g. after a Doze stall longer than
+     * a whole break. Returns how many phases ended.
+     */
+    public int advanceIfDue() {
+        int advanced = 0;
+        while (countdown.isRunning() && countdown.isFinished()) {
+            enterNextPhase(countdown.getDeadline(), config.autoAdvance);
+            advanced++;
+        }
+        return advanced;
+    }
+
+    public SessionPhase nextPhase() {
+        return phaseAfter(phase, phase == SessionPhase.WORK ? completedCycles + 1 : completedCycles);
+    }
+
+    /**
+     * Fills {@code out} with the {@code elapsedRealtime()} ends of the current and following
+     * phases, assuming nothing is paused; returns the number written (0 when not running).
+     */
+    public int upcomingDeadlines(long[] out) {
+        if (!countdown.isRunning()) {
+            return 0;
+        }
+        SessionPhase upcoming = phase;
+        int cycles = completedCycles;
+        long deadline = countdown.getDeadline();
+        int count = 0;
+        while (count < out.length) {
+            out[count++] = deadline;
+            if (upcoming == SessionPhase.WORK) {
+                cycles++;
+            }
+            upcoming = phaseAfter(upcoming, cycles);
+            deadline += config.secondsFor(upcoming) * 1000L;
+            if (!config.autoAdvance) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    public TimerSnapshot snapshot() {
+        return new TimerSnapshot(countdown.remainingSeconds(), countdown.isRunning(), countdown.getDeadline(),
+                phase, config.secondsFor(phase), completedCycles);
+    }
+
+    /** @param cycles work phases completed, counting {@code current} if it is a work phase */
+    private SessionPhase phaseAfter(SessionPhase current, int cycles) {
+        if (current != SessionPhase.WORK) {
+            return SessionPhase.WORK;
+        }
+        if (config.cyclesBeforeLongBreak > 0 && cycles % config.cyclesBeforeLongBreak == 0) {
+            return SessionPhase.LONG_BREAK;
+        }
+        return SessionPhase.SHORT_BREAK;
+    }
+
+    /** Reports the current phase unless nothing of it has elapsed yet. */
+    private void reportPhaseEnd(long endTime) {
+        if (listener == null) {
+            return;
+        }
+        int plannedSeconds = (int) ((plannedMillis + 999) / 1000);
+        long remaining = countdown.remainingMillis();
+        int actualSeconds = (int) Math.max(0, (plannedMillis - remaining) / 1000);
+        if (remaining == 0 || actualSeconds > 0) {
+            listener.onPhaseEnded(phase, remaining == 0, plannedSeconds, actualSeconds, endTime);
+        }
+    }
+
+    private void enterNextPhase(long startTime, boolean run) {
+        reportPhaseEnd(startTime);
+        SessionPhase next = nextPhase();
+        if (phase == SessionPhase.WORK) {
+            completedCycles++;
+        }
+        phase = next;
+        plannedMillis = config.secondsFor(phase) * 1000L;
+        countdown.startAt(startTime, plannedMillis);
+        if (!run) {
+            countdown.reset();
+        }
+    }
+}
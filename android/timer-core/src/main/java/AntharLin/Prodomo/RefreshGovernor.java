@@ -0,0 +1,144 @@
+package AntharLin.Prodomo;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Decides, from screen, activity and overlay visibility, which sinks of the session ticks are
+ * live. A live sink redraws every tick; one that nobody can see gets no periodic redraws at
+ * all, only transitions, and a catch-up redraw through its {@link Listener} when it becomes
+ * live again. Sinks count their actual redraws here, so the savings can be measured.
+ */
+public class RefreshGovernor {
+
+    public enum Sink {
+        /** The session notification; visible whenever the screen is on. */
+        NOTIFICATION("notification"),
+        /** The floating overlay, while it is shown and the screen is on. */
+        OVERLAY("overlay"),
+        /** timerTick events into the WebView, while the activity is in the foreground. */
+        BRIDGE("bridge");
+
+        private final String jsName;
+
+        Sink(String jsName) {
+            this.jsName = jsName;
+        }
+
+        public String getJsName() {
+            return jsName;
+        }
+    }
+
+    public interface Listener {
+        /**
+         * Called, on the thread that changed the visibility, when the sink starts or stops
+         * being live; on {@code live} the sink should redraw right away.
+         */
+        void onLiveChanged(boolean live);
+    }
+
+    private static final Sink[] SINKS = Sink.values();
+    private static final RefreshGovernor INSTANCE = new RefreshGovernor();
+
+    private final Listener[] listeners = new Listener[SINKS.length];
+    private final boolean[] live = new boolean[SINKS.length];
+    private final AtomicLongArray updates = new AtomicLongArray(SINKS.length);
+    private boolean screenOn = true;
+    private boolean foreground;
+    private boolean overlayVisible;
+
+    RefreshGovernor() {
+        live[Sink.NOTIFICATION.ordinal()] = true;
+    }
+
+    public static RefreshGovernor getInstance() {
+        return INSTANCE;
+    }
+
+    /** Installs the one listener of {@code sink}, replacing any previous one. */
+    public synchronized void setListener(Sink sink, Listener listener) {
+        listeners[sink.ordinal()] = listener;
+    }
+
+    /** Removes {@code listener} if it is still the one installed for {@code sink}. */
+    public synchronized void removeListener(Sink sink, Listener listener) {
+        if (listeners[sink.ordinal()] == listener) {
+            listeners[sink.ordinal()] = null;
+        }
+    }
+
+    public void setScreenOn(boolean value) {
+        update(() -> screenOn = value);
+    }
+
+    public void setForeground(boolean value) {
+        update(() -> foreground = value);
+    }
+
+    public void setOverlayVisible(boolean value) {
+        update(() -> overlayVisible = value);
+    }
+
+    public synchronized boolean isLive(Sink sink) {
+        return live[sink.ordinal()];
+    }
+
+    /** Whether any sink wants per-tick redraws, i.e. whether ticking is worth it at all. */
+    public synchronized boolean isAnyLive() {
+        for (boolean value : live) {
+            if (value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Counts one redraw of {@code sink}, periodic or not. */
+    public void countUpdate(Sink sink) {
+        updates.incrementAndGet(sink.ordinal());
+    }
+
+    public long getUpdateCount(Sink sink) {
+        return updates.get(sink.ordinal());
+    }
+
+    public void resetCounts() {
+        for (int i = 0; i < SINKS.length; i++) {
+            updates.set(i, 0);
+        }
+    }
+
+    private void update(Runnable change) {
+        Listener[] notify = new Listener[SINKS.length];
+        boolean[] nowLive = new boolean[SINKS.length];
+        synchronized (this) {
+            change.run();
+            for (Sink sink : SINKS) {
+                int i = sink.ordinal();
+                boolean value = computeLive(sink);
+                if (value != live[i]) {
+                    live[i] = value;
+                    notify[i] = listeners[i];
+                    nowLive[i] = value;
+                }
+            }
+        }
+        // Outside the lock: catch-up redraws may well ask isLive() again
+        for (int i = 0; i < SINKS.length; i++) {
+            if (notify[i] != null) {
+                notify[i].onLiveChanged(nowLive[i]);
+            }
+        }
+    }
+
+    private boolean computeLive(Sink sink) {
+        switch (sink) {
+            case OVERLAY:
+                return screenOn && overlayVisible;
+            case BRIDGE:
+                return screenOn && foreground;
+            default:
+                return screenOn;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package AntharLin.Prodomo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Tiny on-disk record of the session, written on each transition (start, pause, resume,
+ * phase change, reset) and never per tick. It stores the deadline rather than the seconds
+ * left, so the exact remaining time can be rebuilt after a process kill with one small read.
+ * <p>
+ * The file holds two fixed-size, checksummed slots that are written alternately, so a kill
+ * halfway through a write leaves the previous transition intact. A process kill cannot lose a
+ * write that has returned, so there is no fsync on the transition path.
+ */
+public class SessionJournal {
+
+    public interface WallClock {
+        long currentTimeMillis();
+    }
+
+    /** A decoded record. {@link #deadline} is already in the current boot's elapsedRealtime() base. */
+    public static final class Entry {
+        public final boolean active;
+        public final boolean running;
+        /** False for a plain countdown without a work/break cycle. */
+        public final boolean cycling;
+        public final SessionPhase phase;
+        public final int completedCycles;
+        public final long deadline;
+        public final long remainingMillis;
+        /** What the phase started with; 0 when it is the configured duration or unrecorded. */
+        public final long plannedMillis;
+        public final PomodoroSession.Config config;
+
+        Entry(boolean active, boolean running, boolean cycling, SessionPhase phase, int completedCycles,
+              long deadline, long remainingMillis, long plannedMillis, PomodoroSession.Config config) {
+            this.active = active;
+            this.running = running;
+            this.cycling = cycling;
+            this.phase = phase;
+            this.completedCycles = completedCycles;
+            this.deadline = deadline;
+            this.remainingMillis = remainingMillis;
+            this.plannedMillis = plannedMillis;
+            this.config = config;
+        }
+
+        /** Puts {@code session} back into the recorded state; a deadline already passed is left for advanceIfDue(). */
+        public void applyTo(PomodoroSession session) {
+            session.setConfig(config);
+            session.restore(phase, completedCycles, running, deadline, remainingMillis, plannedMillis);
+        }
+
+        /**
+         * The recorded state as of {@code nowMillis}, without building a session, e.g. for a
+         * first frame before the service has restored it. A passed deadline shows as 0.
+         */
+        public TimerSnapshot toSnapshot(long nowMillis) {
+            if (!active) {
+                return TimerSnapshot.IDLE;
+            }
+            long remaining = running ? Math.max(0, deadline - nowMillis) : remainingMillis;
+            return new TimerSnapshot((int) ((remaining + 999) / 1000), running, running ? deadline : 0L, phase,
+                    config.secondsFor(phase), completedCycles);
+        }
+    }
+
+    static final int SLOT_SIZE = 72;
+    private static final int MAGIC = 0x50534a31; // "PSJ1"
+    private static final int CRC_OFFSET = SLOT_SIZE - 4;
+    private static final int FLAG_ACTIVE = 1;
+    private static final int FLAG_RUNNING = 1 << 1;
+    private static final int FLAG_CYCLING = 1 << 2;
+    private static final int FLAG_AUTO_ADVANCE = 1 << 3;
+    /** Larger drifts of the estimated boot time than this mean the device rebooted. */
+    private static final long REBOOT_TOLERANCE_MILLIS = 60_000;
+
+    private final File file;
+    private final CountdownEngine.Clock clock;
+    private final WallClock wallClock;
+    private final ByteBuffer buffer = ByteBuffer.allocate(SLOT_SIZE * 2);
+    private final CRC32 crc = new CRC32();
+    private long sequence = -1;
+
+    public SessionJournal(File file, CountdownEngine.Clock clock, WallClock wallClock) {
+        this.file = file;
+        this.clock = clock;
+        this.wallClock = wallClock;
+    }
+
+    public void record(PomodoroSession session, boolean cycling) throws IOException {
+        CountdownEngine countdown = session.getCountdown();
+        PomodoroSession.Config config = session.getConfig();
+        int flags = FLAG_ACTIVE;
+        if (countdown.isRunning()) {
+            flags |= FLAG_RUNNING;
+        }
+        if (cycling) {
+            flags |= FLAG_CYCLING;
+        }
+        if (config.autoAdvance) {
+            flags |= FLAG_AUTO_ADVANCE;
+        }
+        long plannedMillis = session.getPlannedMillis();
+        if (plannedMillis == config.secondsFor(session.getPhase()) * 1000L || plannedMillis > 0xffffffffL) {
+            plannedMillis = 0;
+        }
+        write(flags, session.getPhase(), session.getCompletedCycles(), countdown.getDeadline(),
+                countdown.remainingMillis(), plannedMillis, config);
+    }
+
+    /** Marks the session as ended so a later restart restores nothing. */
+    public void clear() throws IOException {
+        write(0, SessionPhase.WORK, 0, 0, 0, 0, null);
+    }
+
+    /** Returns the newest intact record, or null when there is none. */
+    public Entry read() throws IOException {
+        if (!file.exists()) {
+            sequence = 0;
+            return null;
+        }
+        buffer.clear();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.getChannel().read(buffer, 0);
+        }
+        int newest = -1;
+        long newestSequence = -1;
+        for (int slot = 0; slot < 2; slot++) {
+            int base = slot * SLOT_SIZE;
+            if (buffer.position() >= base + SLOT_SIZE && isValid(base) && buffer.getLong(base + 4) > newestSequence) {
+                newest = base;
+                newestSequence = buffer.getLong(base + 4);
+            }
+        }
+        sequence = Math.max(newestSequence, 0);
+        return newest < 0 ? null : decode(newest);
+    }
+
+    private boolean isValid(int base) {
+        if (buffer.getInt(base) != MAGIC) {
+            return false;
+        }
+        crc.reset();
+        crc.update(buffer.array(), base, CRC_OFFSET);
+        return (int) crc.getValue() == buffer.getInt(base + CRC_OFFSET);
+    }
+
+    private Entry decode(int base) {
+        int flags = buffer.get(base + 36);
+        if ((flags & FLAG_ACTIVE) == 0) {
+            return new Entry(false, false, false, SessionPhase.WORK, 0, 0, 0, 0, null);
+        }
+        long writtenElapsed = buffer.getLong(base + 12);
+        long writtenWall = buffer.getLong(base + 20);
+        long deadline = buffer.getLong(base + 28);
+        SessionPhase phase = SessionPhase.values()[buffer.get(base + 37)];
+        int cyclesBeforeLongBreak = buffer.getShort(base + 38);
+        int completedCycles = buffer.getInt(base + 40);
+        long remainingMillis = buffer.getLong(base + 44);
+        long plannedMillis = buffer.getInt(base + 64) & 0xffffffffL;
+        PomodoroSession.Config config = new PomodoroSession.Config(buffer.getInt(base + 52),
+                buffer.getInt(base + 56), buffer.getInt(base + 60), cyclesBeforeLongBreak,
+                (flags & FLAG_AUTO_ADVANCE) != 0);
+
+        long nowElapsed = clock.elapsedRealtime();
+        long nowWall = wallClock.currentTimeMillis();
+        boolean rebooted = nowElapsed < writtenElapsed
+                || Math.abs((nowWall - nowElapsed) - (writtenWall - writtenElapsed)) > REBOOT_TOLERANCE_MILLIS;
+        if (rebooted) {
+            // elapsedRealtime() restarted from zero; carry the deadline over through the wall clock
+            deadline = deadline - writtenElapsed + writtenWall - nowWall + nowElapsed;
+        }
+        return new Entry(true, (flags & FLAG_RUNNING) != 0, (flags & FLAG_CYCLING) != 0, phase,
+                completedCycles, deadline, remainingMillis, plannedMillis, config);
+    }
+
+    private void write(int flags, SessionPhase phase, int completedCycles, long deadline, long remainingMillis,
+                       long plannedMillis, PomodoroSession.Config config) throws IOException {
+        if (sequence < 0) {
+            read();
+        }
+        sequence++;
+        int base = (int) (sequence & 1) * SLOT_SIZE;
+        buffer.clear();
+        buffer.putInt(base, MAGIC);
+        buffer.putLong(base + 4, sequence);
+        buffer.putLong(base + 12, clock.elapsedRealtime());
+        buffer.putLong(base + 20, wallClock.currentTimeMillis());
+        buffer.putLong(base + 28, deadline);
+        buffer.put(base + 36, (byte) flags);
+        buffer.put(base + 37, (byte) phase.ordinal());
+        buffer.putShort(base + 38, (short) (config != null ? config.cyclesBeforeLongBreak : 0));
+        buffer.putInt(base + 40, completedCycles);
+        buffer.putLong(base + 44, remainingMillis);
+        buffer.putInt(base + 52, config != null ? config.workSeconds : 0);
+        buffer.putInt(base + 56, config != null ? config.shortBreakSeconds : 0);
+        buffer.putInt(base + 60, config != null ? config.longBreakSeconds : 0);
+        buffer.putInt(base + 64, (int) plannedMillis);
+        crc.reset();
+        crc.update(buffer.array(), base, CRC_OFFSET);
+        buffer.putInt(base + CRC_OFFSET, (int) crc.getValue());
+
+        buffer.limit(base + SLOT_SIZE).position(base);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.getChannel().write(buffer, base);
+        }
+    }
+}
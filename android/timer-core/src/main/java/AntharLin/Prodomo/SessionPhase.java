@@ -0,0 +1,33 @@
+package AntharLin.Prodomo;
+
+/**
+ * Phase of a pomodoro cycle, with the name used for it on the JS side.
+ */
+public enum SessionPhase {
+    WORK("work"),
+    SHORT_BREAK("break"),
+    LONG_BREAK("longBreak");
+
+    private final String jsName;
+
+    SessionPhase(String jsName) {
+        this.jsName = jsName;
+    }
+
+    public String getJsName() {
+        return jsName;
+    }
+
+    public boolean isBreak() {
+        return this != WORK;
+    }
+
+    public static SessionPhase fromJsName(String jsName) {
+        for (SessionPhase phase : values()) {
+            if (phase.jsName.equals(jsName)) {
+                return phase;
+            }
+        }
+        throw new IllegalArgumentException("Unknown phase: " + jsName);
+    }
+}
@@ -0,0 +1,321 @@
+package AntharLin.Prodomo;
+
+import java.io.IOException;
+
+/**
+ * The timing core of the session service, free of Android: the per-second tick loop, the exact
+ * boundary alarm with its wake-lock lead, finishing phases, and journaling every transition.
+ * Time comes from a {@link CountdownEngine.Clock}, ticks go through a {@link Scheduler}, and
+ * everything platform-bound is behind {@link Host}, so tests can run it in virtual time.
+ *
+ * <p>Not thread-safe: call everything on the thread the scheduler runs tasks on.
+ */
+public class SessionRunner {
+
+    /** Runs tasks on the session's thread, e.g. a Handler. */
+    public interface Scheduler {
+        void schedule(Runnable task, long delayMillis);
+
+        void cancel(Runnable task);
+    }
+
+    /** Alarms, wake lock, sound, notification and lifecycle of the hosting service. */
+    public interface Host {
+        /** Sets the exact wakeup for {@code triggerAtMillis}, replacing any earlier one. */
+        void scheduleBoundaryAlarm(long triggerAtMillis);
+
+        void cancelBoundaryAlarm();
+
+        void acquireWakeLock(long timeoutMillis);
+
+        /** Releases the wake lock if it is held. */
+        void releaseWakeLock();
+
+        boolean isWakeLockHeld();
+
+        /** Whether anything that shows the seconds can be seen, i.e. whether ticking is worth it. */
+        boolean isVisible();
+
+        /** The phase that ended at {@code deadlineMillis} is over: ring now. */
+        void onPhaseEnd(long deadlineMillis);
+
+        /** The session changed, or just one more second passed when {@code periodic}. */
+        void onStateChanged(boolean periodic);
+
+        /** The session ended, by a reset or at the end of a one-shot countdown. */
+        void onFinished();
+
+        void onJournalFailed(IOException e);
+    }
+
+    /** The boundary alarm fires this early and the last stretch is timed by ticks, hiding alarm delivery latency. */
+    public static final long ALARM_LEAD_MILLIS = 250;
+    static final long WAKE_LOCK_TIMEOUT_MILLIS = 2_000;
+
+    private final CountdownEngine.Clock clock;
+    private final SessionJournal journal;
+    private final Scheduler scheduler;
+    private final Host host;
+    private final PomodoroSession session;
+    private final CountdownEngine countdown;
+    private final Runnable tick = this::onTick;
+    /** Whether {@link #tick} is posted, so a wakeup does not add a second one. */
+    private boolean tickPending;
+    /** The second last handed to the host while visible, and its deadline; -1 when none. */
+    private int shownSeconds = -1;
+    private long shownDeadline;
+    /** False for a plain countdown started without a work/break cycle. */
+    private boolean cycling;
+    /** True from a start until reset or the end of a one-shot countdown; persisted in the journal. */
+    private boolean active;
+
+    public SessionRunner(CountdownEngine.Clock clock, PomodoroSession.Config config, SessionJournal journal,
+                         Scheduler scheduler, Host host) {
+        this.clock = clock;
+        this.journal = journal;
+        this.scheduler = scheduler;
+        this.host = host;
+        this.session = new PomodoroSession(clock, config);
+        this.countdown = session.getCountdown();
+    }
+
+    public PomodoroSession getSession() {
+        return session;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public boolean isCycling() {
+        return cycling;
+    }
+
+    /**
+     * Continues the session recorded in the journal, if it was still active; returns its entry,
+     * or null when there is nothing to continue. Nothing is scheduled until {@link #onWakeup()}.
+     */
+    public SessionJournal.Entry restore() throws IOException {
+        SessionJournal.Entry entry = journal.read();
+        if (entry == null || !entry.active) {
+            return null;
+        }
+        entry.applyTo(session);
+        cycling = entry.cycling;
+        active = true;
+        return entry;
+    }
+
+    /**
+     * Starts {@code phase} with {@code remainingMillis} on the clock; a null {@code config} is
+     * a one-shot countdown that ends instead of moving on.
+     */
+    public void start(PomodoroSession.Config config, SessionPhase phase, long remainingMillis) {
+        cycling = config != null;
+        if (cycling) {
+            session.setConfig(config);
+        }
+        session.start(phase, remainingMillis);
+        active = true;
+        persist();
+        scheduleBoundary();
+        restartTicking();
+    }
+
+    /**
+     * Moves the current phase to {@code secondsLeft}, e.g. after JS corrected it; false if it
+     * already was. A paused phase stays paused, with nothing scheduled; 0 ends the phase now,
+     * running or paused, just as its deadline would.
+     */
+    public boolean setSecondsLeft(int secondsLeft) {
+        if (secondsLeft == countdown.remainingSeconds()) {
+            return false;
+        }
+        if (secondsLeft <= 0) {
+            cancelTick();
+            countdown.expire();
+            finishPhase();
+            return true;
+        }
+        if (!countdown.isRunning()) {
+            session.hold(secondsLeft * 1000L);
+            persist();
+            stateChanged(false);
+            return true;
+        }
+        session.start(session.getPhase(), secondsLeft * 1000L);
+        persist();
+        scheduleBoundary();
+        restartTicking();
+        return true;
+    }
+
+    /** Durations edited mid-session apply from the next phase; false if there is no cycle to apply them to. */
+    public boolean setConfig(PomodoroSession.Config config) {
+        if (!active || !cycling) {
+            return false;
+        }
+        session.setConfig(config);
+        persist();
+        stateChanged(false);
+        return true;
+    }
+
+    public void pause() {
+        session.pause();
+        persist();
+        scheduleBoundary();
+        cancelTick();
+        stateChanged(false);
+    }
+
+    public void resume() {
+        session.resume();
+        persist();
+        scheduleBoundary();
+        restartTicking();
+    }
+
+    public void reset() {
+        cancelTick();
+        host.cancelBoundaryAlarm();
+        session.reset();
+        active = false;
+        persist();
+        host.onFinished();
+    }
+
+    /** Next phase right away; a one-shot countdown just ends. */
+    public void skip() {
+        if (!active || !cycling) {
+            reset();
+            return;
+        }
+        session.skip();
+        persist();
+        scheduleBoundary();
+        stateChanged(false);
+        restartTicking();
+    }
+
+    /**
+     * The boundary alarm fired, or the process came back: re-arm the boundary, which within the
+     * alarm lead holds the wake lock, and tick now unless a tick is already on its way. The tick
+     * loop then finishes the phase at its deadline, or right away if the deadline already passed.
+     */
+    public void onWakeup() {
+        scheduleBoundary();
+        if (tickPending && !countdown.isFinished()) {
+            // Already ticking towards the deadline; another tick now would repeat the same second
+            return;
+        }
+        cancelTick();
+        onTick();
+    }
+
+    /** Ticks stop while nothing can be seen, except around a boundary; catch up when that changes. */
+    public void onVisibilityChanged() {
+        cancelTick();
+        if (countdown.isRunning() && (host.isVisible() || host.isWakeLockHeld())) {
+            // The exact alarm covered any boundary while nothing was visible
+            postTick(0);
+        }
+    }
+
+    /** Stops every wakeup, e.g. when the service is destroyed. */
+    public void release() {
+        cancelTick();
+        host.cancelBoundaryAlarm();
+        host.releaseWakeLock();
+    }
+
+    private void onTick() {
+        tickPending = false;
+        if (countdown.isRunning() && countdown.isFinished()) {
+            // The alarm goes first; the notification and listeners are updated right after
+            finishPhase();
+            return;
+        }
+        if (countdown.remainingSeconds() != shownSeconds || countdown.getDeadline() != shownDeadline) {
+            // A stale wakeup or the first tick after a transition would repeat the second
+            stateChanged(true);
+        }
+        if (countdown.isRunning() && (host.isVisible() || host.isWakeLockHeld())) {
+            postTick(countdown.millisUntilNextTick());
+        }
+    }
+
+    /** Lets the session advance to its next phase, or ends a one-shot countdown. */
+    private void finishPhase() {
+        host.onPhaseEnd(countdown.getDeadline());
+        if (!cycling) {
+            countdown.stop();
+            active = false;
+            persist();
+            host.cancelBoundaryAlarm();
+            host.releaseWakeLock();
+            host.onFinished();
+            return;
+        }
+        session.advanceIfDue();
+        persist();
+        host.releaseWakeLock();
+        scheduleBoundary();
+        stateChanged(false);
+        restartTicking();
+    }
+
+    private void stateChanged(boolean periodic) {
+        // What goes out while nothing is visible is not drawn, so it must not hold back a redraw
+        shownSeconds = host.isVisible() ? countdown.remainingSeconds() : -1;
+        shownDeadline = countdown.getDeadline();
+        host.onStateChanged(periodic);
+    }
+
+    private void restartTicking() {
+        cancelTick();
+        if (countdown.isRunning()) {
+            // With nothing visible only this first tick runs; the alarm takes over from there
+            postTick(0);
+        }
+    }
+
+    private void postTick(long delayMillis) {
+        scheduler.schedule(tick, delayMillis);
+        tickPending = true;
+    }
+
+    private void cancelTick() {
+        scheduler.cancel(tick);
+        tickPending = false;
+    }
+
+    private void scheduleBoundary() {
+        if (!countdown.isRunning()) {
+            host.cancelBoundaryAlarm();
+            host.releaseWakeLock();
+            return;
+        }
+        long triggerAt = countdown.getDeadline() - ALARM_LEAD_MILLIS;
+        if (triggerAt > clock.elapsedRealtime()) {
+            host.scheduleBoundaryAlarm(triggerAt);
+        } else {
+            // Too close for the lead; stay awake so the tick lands on the deadline, and keep an
+            // alarm on the deadline itself in case the process dies before that tick
+            host.scheduleBoundaryAlarm(countdown.getDeadline());
+            host.acquireWakeLock(WAKE_LOCK_TIMEOUT_MILLIS);
+        }
+    }
+
+    private void persist() {
+        try {
+            if (active) {
+                journal.record(session, cycling);
+            } else {
+                journal.clear();
+            }
+        } catch (IOException e) {
+            host.onJournalFailed(e);
+        }
+    }
+}
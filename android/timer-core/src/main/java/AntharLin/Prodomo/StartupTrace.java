@@ -0,0 +1,72 @@
+package AntharLin.Prodomo;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Milestones of one cold start, measured from {@link #begin} in elapsedRealtime nanoseconds.
+ * The headline number is {@link Stage#NATIVE_DIGITS}: how long until the user sees the
+ * correct remaining time, which the native splash shows well before the WebView has loaded.
+ * Each stage keeps its first mark only; marks may come from any thread.
+ */
+public class StartupTrace {
+
+    public enum Stage {
+        /** The activity's onCreate() finished, bridge and plugins included. */
+        ACTIVITY_CREATED("activityCreated"),
+        /** The native splash drew its first digits. */
+        NATIVE_DIGITS("nativeDigits"),
+        /** The WebView finished loading the page. */
+        PAGE_LOADED("pageLoaded"),
+        /** JS asked for the timer state for its first render. */
+        WEB_DIGITS("webDigits");
+
+        private final String jsName;
+
+        Stage(String jsName) {
+            this.jsName = jsName;
+        }
+
+        public String getJsName() {
+            return jsName;
+        }
+    }
+
+    /** Returned by {@link #millisTo} for a stage not reached (yet). */
+    public static final long NOT_REACHED = -1;
+
+    private static final StartupTrace INSTANCE = new StartupTrace();
+    private static final long UNSET = Long.MIN_VALUE;
+
+    private final AtomicLongArray marks = new AtomicLongArray(Stage.values().length);
+    private volatile long origin = UNSET;
+
+    StartupTrace() {
+    }
+
+    public static StartupTrace getInstance() {
+        return INSTANCE;
+    }
+
+    /** Starts a new trace at {@code nowNanos}, dropping the marks of the previous one. */
+    public void begin(long nowNanos) {
+        for (int i = 0; i < marks.length(); i++) {
+            marks.set(i, UNSET);
+        }
+        origin = nowNanos;
+    }
+
+    /** Records {@code stage} unless it was already reached; false without a trace or on a repeat. */
+    public boolean mark(Stage stage, long nowNanos) {
+        return origin != UNSET && marks.compareAndSet(stage.ordinal(), UNSET, nowNanos);
+    }
+
+    /** Milliseconds from {@link #begin} to {@code stage}, or {@link #NOT_REACHED}. */
+    public long millisTo(Stage stage) {
+        long start = origin;
+        long mark = marks.get(stage.ordinal());
+        if (start == UNSET || mark == UNSET) {
+            return NOT_REACHED;
+        }
+        return (mark - start) / 1_000_000;
+    }
+}
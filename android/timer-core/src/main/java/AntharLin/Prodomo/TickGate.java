@@ -0,0 +1,71 @@
+package AntharLin.Prodomo;
+
+/**
+ * Decides which native ticks are forwarded to JS. JS picks a rate, and while the app is
+ * in the background the gate falls back to phase changes only; a phase change is a
+ * start/restart, a pause or resume, or reaching zero.
+ */
+public class TickGate {
+
+    public enum Rate {
+        EVERY_SECOND("second"),
+        EVERY_TEN_SECONDS("tenSeconds"),
+        PHASE_ONLY("phase");
+
+        private final String jsName;
+
+        Rate(String jsName) {
+            this.jsName = jsName;
+        }
+
+        public String getJsName() {
+            return jsName;
+        }
+
+        public static Rate fromJsName(String jsName) {
+            for (Rate rate : values()) {
+                if (rate.jsName.equals(jsName)) {
+                    return rate;
+                }
+            }
+            throw new IllegalArgumentException("Unknown tick rate: " + jsName);
+        }
+    }
+
+    private Rate requestedRate = Rate.EVERY_SECOND;
+    private boolean background;
+    private int lastSecondsLeft = -1;
+    private boolean lastRunning;
+
+    public synchronized void setRate(Rate rate) {
+        requestedRate = rate;
+    }
+
+    public synchronized void setBackground(boolean background) {
+        this.background = background;
+    }
+
+    public synchronized Rate effectiveRate() {
+        return background ? Rate.PHASE_ONLY : requestedRate;
+    }
+
+    /** Records the tick and returns whether it should be emitted at the current rate. */
+    public synchronized boolean offer(int secondsLeft, boolean running) {
+        boolean phaseChange = running != lastRunning
+                || secondsLeft == 0
+                || secondsLeft > lastSecondsLeft;
+        lastSecondsLeft = secondsLeft;
+        lastRunning = running;
+        if (phaseChange) {
+            return true;
+        }
+        switch (effectiveRate()) {
+            case EVERY_SECOND:
+                return true;
+            case EVERY_TEN_SECONDS:
+                return secondsLeft % 10 == 0;
+            default:
+                return false;
+        }
+    }
+}
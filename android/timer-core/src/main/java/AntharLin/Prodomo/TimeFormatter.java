@@ -0,0 +1,86 @@
+package AntharLin.Prodomo;
+
+/**
+ * Allocation-free "mm:ss" / "h:mm:ss" formatting for the tick path, replacing
+ * {@code String.format("%02d:%02d", ...)}. Strings for 0..99:59 are created once on
+ * first use and reused; the append/char[] variants never allocate.
+ */
+public final class TimeFormatter {
+
+    /** Largest value rendered as "mm:ss"; anything above is "h:mm:ss". */
+    public static final int MAX_CACHED_SECONDS = 99 * 60 + 59;
+
+    private static final String[] CACHE = new String[MAX_CACHED_SECONDS + 1];
+
+    private TimeFormatter() {
+    }
+
+    public static String format(int seconds) {
+        if (seconds < 0) {
+            seconds = 0;
+        }
+        if (seconds > MAX_CACHED_SECONDS) {
+            char[] buffer = new char[16];
+            return new String(buffer, 0, formatInto(buffer, 0, seconds));
+        }
+        String cached = CACHE[seconds];
+        if (cached == null) {
+            char[] buffer = new char[5];
+            formatInto(buffer, 0, seconds);
+            cached = new String(buffer).intern();
+            CACHE[seconds] = cached;
+        }
+        return cached;
+    }
+
+    /** Writes the formatted value into {@code out} at {@code offset} and returns the number of chars written. */
+    public static int formatInto(char[] out, int offset, int seconds) {
+        if (seconds < 0) {
+            seconds = 0;
+        }
+        int start = offset;
+        if (seconds > MAX_CACHED_SECONDS) {
+            int hours = seconds / 3600;
+            seconds %= 3600;
+            offset = writeInt(out, offset, hours);
+            out[offset++] = ':';
+        }
+        int minutes = seconds / 60;
+        int secs = seconds % 60;
+        out[offset++] = (char) ('0' + minutes / 10);
+        out[offset++] = (char) ('0' + minutes % 10);
+        out[offset++] = ':';
+        out[offset++] = (char) ('0' + secs / 10);
+        out[offset++] = (char) ('0' + secs % 10);
+        return offset - start;
+    }
+
+    public static StringBuilder appendTo(StringBuilder sb, int seconds) {
+        if (seconds < 0) {
+            seconds = 0;
+        }
+        if (seconds > MAX_CACHED_SECONDS) {
+            sb.append(seconds / 3600).append(':');
+            seconds %= 3600;
+        }
+        int minutes = seconds / 60;
+        int secs = seconds % 60;
+        return sb.append((char) ('0' + minutes / 10))
+                .append((char) ('0' + minutes % 10))
+                .append(':')
+                .append((char) ('0' + secs / 10))
+                .append((char) ('0' + secs % 10));
+    }
+
+    private static int writeInt(char[] out, int offset, int value) {
+        int digits = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + digits;
+    }
+}
@@ -0,0 +1,34 @@
+package AntharLin.Prodomo;
+
+/**
+ * Immutable view of the session countdown as published on {@link TimerStateBus}.
+ */
+public final class TimerSnapshot {
+
+    public static final TimerSnapshot IDLE = new TimerSnapshot(0, false, 0L, SessionPhase.WORK, 0, 0);
+
+    public final int secondsLeft;
+    public final boolean running;
+    /** {@code elapsedRealtime()} deadline; only meaningful while {@link #running}. */
+    public final long deadline;
+    public final SessionPhase phase;
+    /** Full length of {@link #phase}, for progress rings. */
+    public final int phaseSeconds;
+    public final int completedCycles;
+
+    public TimerSnapshot(int secondsLeft, boolean running, long deadline, SessionPhase phase,
+                         int phaseSeconds, int completedCycles) {
+        this.secondsLeft = secondsLeft;
+        this.running = running;
+        this.deadline = deadline;
+        this.phase = phase;
+        this.phaseSeconds = phaseSeconds;
+        this.completedCycles = completedCycles;
+    }
+
+    @Override
+    public String toString() {
+        return "TimerSnapshot{secondsLeft=" + secondsLeft + ", running=" + running + ", deadline=" + deadline
+                + ", phase=" + phase + ", phaseSeconds=" + phaseSeconds + ", completedCycles=" + completedCycles + "}";
+    }
+}
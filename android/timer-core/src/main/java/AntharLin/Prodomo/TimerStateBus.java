@@ -0,0 +1,91 @@
+package AntharLin.Prodomo;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-process channel for the latest {@link TimerSnapshot}. Publishing is a volatile write
+ * plus a walk over an immutable listener array: no lock, no Intent, no extra main-thread
+ * hop. Readers can poll {@link #getLatest()}, and new listeners get the current state
+ * immediately.
+ */
+public final class TimerStateBus {
+
+    public interface Listener {
+        void onTimerState(TimerSnapshot snapshot);
+    }
+
+    private static final class Registration {
+        final Listener listener;
+        final Executor executor;
+
+        Registration(Listener listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+
+        void deliver(TimerSnapshot snapshot) {
+            if (executor == null) {
+                listener.onTimerState(snapshot);
+            } else {
+                executor.execute(() -> listener.onTimerState(snapshot));
+            }
+        }
+    }
+
+    private static final TimerStateBus INSTANCE = new TimerStateBus();
+    private static final Registration[] NO_REGISTRATIONS = new Registration[0];
+
+    private final AtomicReference<TimerSnapshot> latest = new AtomicReference<>(TimerSnapshot.IDLE);
+    private volatile Registration[] registrations = NO_REGISTRATIONS;
+
+    /** Package-private so tests can use fresh buses; everything else shares {@link #getInstance()}. */
+    TimerStateBus() {
+    }
+
+    public static TimerStateBus getInstance() {
+        return INSTANCE;
+    }
+
+    public TimerSnapshot getLatest() {
+        return latest.get();
+    }
+
+    public void publish(TimerSnapshot snapshot) {
+        latest.set(snapshot);
+        for (Registration registration : registrations) {
+            registration.deliver(snapshot);
+        }
+    }
+
+    /** Registers a listener called on the publishing thread. */
+    public void subscribe(Listener listener) {
+        subscribe(listener, null);
+    }
+
+    /** Registers a listener called through {@code executor}, or directly when it is null. */
+    public void subscribe(Listener listener, Executor executor) {
+        Registration registration = new Registration(listener, executor);
+        synchronized (this) {
+            Registration[] current = registrations;
+            Registration[] grown = new Registration[current.length + 1];
+            System.arraycopy(current, 0, grown, 0, current.length);
+            grown[current.length] = registration;
+            registrations = grown;
+        }
+        registration.deliver(latest.get());
+    }
+
+    public synchronized void unsubscribe(Listener listener) {
+        Registration[] current = registrations;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].listener == listener) {
+                Registration[] shrunk = new Registration[current.length - 1];
+                System.arraycopy(current, 0, shrunk, 0, i);
+                System.arraycopy(current, i + 1, shrunk, i, current.length - i - 1);
+                registrations = shrunk;
+                return;
+            }
+        }
+    }
+}
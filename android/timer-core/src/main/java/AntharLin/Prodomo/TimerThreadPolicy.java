@@ -0,0 +1,32 @@
+package AntharLin.Prodomo;
+
+/**
+ * StrictMode-style hook for where timer work runs. The core classes report their work here
+ * and an installed {@link Guard} decides whether the current thread is allowed, e.g. the
+ * app flags the main looper in debug builds and tests. Without a guard a check is one
+ * volatile read.
+ */
+public final class TimerThreadPolicy {
+
+    public interface Guard {
+        /** Called on the thread doing {@code work}; report or throw if it is the wrong one. */
+        void check(String work);
+    }
+
+    private static volatile Guard guard;
+
+    private TimerThreadPolicy() {
+    }
+
+    /** Installs {@code guard}, or removes the current one when null. */
+    public static void setGuard(Guard value) {
+        guard = value;
+    }
+
+    public static void check(String work) {
+        Guard current = guard;
+        if (current != null) {
+            current.check(work);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package AntharLin.Prodomo;
+
+/**
+ * Hierarchical timing wheel: {@link #LEVELS} wheels of 64 slots, each slot of level L spanning
+ * 64^L ticks. A timeout goes into the lowest level whose window still reaches its deadline and
+ * is cascaded down as time catches up, so {@link #schedule} and {@link #cancel} are O(1) at
+ * any population. A 64-bit occupancy mask per level lets {@link #advance} jump straight over
+ * empty stretches, and {@link #nextExpiry()} tells the single driver when to wake up next.
+ *
+ * <p>Not thread-safe: one scheduler thread owns the wheel and calls everything on it.
+ */
+public class TimingWheel {
+
+    public interface Task {
+        void onExpired(Timeout timeout);
+    }
+
+    /** Handle of one scheduled task; also the node of the slot's intrusive list. */
+    public static final class Timeout {
+        private final Task task;
+        private final long deadlineMillis;
+        private final long deadlineTick;
+        private Timeout prev;
+        private Timeout next;
+        private int slot = -1;
+
+        private Timeout(Task task, long deadlineMillis, long deadlineTick) {
+            this.task = task;
+            this.deadlineMillis = deadlineMillis;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public long getDeadline() {
+            return deadlineMillis;
+        }
+
+        public boolean isPending() {
+            return slot >= 0;
+        }
+    }
+
+    static final int LEVELS = 6;
+    private static final String POLICY_TAG = "TimingWheel";
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private final long tickMillis;
+    private final Timeout[] heads = new Timeout[LEVELS * SLOTS];
+    private final long[] occupied = new long[LEVELS];
+    /** Every tick before this one has been processed. */
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tickMillis resolution; deadlines are rounded up to it, so timeouts never fire early
+     * @param nowMillis  current time of the clock later passed to {@link #advance}
+     */
+    public TimingWheel(long tickMillis, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Schedules {@code task} for {@code deadlineMillis}; a deadline in the past fires on the next advance. */
+    public Timeout schedule(long deadlineMillis, Task task) {
+        TimerThreadPolicy.check(POLICY_TAG);
+        long tick = (deadlineMillis + tickMillis - 1) / tickMillis;
+        Timeout timeout = new Timeout(task, deadlineMillis, tick);
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /** Returns false if the timeout already fired or was cancelled. */
+    public boolean cancel(Timeout timeout) {
+        TimerThreadPolicy.check(POLICY_TAG);
+        if (!timeout.isPending()) {
+            return false;
+        }
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * Fires every timeout due at or before {@code nowMillis}, in deadline-tick order, and returns
+     * how many fired. Tasks may schedule or cancel timeouts; one due by then also fires in this call.
+     */
+    public int advance(long nowMillis) {
+        TimerThreadPolicy.check(POLICY_TAG);
+        long nowTick = nowMillis / tickMillis;
+        int fired = 0;
+        long event;
+        while ((event = nextEventTick()) <= nowTick) {
+            currentTick = event;
+            cascade();
+            int slot = (int) (currentTick & SLOT_MASK);
+            Timeout timeout;
+            while ((timeout = heads[slot]) != null) {
+                unlink(timeout);
+                size--;
+                fired++;
+                timeout.task.onExpired(timeout);
+            }
+        }
+        if (nowTick > currentTick) {
+            // Nothing is due in between, so the remaining empty ticks can be skipped at once
+            currentTick = nowTick;
+        }
+        return fired;
+    }
+
+    /**
+     * Deadline, rounded up to the tick, of the earliest pending timeout; {@link Long#MAX_VALUE}
+     * when the wheel is empty. Only the nearest occupied slot of each level is inspected.
+     */
+    public long nextExpiry() {
+        long earliest = Long.MAX_VALUE;
+        for (int level = 0; level < LEVELS; level++) {
+            if (occupied[level] == 0) {
+                continue;
+            }
+            int distance = distanceToNextSlot(level);
+            int index = (int) (((currentTick >>> (SLOT_BITS * level)) + distance) & SLOT_MASK);
+            for (Timeout t = heads[level * SLOTS + index]; t != null; t = t.next) {
+                earliest = Math.min(earliest, t.deadlineTick);
+            }
+        }
+        return earliest == Long.MAX_VALUE ? earliest : Math.max(earliest, currentTick) * tickMillis;
+    }
+
+    /** Tick of the next expiry or cascade; {@link Long#MAX_VALUE} when empty. */
+    private long nextEventTick() {
+        long next = Long.MAX_VALUE;
+        for (int level = 0; level < LEVELS; level++) {
+            if (occupied[level] == 0) {
+                continue;
+            }
+            int shift = SLOT_BITS * level;
+            long tick = ((currentTick >>> shift) + distanceToNextSlot(level)) << shift;
+            next = Math.min(next, Math.max(tick, currentTick));
+        }
+        return next;
+    }
+
+    private int distanceToNextSlot(int level) {
+        int index = (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        return Long.numberOfTrailingZeros(Long.rotateRight(occupied[level], index));
+    }
+
+    /** Moves the upper-level slots that start at {@link #currentTick} down, highest level first. */
+    private void cascade() {
+        for (int level = LEVELS - 1; level > 0; level--) {
+            int shift = SLOT_BITS * level;
+            if ((currentTick & ((1L << shift) - 1)) != 0) {
+                continue;
+            }
+            int slot = level * SLOTS + (int) ((currentTick >>> shift) & SLOT_MASK);
+            Timeout timeout = heads[slot];
+            if (timeout == null) {
+                continue;
+            }
+            heads[slot] = null;
+            occupied[level] &= ~(1L << (slot & SLOT_MASK));
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                timeout.prev = null;
+                timeout.next = null;
+                place(timeout);
+                timeout = next;
+            }
+        }
+    }
+
+    /** Slot a timeout sits in, {@code level * 64 + index}, or -1 once it fired or was cancelled. */
+    static int slotOf(Timeout timeout) {
+        return timeout.slot;
+    }
+
+    /** First timeout in {@code slot}'s list, where {@link #schedule} links new ones in. */
+    Timeout headOf(int slot) {
+        return heads[slot];
+    }
+
+    private void place(Timeout timeout) {
+        long tick = Math.max(timeout.deadlineTick, currentTick);
+        int level = 0;
+        // Lowest level whose 64 slots, counted from the current one, reach the deadline
+        while (level < LEVELS - 1 && (tick >>> (SLOT_BITS * level)) - (currentTick >>> (SLOT_BITS * level)) >= SLOTS) {
+            level++;
+        }
+        int shift = SLOT_BITS * level;
+        long index = tick >>> shift;
+        long maxIndex = (currentTick >>> shift) + SLOT_MASK;
+        if (index > maxIndex) {
+            // Beyond the top wheel: park in its farthest slot and re-place on the cascade
+            index = maxIndex;
+        }
+        int slot = level * SLOTS + (int) (index & SLOT_MASK);
+        Timeout head = heads[slot];
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        heads[slot] = timeout;
+        occupied[level] |= 1L << (slot & SLOT_MASK);
+        timeout.slot = slot;
+    }
+
+    private void unlink(Timeout timeout) {
+        int slot = timeout.slot;
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            heads[slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        if (heads[slot] == null) {
+            occupied[slot / SLOTS] &= ~(1L << (slot & SLOT_MASK));
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.slot = -1;
+    }
+}
@@ -0,0 +1,60 @@
+package AntharLin.Prodomo;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class AlarmLatencyRecorderTest {
+
+    @Test
+    public void recordsLatencyAgainstDeadline() throws Exception {
+        AlarmLatencyRecorder recorder = new AlarmLatencyRecorder();
+        assertEquals(12, recorder.record(10_000, 10_012, true));
+        assertEquals(80, recorder.record(20_000, 20_080, true));
+        assertEquals(-3, recorder.record(30_000, 29_997, true));
+
+        assertEquals(3, recorder.getCount());
+        assertEquals(1, recorder.getOverBudgetCount());
+        assertEquals(0, recorder.getFailedCount());
+        assertEquals(80, recorder.getMaxLatency());
+        assertEquals(29, recorder.getMeanLatency());
+        assertArrayEquals(new long[] {12, 80, -3}, recorder.recentLatencies());
+    }
+
+    @Test
+    public void unplayedAlarmsCountAsFailedNotLate() throws Exception {
+        AlarmLatencyRecorder recorder = new AlarmLatencyRecorder();
+        recorder.record(10_000, 10_500, false);
+        assertEquals(1, recorder.getFailedCount());
+        assertEquals(0, recorder.getOverBudgetCount());
+    }
+
+    @Test
+    public void keepsOnlyRecentSamples() throws Exception {
+        AlarmLatencyRecorder recorder = new AlarmLatencyRecorder();
+        for (int i = 0; i < AlarmLatencyRecorder.CAPACITY + 10; i++) {
+            recorder.record(i * 1000L, i * 1000L + i, true);
+        }
+        long[] recent = recorder.recentLatencies();
+        assertEquals(AlarmLatencyRecorder.CAPACITY, recent.length);
+        assertEquals(10, recent[0]);
+        assertEquals(AlarmLatencyRecorder.CAPACITY + 9, recent[recent.length - 1]);
+        assertEquals(AlarmLatencyRecorder.CAPACITY + 10, recorder.getCount());
+    }
+
+    @Test
+    public void sinkSeesEverySample() throws Exception {
+        AlarmLatencyRecorder recorder = new AlarmLatencyRecorder();
+        List<long[]> samples = new ArrayList<>();
+        recorder.setSink((scheduled, actual, played) -> samples.add(new long[] {scheduled, actual}));
+        recorder.record(1_000, 1_020, true);
+        recorder.clear();
+        recorder.record(2_000, 2_001, true);
+
+        assertEquals(2, samples.size());
+        assertArrayEquals(new long[] {2_000, 2_001}, samples.get(1));
+        assertEquals(1, recorder.getCount());
+    }
+}
@@ -0,0 +1,80 @@
+package AntharLin.Prodomo;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ChronometerGateTest {
+
+    private long now = 1_000_000L;
+    private final PomodoroSession session = new PomodoroSession(() -> now,
+            new PomodoroSession.Config(25 * 60, 5 * 60, 15 * 60, 2, true));
+    private final ChronometerGate gate = new ChronometerGate();
+    private int passed;
+
+    /** One service tick: advance the session and publish, as the service does every second. */
+    private void tick() {
+        session.advanceIfDue();
+        if (gate.offer(session.snapshot())) {
+            passed++;
+        }
+    }
+
+    private void run(int seconds) {
+        for (int i = 0; i < seconds; i++) {
+            now += 1000;
+            tick();
+        }
+    }
+
+    @Test
+    public void runningTicksDoNotPass() throws Exception {
+        session.start();
+        tick();
+        run(10 * 60);
+        assertEquals(1, passed);
+    }
+
+    @Test
+    public void onlyTransitionsPassOverAFullCycle() throws Exception {
+        session.start();
+        tick();
+        run(10 * 60);
+        session.pause();
+        tick();
+        run(60);
+        session.resume();
+        tick();
+        // Rest of the work phase, a short break, work, a long break and into the next work phase
+        run(15 * 60 + 5 * 60 + 25 * 60 + 15 * 60 + 30);
+        assertEquals(SessionPhase.WORK, session.getPhase());
+        assertEquals(2, session.getCompletedCycles());
+        // start + pause + resume + four phase changes, out of ~5,000 ticks
+        assertEquals(7, passed);
+    }
+
+    @Test
+    public void skipAndResetPassEvenWithFewerSecondsLeft() throws Exception {
+        session.start();
+        tick();
+        run(60);
+        session.skip();
+        tick();
+        assertEquals(SessionPhase.SHORT_BREAK, session.getPhase());
+        session.pause();
+        tick();
+        session.reset();
+        tick();
+        tick();
+        assertEquals(4, passed);
+    }
+
+    @Test
+    public void invalidateLetsTheSameStatePassAgain() throws Exception {
+        session.start();
+        tick();
+        gate.invalidate();
+        tick();
+        assertEquals(2, passed);
+    }
+}
@@ -0,0 +1,136 @@
+package AntharLin.Prodomo;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class CountdownEngineTest {
+
+    private static class FakeClock implements CountdownEngine.Clock {
+        long now = 1_000_000L;
+
+        @Override
+        public long elapsedRealtime() {
+            return now;
+        }
+    }
+
+    @Test
+    public void remainingSecondsRoundsUpUntilDeadline() throws Exception {
+        FakeClock clock = new FakeClock();
+        CountdownEngine engine = new CountdownEngine(clock);
+        engine.start(3000);
+
+        assertEquals(3, engine.remainingSeconds());
+        clock.now += 1;
+        assertEquals(3, engine.remainingSeconds());
+        clock.now += 999;
+        assertEquals(2, engine.remainingSeconds());
+        clock.now += 2000;
+        assertEquals(0, engine.remainingSeconds());
+        assertTrue(engine.isFinished());
+    }
+
+    @Test
+    public void expireEndsARunningOrPausedCountdownNow() throws Exception {
+        FakeClock clock = new FakeClock();
+        CountdownEngine engine = new CountdownEngine(clock);
+        engine.start(10_000);
+        engine.pause();
+        clock.now += 5_000;
+
+        engine.expire();
+        assertTrue(engine.isRunning());
+        assertTrue(engine.isFinished());
+        assertEquals(clock.now, engine.getDeadline());
+        assertEquals(0, engine.millisUntilNextTick());
+    }
+
+    @Test
+    public void nextTickLandsOnWholeSecondBoundary() throws Exception {
+        FakeClock clock = new FakeClock();
+        CountdownEngine engine = new CountdownEngine(clock);
+        engine.start(10_000);
+
+        assertEquals(1000, engine.millisUntilNextTick());
+        clock.now += 1337;
+        assertEquals(663, engine.millisUntilNextTick());
+        clock.now += 663;
+        assertEquals(8, engine.remainingSeconds());
+        assertEquals(1000, engine.millisUntilNextTick());
+        clock.now += 8000;
+        assertEquals(0, engine.millisUntilNextTick());
+    }
+
+    @Test
+    public void pauseAndResumeKeepExactRemainder() throws Exception {
+        FakeClock clock = new FakeClock();
+        CountdownEngine engine = new CountdownEngine(clock);
+        engine.start(60_000);
+
+        clock.now += 12_345;
+        engine.pause();
+        assertFalse(engine.isRunning());
+        clock.now += 5 * 60_000;
+        assertEquals(47_655, engine.remainingMillis());
+
+        engine.resume();
+        assertTrue(engine.isRunning());
+        clock.now += 47_654;
+        assertEquals(1, engine.remainingMillis());
+        clock.now += 1;
+        assertTrue(engine.isFinished());
+    }
+
+    @Test
+    public void resetRestoresDurationAndStopClearsIt() throws Exception {
+        FakeClock clock = new FakeClock();
+        CountdownEngine engine = new CountdownEngine(clock);
+        engine.start(25_000);
+        clock.now += 10_000;
+
+        engine.reset();
+        assertFalse(engine.isRunning());
+        assertEquals(25, engine.remainingSeconds());
+
+        engine.stop();
+        assertEquals(0, engine.remainingSeconds());
+        engine.resume();
+        assertFalse(engine.isRunning());
+    }
+
+    @Test
+    public void jitteredWakeupsDoNotDrift() throws Exception {
+        FakeClock clock = new FakeClock();
+        CountdownEngine engine = new CountdownEngine(clock);
+        Random random = new Random(42);
+        long start = clock.now;
+        engine.start(40 * 60_000L);
+
+        int lastShown = engine.remainingSeconds();
+        int ticks = 0;
+        while (!engine.isFinished()) {
+            // Handler latency / GC pauses: every wakeup arrives 0..400 ms late
+            clock.now += engine.millisUntilNextTick() + random.nextInt(400);
+            int shown = engine.remainingSeconds();
+            assertTrue("display skipped a second", lastShown - shown <= 1);
+            lastShown = shown;
+            ticks++;
+        }
+
+        assertEquals(40 * 60, ticks);
+        assertTrue(clock.now - start - 40 * 60_000L < 400);
+    }
+
+    @Test
+    public void dozeStallIsRecoveredOnNextWakeup() throws Exception {
+        FakeClock clock = new FakeClock();
+        CountdownEngine engine = new CountdownEngine(clock);
+        engine.start(40 * 60_000L);
+
+        clock.now += 7 * 60_000L + 250;
+        assertEquals(33 * 60, engine.remainingSeconds());
+        assertEquals(750, engine.millisUntilNextTick());
+    }
+}
@@ -0,0 +1,117 @@
+package AntharLin.Prodomo;
+
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @After
+    public void tearDown() {
+        Diagnostics.setEnabled(false);
+        Diagnostics.reset();
+    }
+
+    @Test
+    public void bucketsCoverEveryValueWithinPrecision() throws Exception {
+        long[] values = {0, 1, 31, 32, 33, 63, 64, 1000, 123_456, LatencyHistogram.MAX_VALUE};
+        for (long value : values) {
+            int index = LatencyHistogram.indexOf(value);
+            long lowest = LatencyHistogram.lowestValueAt(index);
+            long highest = LatencyHistogram.highestValueAt(index);
+            assertTrue(value + " in [" + lowest + ", " + highest + "]", lowest <= value && value <= highest);
+            assertTrue((highest - lowest) <= value / LatencyHistogram.SUB_BUCKETS);
+        }
+        assertEquals(LatencyHistogram.indexOf(33) + 1, LatencyHistogram.indexOf(34));
+    }
+
+    @Test
+    public void percentilesOfUniformValues() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        for (int value = 1; value <= 10_000; value++) {
+            histogram.record(value);
+        }
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000, histogram.getMax());
+        assertEquals(5000, histogram.getMean());
+        assertEquals(5000, histogram.percentile(50), 5000 * 0.04);
+        assertEquals(9900, histogram.percentile(99), 9900 * 0.04);
+        assertEquals(10_000, histogram.percentile(100));
+        assertEquals(1, histogram.percentile(0));
+    }
+
+    @Test
+    public void outliersShowOnlyInTheTail() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        for (int i = 0; i < 990; i++) {
+            histogram.record(200);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(80_000);
+        }
+        histogram.record(-5);
+        assertEquals(200, histogram.percentile(90), 200 * 0.04);
+        assertEquals(80_000, histogram.percentile(99.9), 80_000 * 0.04);
+        assertEquals(80_000, histogram.getMax());
+    }
+
+    @Test
+    public void concurrentRecordingLosesNothing() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    histogram.record(i % 1000 + offset);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(200_000, histogram.getCount());
+        assertEquals(1002, histogram.getMax());
+        long[] total = {0};
+        histogram.forEachBucket((lowest, highest, count) -> total[0] += count);
+        assertEquals(200_000, total[0]);
+    }
+
+    @Test
+    public void disabledDiagnosticsRecordNothing() throws Exception {
+        long begin = Diagnostics.begin();
+        Diagnostics.end(Diagnostics.NOTIFY_DURATION, begin);
+        Diagnostics.recordLateness(1_000_000, 5_000_000);
+        assertEquals(0, Diagnostics.NOTIFY_DURATION.getCount());
+        assertEquals(0, Diagnostics.TICK_LATENESS.getCount());
+
+        Diagnostics.setEnabled(true);
+        Diagnostics.recordLateness(1_000_000, 5_000_000);
+        Diagnostics.recordLateness(0, 5_000_000);
+        assertEquals(1, Diagnostics.TICK_LATENESS.getCount());
+        assertEquals(4000, Diagnostics.TICK_LATENESS.getMax());
+    }
+
+    @Test
+    public void reportListsEveryHistogram() throws Exception {
+        Diagnostics.setEnabled(true);
+        Diagnostics.BRIDGE_EMIT.record(150);
+        StringWriter out = new StringWriter();
+        Diagnostics.writeReport(out, 1234);
+        String report = out.toString();
+        assertTrue(report.startsWith("{\"time\":1234,\"enabled\":true"));
+        for (LatencyHistogram histogram : Diagnostics.ALL) {
+            assertTrue(report.contains("\"" + histogram.getName() + "\":{\"count\":"));
+        }
+        assertTrue(report.contains("\"bridgeEmit\":{\"count\":1,\"mean\":150,\"max\":150,\"p50\":150"));
+        assertTrue(report.contains("\"p99.9\":"));
+        assertTrue(report.endsWith("}}"));
+    }
+}
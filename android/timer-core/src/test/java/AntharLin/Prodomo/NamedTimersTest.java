@@ -0,0 +1,108 @@
+package AntharLin.Prodomo;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class NamedTimersTest {
+
+    private long now = 50_000;
+    private final NamedTimers timers = new NamedTimers(() -> now, 100);
+    private final List<String> expired = new ArrayList<>();
+
+    {
+        timers.setListener(timer -> expired.add(timer.getId()));
+    }
+
+    private void advanceTo(long time) {
+        now = time;
+        timers.advance();
+    }
+
+    @Test
+    public void parallelTimersExpireIndependently() throws Exception {
+        timers.start("focus", "Focus", 25 * 60_000);
+        timers.start("standup", "Stand-up", 10 * 60_000);
+        timers.start("tea", "Tea", 3 * 60_000);
+        assertEquals(50_000 + 3 * 60_000, timers.nextExpiry());
+
+        advanceTo(50_000 + 3 * 60_000);
+        assertEquals(1, expired.size());
+        assertEquals("tea", expired.get(0));
+        assertNull(timers.get("tea"));
+        assertEquals(7 * 60_000, timers.get("standup").remainingMillis(now));
+
+        advanceTo(50_000 + 25 * 60_000);
+        assertEquals(3, expired.size());
+        assertEquals("standup", expired.get(1));
+        assertEquals("focus", expired.get(2));
+        assertEquals(Long.MAX_VALUE, timers.nextExpiry());
+    }
+
+    @Test
+    public void startingAnExistingIdReplacesIt() throws Exception {
+        timers.start("tea", "Tea", 60_000);
+        now += 30_000;
+        timers.start("tea", "Green tea", 120_000);
+        assertEquals(1, timers.size());
+        advanceTo(50_000 + 60_000);
+        assertTrue(expired.isEmpty());
+        assertEquals("Green tea", timers.get("tea").getLabel());
+        advanceTo(50_000 + 150_000);
+        assertEquals(1, expired.size());
+    }
+
+    @Test
+    public void pausedTimersKeepTheirRemainingTime() throws Exception {
+        timers.start("tea", "Tea", 60_000);
+        now += 20_000;
+        assertTrue(timers.pause("tea"));
+        assertFalse(timers.pause("tea"));
+        advanceTo(now + 600_000);
+        assertTrue(expired.isEmpty());
+        assertEquals(40_000, timers.get("tea").remainingMillis(now));
+
+        assertTrue(timers.resume("tea"));
+        advanceTo(now + 39_999);
+        assertTrue(expired.isEmpty());
+        advanceTo(now + 1);
+        assertEquals(1, expired.size());
+        assertFalse(timers.resume("tea"));
+    }
+
+    @Test
+    public void cancelRemovesWithoutExpiring() throws Exception {
+        timers.start("tea", "Tea", 60_000);
+        assertTrue(timers.cancel("tea"));
+        assertFalse(timers.cancel("tea"));
+        advanceTo(now + 60_000);
+        assertTrue(expired.isEmpty());
+        assertEquals(0, timers.size());
+    }
+
+    @Test
+    public void thousandsOfTimersShareOneWakeupChain() throws Exception {
+        // 5000 timers on 300 distinct second boundaries, half of them cancelled again
+        for (int i = 0; i < 5000; i++) {
+            timers.start("t" + i, null, 1000L * (1 + i % 300));
+        }
+        for (int i = 0; i < 5000; i += 2) {
+            timers.cancel("t" + i);
+        }
+        int wakeups = 0;
+        while (timers.nextExpiry() != Long.MAX_VALUE) {
+            advanceTo(timers.nextExpiry());
+            wakeups++;
+        }
+        assertEquals(150, wakeups);
+        assertEquals(2500, expired.size());
+        assertEquals(0, timers.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyDurations() throws Exception {
+        timers.start("tea", "Tea", 0);
+    }
+}
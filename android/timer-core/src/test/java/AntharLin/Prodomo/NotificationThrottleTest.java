@@ -0,0 +1,71 @@
+package AntharLin.Prodomo;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class NotificationThrottleTest {
+
+    private long now = 0;
+
+    private int simulateMinutes(NotificationThrottle throttle, int minutes) {
+        CountdownEngine countdown = new CountdownEngine(() -> now);
+        countdown.start(minutes * 60_000L);
+        long before = throttle.getTotalPosts();
+        while (!countdown.isFinished()) {
+            now += countdown.millisUntilNextTick();
+            throttle.offer("Working - " + throttle.displayUnits(countdown.remainingSeconds()));
+        }
+        return (int) (throttle.getTotalPosts() - before);
+    }
+
+    @Test
+    public void identicalTextIsNotReposted() throws Exception {
+        NotificationThrottle throttle = new NotificationThrottle(() -> now);
+        assertTrue(throttle.offer("Working - 25:00"));
+        assertFalse(throttle.offer("Working - 25:00"));
+        assertTrue(throttle.offer("Working - 24:59"));
+        throttle.invalidate();
+        assertTrue(throttle.offer("Working - 24:59"));
+        assertEquals(3, throttle.getTotalPosts());
+    }
+
+    @Test
+    public void secondGranularityPostsOncePerSecond() throws Exception {
+        NotificationThrottle throttle = new NotificationThrottle(() -> now);
+        assertEquals(10 * 60, simulateMinutes(throttle, 10));
+        assertEquals(60, throttle.postsPerMinute());
+    }
+
+    @Test
+    public void minuteGranularityPostsOncePerMinute() throws Exception {
+        NotificationThrottle throttle = new NotificationThrottle(() -> now);
+        throttle.setGranularity(NotificationThrottle.Granularity.MINUTES);
+        // One post per minute boundary plus the final 0
+        assertEquals(11, simulateMinutes(throttle, 10));
+        assertTrue(throttle.postsPerMinute() <= 1);
+    }
+
+    @Test
+    public void minuteUnitsRoundUp() throws Exception {
+        NotificationThrottle throttle = new NotificationThrottle(() -> now);
+        throttle.setGranularity(NotificationThrottle.Granularity.MINUTES);
+        assertEquals(25, throttle.displayUnits(25 * 60));
+        assertEquals(25, throttle.displayUnits(24 * 60 + 1));
+        assertEquals(1, throttle.displayUnits(1));
+        assertEquals(0, throttle.displayUnits(0));
+    }
+
+    @Test
+    public void rateWindowForgetsOldPosts() throws Exception {
+        NotificationThrottle throttle = new NotificationThrottle(() -> now);
+        for (int i = 0; i < 30; i++) {
+            throttle.offer("t" + i);
+            now += 1000;
+        }
+        assertEquals(30, throttle.postsPerMinute());
+        now += 60_000;
+        assertEquals(0, throttle.postsPerMinute());
+        assertEquals(30, throttle.getTotalPosts());
+    }
+}
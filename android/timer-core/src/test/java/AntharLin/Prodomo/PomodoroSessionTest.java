@@ -0,0 +1,308 @@
+package AntharLin.Prodomo;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class PomodoroSessionTest {
+
+    private static final int WORK = 25 * 60;
+    private static final int SHORT = 5 * 60;
+    private static final int LONG = 15 * 60;
+
+    private long now = 1_000_000L;
+
+    private PomodoroSession newSession(int cyclesBeforeLongBreak, boolean autoAdvance) {
+        return new PomodoroSession(() -> now,
+                new PomodoroSession.Config(WORK, SHORT, LONG, cyclesBeforeLongBreak, autoAdvance));
+    }
+
+    private void finishPhase(PomodoroSession session) {
+        now = session.getCountdown().getDeadline();
+        assertEquals(1, session.advanceIfDue());
+    }
+
+    @Test
+    public void newSessionIsIdleAtFullWorkPhase() throws Exception {
+        PomodoroSession session = newSession(4, true);
+        assertEquals(SessionPhase.WORK, session.getPhase());
+        assertFalse(session.isRunning());
+        assertEquals(WORK, session.getCountdown().remainingSeconds());
+        assertEquals(0, session.getCompletedCycles());
+        assertEquals(0, session.advanceIfDue());
+    }
+
+    @Test
+    public void cyclesThroughShortAndLongBreaks() throws Exception {
+        PomodoroSession session = newSession(4, true);
+        session.start();
+
+        SessionPhase[] expected = {
+                SessionPhase.SHORT_BREAK, SessionPhase.WORK,
+                SessionPhase.SHORT_BREAK, SessionPhase.WORK,
+                SessionPhase.SHORT_BREAK, SessionPhase.WORK,
+                SessionPhase.LONG_BREAK, SessionPhase.WORK,
+                SessionPhase.SHORT_BREAK,
+        };
+        for (SessionPhase phase : expected) {
+            assertEquals(phase, session.nextPhase());
+            finishPhase(session);
+            assertEquals(phase, session.getPhase());
+            assertTrue(session.isRunning());
+            assertEquals(session.getConfig().secondsFor(phase), session.getCountdown().remainingSeconds());
+        }
+        assertEquals(5, session.getCompletedCycles());
+    }
+
+    @Test
+    public void longBreaksDisabledWithZeroCycles() throws Exception {
+        PomodoroSession session = newSession(0, true);
+        session.start();
+        for (int i = 0; i < 20; i++) {
+            finishPhase(session);
+            assertNotEquals(SessionPhase.LONG_BREAK, session.getPhase());
+        }
+        assertEquals(10, session.getCompletedCycles());
+    }
+
+    @Test
+    public void longBreakEveryCycleWhenNIsOne() throws Exception {
+        PomodoroSession session = newSession(1, true);
+        session.start();
+        finishPhase(session);
+        assertEquals(SessionPhase.LONG_BREAK, session.getPhase());
+        finishPhase(session);
+        finishPhase(session);
+        assertEquals(SessionPhase.LONG_BREAK, session.getPhase());
+    }
+
+    @Test
+    public void phasesChainDeadlineToDeadline() throws Exception {
+        PomodoroSession session = newSession(4, true);
+        session.start();
+        long workDeadline = session.getCountdown().getDeadline();
+
+        // The wakeup arrives 3.5 s late; the break still ends exactly SHORT after the work deadline
+        now = workDeadline + 3_500;
+        session.advanceIfDue();
+        assertEquals(workDeadline + SHORT * 1000L, session.getCountdown().getDeadline());
+        assertEquals(SHORT * 1000L - 3_500, session.getCountdown().remainingMillis());
+    }
+
+    @Test
+    public void catchesUpAcrossSeveralMissedBoundaries() throws Exception {
+        PomodoroSession session = newSession(4, true);
+        session.start();
+        long start = now;
+
+        // Asleep through work, break, and 10 minutes into the next work phase
+        now = start + (WORK + SHORT + 600) * 1000L;
+        assertEquals(2, session.advanceIfDue());
+        assertEquals(SessionPhase.WORK, session.getPhase());
+        assertEquals(1, session.getCompletedCycles());
+        assertEquals(WORK - 600, session.getCountdown().remainingSeconds());
+    }
+
+    @Test
+    public void withoutAutoAdvanceNextPhaseWaitsPaused() throws Exception {
+        PomodoroSession session = newSession(4, false);
+        session.start();
+        now = session.getCountdown().getDeadline() + 60_000;
+
+        assertEquals(1, session.advanceIfDue());
+        assertEquals(SessionPhase.SHORT_BREAK, session.getPhase());
+        assertFalse(session.isRunning());
+        assertEquals(SHORT, session.getCountdown().remainingSeconds());
+        assertEquals(0, session.advanceIfDue());
+
+        session.resume();
+        assertTrue(session.isRunning());
+        assertEquals(now + SHORT * 1000L, session.getCountdown().getDeadline());
+    }
+
+    @Test
+    public void pauseFreezesRemainingAndBlocksAdvance() throws Exception {
+        PomodoroSession session = newSession(4, true);
+        session.start();
+        now += 60_000;
+        session.pause();
+        now += WORK * 1000L;
+
+        assertEquals(0, session.advanceIfDue());
+        assertEquals(WORK - 60, session.getCountdown().remainingSeconds());
+
+        session.resume();
+        now += (WORK - 60) * 1000L;
+        assertEquals(1, session.advanceIfDue());
+        assertEquals(SessionPhase.SHORT_BREAK, session.getPhase());
+    }
+
+    @Test
+    public void skipMovesOnImmediately() throws Exception {
+        PomodoroSession session = newSession(2, true);
+        session.start();
+        now += 10_000;
+
+        session.skip();
+        assertEquals(SessionPhase.SHORT_BREAK, session.getPhase());
+        assertEquals(1, session.getCompletedCycles());
+        assertTrue(session.isRunning());
+        assertEquals(now + SHORT * 1000L, session.getCountdown().getDeadline());
+
+        session.skip();
+        session.skip();
+        assertEquals(SessionPhase.LONG_BREAK, session.getPhase());
+    }
+
+    @Test
+    public void skipWhilePausedStaysPaused() throws Exception {
+        PomodoroSession session = newSession(4, true);
+        session.start();
+        session.pause();
+        session.skip();
+        assertEquals(SessionPhase.SHORT_BREAK, session.getPhase());
+        assertFalse(session.isRunning());
+        assertEquals(SHORT, session.getCountdown().remainingSeconds());
+    }
+
+    @Test
+    public void skippingABreakDoesNotCountACycle() throws Exception {
+        PomodoroSession session = newSession(4, true);
+        session.start(SessionPhase.SHORT_BREAK, 30_000);
+        session.skip();
+        assertEquals(SessionPhase.WORK, session.getPhase());
+        assertEquals(0, session.getCompletedCycles());
+    }
+
+    @Test
+    public void resetReturnsToIdleFirstWorkPhase() throws Exception {
+        PomodoroSession session = newSession(4, true);
+        session.start();
+        finishPhase(session);
+        finishPhase(session);
+        session.reset();
+
+        assertEquals(SessionPhase.WORK, session.getPhase());
+        assertEquals(0, session.getCompletedCycles());
+        assertFalse(session.isRunning());
+        assertEquals(WORK, session.getCountdown().remainingSeconds());
+    }
+
+    @Test
+    public void startAtPhaseWithPartialRemaining() throws Exception {
+        PomodoroSession session = newSession(4, true);
+        session.start(SessionPhase.LONG_BREAK, 90_000);
+        assertEquals(SessionPhase.LONG_BREAK, session.getPhase());
+        assertEquals(90, session.getCountdown().remainingSeconds());
+        assertEquals(SessionPhase.WORK, session.nextPhase());
+    }
+
+    @Test
+    public void configChangeAppliesFromNextPhase() throws Exception {
+        PomodoroSession session = newSession(4, true);
+        session.start();
+        long deadline = session.getCountdown().getDeadline();
+        session.setConfig(new PomodoroSession.Config(50 * 60, 10 * 60, 30 * 60, 4, true));
+
+        assertEquals(deadline, session.getCountdown().getDeadline());
+        finishPhase(session);
+        assertEquals(10 * 60, session.getCountdown().remainingSeconds());
+    }
+
+    @Test
+    public void upcomingDeadlinesArePrecomputed() throws Exception {
+        PomodoroSession session = newSession(2, true);
+        long start = now;
+        session.start();
+
+        long[] deadlines = new long[5];
+        assertEquals(5, session.upcomingDeadlines(deadlines));
+        long work = WORK * 1000L;
+        long shortBreak = SHORT * 1000L;
+        long longBreak = LONG * 1000L;
+        assertArrayEquals(new long[] {
+                start + work,
+                start + work + shortBreak,
+                start + 2 * work + shortBreak,
+                start + 2 * work + shortBreak + longBreak,
+                start + 3 * work + shortBreak + longBreak,
+        }, deadlines);
+
+        // The preview does not disturb the real state
+        assertEquals(SessionPhase.WORK, session.getPhase());
+        assertEquals(0, session.getCompletedCycles());
+    }
+
+    @Test
+    public void upcomingDeadlinesStopAtFirstBoundaryWithoutAutoAdvance() throws Exception {
+        PomodoroSession session = newSession(4, false);
+        session.start();
+        assertEquals(1, session.upcomingDeadlines(new long[4]));
+        session.pause();
+        assertEquals(0, session.upcomingDeadlines(new long[4]));
+    }
+
+    @Test
+    public void snapshotIsCompactViewOfState() throws Exception {
+        PomodoroSession session = newSession(4, true);
+        session.start();
+        finishPhase(session);
+        now += 1_500;
+
+        TimerSnapshot snapshot = session.snapshot();
+        assertEquals(SessionPhase.SHORT_BREAK, snapshot.phase);
+        assertEquals(SHORT - 1, snapshot.secondsLeft);
+        assertEquals(SHORT, snapshot.phaseSeconds);
+        assertEquals(1, snapshot.completedCycles);
+        assertTrue(snapshot.running);
+    }
+
+    @Test
+    public void historyReportsThePlanThePhaseStartedWith() throws Exception {
+        PomodoroSession session = newSession(4, true);
+        int[] reported = new int[2];
+        session.setPhaseListener((phase, completed, planned, actual, endTime) -> {
+            reported[0] = planned;
+            reported[1] = actual;
+        });
+
+        session.start(SessionPhase.WORK, 90_000);
+        now += 30_000;
+        session.reset();
+        assertEquals(90, reported[0]);
+        assertEquals(30, reported[1]);
+
+        session.start();
+        session.pause();
+        session.hold(10 * 60_000);
+        session.resume();
+        now += 10 * 60_000;
+        session.advanceIfDue();
+        assertEquals(10 * 60, reported[0]);
+        assertEquals(10 * 60, reported[1]);
+
+        now += 60_000;
+        session.skip();
+        assertEquals(SHORT, reported[0]);
+        assertEquals(60, reported[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveWork() throws Exception {
+        new PomodoroSession.Config(0, SHORT, LONG, 4, true);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsLongBreaksWithoutDuration() throws Exception {
+        new PomodoroSession.Config(WORK, SHORT, 0, 4, true);
+    }
+
+    @Test
+    public void phaseNamesRoundTrip() throws Exception {
+        for (SessionPhase phase : SessionPhase.values()) {
+            assertEquals(phase, SessionPhase.fromJsName(phase.getJsName()));
+        }
+        assertFalse(SessionPhase.WORK.isBreak());
+        assertTrue(SessionPhase.LONG_BREAK.isBreak());
+    }
+}
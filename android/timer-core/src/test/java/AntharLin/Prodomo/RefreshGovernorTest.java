@@ -0,0 +1,109 @@
+package AntharLin.Prodomo;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class RefreshGovernorTest {
+
+    private final RefreshGovernor governor = new RefreshGovernor();
+    private final List<String> events = new ArrayList<>();
+
+    private void listen(RefreshGovernor.Sink sink) {
+        governor.setListener(sink, live -> {
+            events.add(sink.getJsName() + (live ? " live" : " idle"));
+            if (live) {
+                governor.countUpdate(sink); // the catch-up redraw
+            }
+        });
+    }
+
+    /** One second of the session as every sink sees it: each redraws only while live. */
+    private void tick(int seconds) {
+        for (int i = 0; i < seconds; i++) {
+            for (RefreshGovernor.Sink sink : RefreshGovernor.Sink.values()) {
+                if (governor.isLive(sink)) {
+                    governor.countUpdate(sink);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void startsWithOnlyTheNotificationLive() throws Exception {
+        assertTrue(governor.isLive(RefreshGovernor.Sink.NOTIFICATION));
+        assertFalse(governor.isLive(RefreshGovernor.Sink.OVERLAY));
+        assertFalse(governor.isLive(RefreshGovernor.Sink.BRIDGE));
+        assertTrue(governor.isAnyLive());
+    }
+
+    @Test
+    public void screenOffSilencesEverySinkAndScreenOnCatchesThemUp() throws Exception {
+        for (RefreshGovernor.Sink sink : RefreshGovernor.Sink.values()) {
+            listen(sink);
+        }
+        governor.setForeground(true);
+        governor.setOverlayVisible(true);
+        events.clear();
+
+        governor.setScreenOn(false);
+        assertFalse(governor.isAnyLive());
+        assertEquals(3, events.size());
+
+        events.clear();
+        governor.setScreenOn(true);
+        assertEquals(3, events.size());
+        assertTrue(events.contains("notification live"));
+        assertTrue(events.contains("overlay live"));
+        assertTrue(events.contains("bridge live"));
+    }
+
+    @Test
+    public void onlyChangesAreReported() throws Exception {
+        listen(RefreshGovernor.Sink.BRIDGE);
+        governor.setForeground(true);
+        governor.setForeground(true);
+        governor.setOverlayVisible(true);
+        assertEquals(1, events.size());
+        governor.setForeground(false);
+        assertEquals("bridge idle", events.get(1));
+    }
+
+    @Test
+    public void countersShowTheSavingsOverAnHourLongSession() throws Exception {
+        for (RefreshGovernor.Sink sink : RefreshGovernor.Sink.values()) {
+            listen(sink);
+        }
+        // 5 minutes in the app with the overlay up, 20 in another app, 35 with the screen off
+        governor.setForeground(true);
+        governor.setOverlayVisible(true);
+        tick(5 * 60);
+        governor.setForeground(false);
+        tick(20 * 60);
+        governor.setScreenOn(false);
+        tick(35 * 60);
+        governor.setScreenOn(true);
+
+        // Against 3,600 redraws per sink at a flat 1 Hz; one catch-up each for becoming live
+        assertEquals(25 * 60 + 1, governor.getUpdateCount(RefreshGovernor.Sink.NOTIFICATION));
+        assertEquals(1 + 25 * 60 + 1, governor.getUpdateCount(RefreshGovernor.Sink.OVERLAY));
+        assertEquals(1 + 5 * 60, governor.getUpdateCount(RefreshGovernor.Sink.BRIDGE));
+
+        governor.resetCounts();
+        assertEquals(0, governor.getUpdateCount(RefreshGovernor.Sink.OVERLAY));
+    }
+
+    @Test
+    public void removeListenerOnlyRemovesItsOwn() throws Exception {
+        RefreshGovernor.Listener first = live -> events.add("first");
+        RefreshGovernor.Listener second = live -> events.add("second");
+        governor.setListener(RefreshGovernor.Sink.OVERLAY, first);
+        governor.setListener(RefreshGovernor.Sink.OVERLAY, second);
+        governor.removeListener(RefreshGovernor.Sink.OVERLAY, first);
+        governor.setOverlayVisible(true);
+        assertEquals(1, events.size());
+        assertEquals("second", events.get(0));
+    }
+}
@@ -0,0 +1,287 @@
+package AntharLin.Prodomo;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Each test drives a session through transitions, "kills" the process by dropping every
+ * object except the file, and checks what a fresh process rebuilds from the journal.
+ */
+public class SessionJournalTest {
+
+    private static final PomodoroSession.Config CONFIG = new PomodoroSession.Config(25 * 60, 5 * 60, 15 * 60, 2, true);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private long elapsed = 5_000_000L;
+    private long wall = 1_700_000_000_000L;
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(folder.getRoot(), "session.journal");
+    }
+
+    private SessionJournal newJournal() {
+        return new SessionJournal(file, () -> elapsed, () -> wall);
+    }
+
+    private PomodoroSession newSession() {
+        return new PomodoroSession(() -> elapsed, CONFIG);
+    }
+
+    private void advance(long millis) {
+        elapsed += millis;
+        wall += millis;
+    }
+
+    /** Simulates a kill and a cold start: a new journal and session over the same file. */
+    private PomodoroSession restart() throws Exception {
+        PomodoroSession restored = new PomodoroSession(() -> elapsed,
+                new PomodoroSession.Config(60, 60, 60, 0, true));
+        SessionJournal.Entry entry = newJournal().read();
+        assertNotNull(entry);
+        assertTrue(entry.active);
+        entry.applyTo(restored);
+        return restored;
+    }
+
+    @Test
+    public void emptyJournalRestoresNothing() throws Exception {
+        assertNull(newJournal().read());
+    }
+
+    @Test
+    public void killAfterStartKeepsExactDeadline() throws Exception {
+        SessionJournal journal = newJournal();
+        PomodoroSession session = newSession();
+        session.start();
+        journal.record(session, true);
+        long deadline = session.getCountdown().getDeadline();
+
+        advance(61_234);
+        PomodoroSession restored = restart();
+        assertTrue(restored.isRunning());
+        assertEquals(SessionPhase.WORK, restored.getPhase());
+        assertEquals(deadline, restored.getCountdown().getDeadline());
+        assertEquals(session.getCountdown().remainingMillis(), restored.getCountdown().remainingMillis());
+        assertEquals(25 * 60, restored.getConfig().workSeconds);
+        assertEquals(2, restored.getConfig().cyclesBeforeLongBreak);
+    }
+
+    @Test
+    public void entrySnapshotMatchesTheSessionWithoutRestoringIt() throws Exception {
+        SessionJournal journal = newJournal();
+        PomodoroSession session = newSession();
+        session.start();
+        journal.record(session, true);
+
+        advance(61_234);
+        TimerSnapshot snapshot = newJournal().read().toSnapshot(elapsed);
+        assertEquals(session.snapshot().secondsLeft, snapshot.secondsLeft);
+        assertTrue(snapshot.running);
+        assertEquals(SessionPhase.WORK, snapshot.phase);
+        assertEquals(25 * 60, snapshot.phaseSeconds);
+
+        session.pause();
+        journal.record(session, true);
+        advance(3_600_000);
+        snapshot = newJournal().read().toSnapshot(elapsed);
+        assertFalse(snapshot.running);
+        assertEquals(25 * 60 - 61, snapshot.secondsLeft);
+
+        journal.clear();
+        assertSame(TimerSnapshot.IDLE, newJournal().read().toSnapshot(elapsed));
+    }
+
+    @Test
+    public void killWhilePausedKeepsRemainingTime() throws Exception {
+        SessionJournal journal = newJournal();
+        PomodoroSession session = newSession();
+        session.start();
+        journal.record(session, true);
+        advance(90_500);
+        session.pause();
+        journal.record(session, true);
+
+        advance(3_600_000);
+        PomodoroSession restored = restart();
+        assertFalse(restored.isRunning());
+        assertEquals(25 * 60 * 1000L - 90_500, restored.getCountdown().remainingMillis());
+
+        restored.resume();
+        assertEquals(elapsed + 25 * 60 * 1000L - 90_500, restored.getCountdown().getDeadline());
+    }
+
+    @Test
+    public void killAfterResumeUsesNewDeadline() throws Exception {
+        SessionJournal journal = newJournal();
+        PomodoroSession session = newSession();
+        session.start();
+        journal.record(session, true);
+        session.pause();
+        journal.record(session, true);
+        advance(10_000);
+        session.resume();
+        journal.record(session, true);
+
+        advance(1_000);
+        PomodoroSession restored = restart();
+        assertEquals(session.getCountdown().getDeadline(), restored.getCountdown().getDeadline());
+    }
+
+    @Test
+    public void killAfterPhaseChangeKeepsPhaseAndCycles() throws Exception {
+        SessionJournal journal = newJournal();
+        PomodoroSession session = newSession();
+        session.start();
+        journal.record(session, true);
+        for (int i = 0; i < 3; i++) {
+            elapsed = session.getCountdown().getDeadline();
+            wall += session.getCountdown().remainingMillis();
+            session.advanceIfDue();
+            journal.record(session, true);
+        }
+        assertEquals(SessionPhase.LONG_BREAK, session.getPhase());
+
+        advance(2_000);
+        PomodoroSession restored = restart();
+        assertEquals(SessionPhase.LONG_BREAK, restored.getPhase());
+        assertEquals(2, restored.getCompletedCycles());
+        assertEquals(session.getCountdown().getDeadline(), restored.getCountdown().getDeadline());
+        assertEquals(SessionPhase.WORK, restored.nextPhase());
+    }
+
+    @Test
+    public void boundaryPassedWhileDeadIsCaughtUpFromDeadline() throws Exception {
+        SessionJournal journal = newJournal();
+        PomodoroSession session = newSession();
+        session.start();
+        journal.record(session, true);
+        long workDeadline = session.getCountdown().getDeadline();
+
+        // Dead through the whole work phase and 30 s into the break
+        advance(25 * 60 * 1000L + 30_000);
+        PomodoroSession restored = restart();
+        assertTrue(restored.getCountdown().isFinished());
+        assertEquals(1, restored.advanceIfDue());
+        assertEquals(SessionPhase.SHORT_BREAK, restored.getPhase());
+        assertEquals(workDeadline + 5 * 60 * 1000L, restored.getCountdown().getDeadline());
+    }
+
+    @Test
+    public void killAfterResetRestoresNothing() throws Exception {
+        SessionJournal journal = newJournal();
+        PomodoroSession session = newSession();
+        session.start();
+        journal.record(session, true);
+        session.reset();
+        journal.clear();
+
+        SessionJournal.Entry entry = newJournal().read();
+        assertNotNull(entry);
+        assertFalse(entry.active);
+    }
+
+    @Test
+    public void oneShotCountdownKeepsCyclingFlag() throws Exception {
+        SessionJournal journal = newJournal();
+        PomodoroSession session = newSession();
+        session.start(SessionPhase.WORK, 90_000);
+        journal.record(session, false);
+
+        SessionJournal.Entry entry = newJournal().read();
+        assertFalse(entry.cycling);
+        assertTrue(entry.running);
+    }
+
+    @Test
+    public void oneShotCountdownKeepsItsPlanAcrossRestarts() throws Exception {
+        SessionJournal journal = newJournal();
+        PomodoroSession session = newSession();
+        session.start(SessionPhase.WORK, 90_000);
+        journal.record(session, false);
+        long deadline = session.getCountdown().getDeadline();
+
+        advance(30_000);
+        PomodoroSession restored = restart();
+        assertEquals(90_000, restored.getPlannedMillis());
+        assertEquals(deadline, restored.getCountdown().getDeadline());
+
+        session.start();
+        journal.record(session, true);
+        assertEquals(25 * 60_000, restart().getPlannedMillis());
+    }
+
+    @Test
+    public void tornWriteFallsBackToPreviousTransition() throws Exception {
+        SessionJournal journal = newJournal();
+        PomodoroSession session = newSession();
+        session.start();
+        journal.record(session, true);
+        long runningDeadline = session.getCountdown().getDeadline();
+        advance(5_000);
+        session.pause();
+        journal.record(session, true);
+
+        // Garble the newest slot (the second record went to slot 0) as if killed mid-write
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(30);
+            raf.writeLong(0xdeadbeefL);
+        }
+
+        PomodoroSession restored = restart();
+        assertTrue(restored.isRunning());
+        assertEquals(runningDeadline, restored.getCountdown().getDeadline());
+    }
+
+    @Test
+    public void sequenceContinuesAcrossRestarts() throws Exception {
+        PomodoroSession session = newSession();
+        session.start();
+        newJournal().record(session, true);
+        session.pause();
+        newJournal().record(session, true);
+        session.resume();
+        // A third writer must not overwrite the newest slot with an older sequence number
+        newJournal().record(session, true);
+
+        PomodoroSession restored = restart();
+        assertTrue(restored.isRunning());
+        assertEquals(session.getCountdown().getDeadline(), restored.getCountdown().getDeadline());
+    }
+
+    @Test
+    public void rebootCarriesDeadlineOverThroughWallClock() throws Exception {
+        SessionJournal journal = newJournal();
+        PomodoroSession session = newSession();
+        session.start();
+        journal.record(session, true);
+        long remaining = session.getCountdown().remainingMillis();
+
+        // Reboot 2 minutes later: elapsedRealtime() starts over near zero
+        elapsed = 20_000;
+        wall += 120_000;
+        PomodoroSession restored = restart();
+        assertTrue(restored.isRunning());
+        assertEquals(remaining - 120_000, restored.getCountdown().remainingMillis());
+    }
+
+    @Test
+    public void fileHoldsOnlyTwoSlots() throws Exception {
+        SessionJournal journal = newJournal();
+        PomodoroSession session = newSession();
+        session.start();
+        for (int i = 0; i < 100; i++) {
+            journal.record(session, true);
+        }
+        assertEquals(2 * SessionJournal.SLOT_SIZE, file.length());
+    }
+}
@@ -0,0 +1,185 @@
+package AntharLin.Prodomo;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Days of sessions on a {@link VirtualDevice}: random starts, pauses, skips, screen changes,
+ * long screen-off stretches in Doze and process kills, fast-forwarded in virtual time. Each
+ * seed replays exactly, so a failure names the seed and the virtual moment it happened at.
+ */
+public class SessionSoakTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long DAY = 24 * 60 * MINUTE;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private VirtualDevice newDevice(long seed) throws Exception {
+        return new VirtualDevice(seed, new File(folder.newFolder(), "session.journal"));
+    }
+
+    private static void assertClean(String what, VirtualDevice device) {
+        if (!device.getViolations().isEmpty()) {
+            int shown = Math.min(10, device.getViolations().size());
+            fail(what + ": " + device.getViolations().size() + " violations, first "
+                    + device.getViolations().subList(0, shown));
+        }
+    }
+
+    /** Phases of a few minutes, so a week holds hundreds of boundaries. */
+    private static PomodoroSession.Config randomConfig(Random random) {
+        return new PomodoroSession.Config(60 + random.nextInt(25 * 60), 60 + random.nextInt(5 * 60),
+                60 + random.nextInt(15 * 60), 2 + random.nextInt(3), true);
+    }
+
+    private static void soak(VirtualDevice device, long seed, long duration) {
+        Random random = new Random(seed);
+        long elapsed = 0;
+        boolean screenOn = true;
+        while (elapsed < duration) {
+            // Something happens every couple of minutes; the screen may stay off for hours
+            long wait = (long) (-Math.log(1 - random.nextDouble()) * (screenOn ? 2 : 15) * MINUTE);
+            wait = Math.max(1, Math.min(wait, 6 * 60 * MINUTE));
+            device.runFor(wait);
+            elapsed += wait;
+
+            int roll = random.nextInt(100);
+            if (roll < 30) {
+                screenOn = !screenOn;
+                device.setScreenOn(screenOn);
+                continue;
+            }
+            if (roll < 40) {
+                device.kill();
+                continue;
+            }
+            if (!screenOn) {
+                // The user acts on the session only with the screen on
+                continue;
+            }
+            if (!device.isActive()) {
+                device.start(randomConfig(random));
+            } else if (roll < 75) {
+                if (device.isRunning()) {
+                    device.pause();
+                } else {
+                    device.resume();
+                }
+            } else if (roll < 90) {
+                device.skip();
+            } else if (roll < 93) {
+                device.reset();
+            }
+        }
+        device.runFor(MINUTE);
+    }
+
+    @Test
+    public void aWeekOfRandomSessionsKeepsEveryInvariant() throws Exception {
+        for (long seed = 1; seed <= 3; seed++) {
+            VirtualDevice device = newDevice(seed);
+            soak(device, seed, 7 * DAY);
+
+            assertClean("seed " + seed, device);
+            // The run really went through what it claims to cover
+            assertTrue(device.getBoundaries() > 300);
+            assertTrue(device.getKills() > 50);
+            assertTrue(device.getRestores() > 50);
+            assertTrue(device.getTicks() > 10_000);
+            assertTrue(device.getMaxAlarmLateness() <= VirtualDevice.TOLERANCE_MILLIS);
+            assertTrue(device.getMaxTickLateness() <= VirtualDevice.TOLERANCE_MILLIS);
+        }
+    }
+
+    @Test
+    public void boundariesRingOnTimeWithTheScreenOff() throws Exception {
+        VirtualDevice device = newDevice(7);
+        device.start(new PomodoroSession.Config(25 * 60, 5 * 60, 15 * 60, 4, true));
+        device.runFor(MINUTE);
+        device.setScreenOn(false);
+        int ticksBefore = device.getTicks();
+        // Two full cycles in Doze: four work phases, three short breaks, one long one, and again
+        device.runFor(2 * (4 * 25 + 3 * 5 + 15) * MINUTE);
+
+        assertClean("screen off", device);
+        assertEquals(16, device.getBoundaries());
+        // Asleep in between: a few ticks around each boundary instead of one every second
+        assertTrue(device.getTicks() - ticksBefore <= 3 * 16);
+    }
+
+    @Test
+    public void aKillInsideTheAlarmLeadStillRingsOnTime() throws Exception {
+        VirtualDevice device = newDevice(11);
+        device.start(new PomodoroSession.Config(60, 60, 60, 4, true));
+        device.runFor(1_000);
+        device.setScreenOn(false);
+        // The lead alarm has fired and the last tick is waiting on the deadline
+        device.runFor(59_000 - 40);
+        device.kill();
+        device.runFor(MINUTE);
+
+        assertClean("kill in lead", device);
+        assertEquals(1, device.getBoundaries());
+    }
+
+    @Test
+    public void killsWhilePausedResumeWhereTheyLeftOff() throws Exception {
+        VirtualDevice device = newDevice(13);
+        device.start(new PomodoroSession.Config(10 * 60, 5 * 60, 15 * 60, 4, true));
+        device.runFor(3 * MINUTE);
+        device.pause();
+        device.runFor(MINUTE);
+        device.kill();
+        device.runFor(30 * MINUTE);
+        assertEquals(-1, device.getAlarmAt());
+
+        device.resume();
+        device.runFor(7 * MINUTE + 1_000);
+        assertClean("paused kill", device);
+        assertEquals(1, device.getBoundaries());
+        assertTrue(device.getRestores() >= 1);
+    }
+
+    @Test
+    public void updatesWhilePausedStayPaused() throws Exception {
+        VirtualDevice device = newDevice(17);
+        device.start(new PomodoroSession.Config(10 * 60, 5 * 60, 15 * 60, 4, true));
+        device.runFor(3 * MINUTE);
+        device.pause();
+        device.runFor(MINUTE);
+        device.setSecondsLeft(2 * 60);
+        device.runFor(30 * MINUTE);
+        assertEquals(-1, device.getAlarmAt());
+        assertEquals(0, device.getBoundaries());
+
+        // The new time was journaled, and survives the process
+        device.kill();
+        device.runFor(MINUTE);
+        device.resume();
+        device.runFor(2 * MINUTE + 1_000);
+        assertClean("update while paused", device);
+        assertEquals(1, device.getBoundaries());
+    }
+
+    @Test
+    public void zeroSecondsLeftEndsThePhaseNow() throws Exception {
+        VirtualDevice device = newDevice(19);
+        device.start(new PomodoroSession.Config(10 * 60, 5 * 60, 15 * 60, 4, true));
+        device.runFor(3 * MINUTE);
+        device.setSecondsLeft(0);
+        device.runFor(1_000);
+        assertEquals(1, device.getBoundaries());
+
+        // The break that follows is scheduled from now and rings on time
+        device.runFor(5 * MINUTE);
+        assertClean("zero seconds left", device);
+        assertEquals(2, device.getBoundaries());
+    }
+}
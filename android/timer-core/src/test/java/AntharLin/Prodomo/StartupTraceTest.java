@@ -0,0 +1,43 @@
+package AntharLin.Prodomo;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class StartupTraceTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void stagesAreMeasuredFromBegin() throws Exception {
+        StartupTrace trace = new StartupTrace();
+        trace.begin(1_000 * MS);
+        assertTrue(trace.mark(StartupTrace.Stage.NATIVE_DIGITS, 1_180 * MS));
+        assertTrue(trace.mark(StartupTrace.Stage.WEB_DIGITS, 1_950 * MS));
+
+        assertEquals(180, trace.millisTo(StartupTrace.Stage.NATIVE_DIGITS));
+        assertEquals(950, trace.millisTo(StartupTrace.Stage.WEB_DIGITS));
+        assertEquals(StartupTrace.NOT_REACHED, trace.millisTo(StartupTrace.Stage.PAGE_LOADED));
+    }
+
+    @Test
+    public void onlyTheFirstMarkOfAStageCounts() throws Exception {
+        StartupTrace trace = new StartupTrace();
+        trace.begin(0);
+        assertTrue(trace.mark(StartupTrace.Stage.NATIVE_DIGITS, 40 * MS));
+        assertFalse(trace.mark(StartupTrace.Stage.NATIVE_DIGITS, 90 * MS));
+        assertEquals(40, trace.millisTo(StartupTrace.Stage.NATIVE_DIGITS));
+    }
+
+    @Test
+    public void marksWithoutATraceAreIgnoredAndBeginStartsOver() throws Exception {
+        StartupTrace trace = new StartupTrace();
+        assertFalse(trace.mark(StartupTrace.Stage.NATIVE_DIGITS, 5 * MS));
+        assertEquals(StartupTrace.NOT_REACHED, trace.millisTo(StartupTrace.Stage.NATIVE_DIGITS));
+
+        trace.begin(10 * MS);
+        trace.mark(StartupTrace.Stage.NATIVE_DIGITS, 30 * MS);
+        trace.begin(100 * MS);
+        assertEquals(StartupTrace.NOT_REACHED, trace.millisTo(StartupTrace.Stage.NATIVE_DIGITS));
+    }
+}
@@ -0,0 +1,67 @@
+package AntharLin.Prodomo;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TickGateTest {
+
+    private static int countEmitted(TickGate gate, int fromSeconds) {
+        int emitted = 0;
+        for (int s = fromSeconds; s >= 0; s--) {
+            if (gate.offer(s, s > 0)) {
+                emitted++;
+            }
+        }
+        return emitted;
+    }
+
+    @Test
+    public void everySecondEmitsEachTick() throws Exception {
+        TickGate gate = new TickGate();
+        assertEquals(61, countEmitted(gate, 60));
+    }
+
+    @Test
+    public void tenSecondRateKeepsBoundariesAndPhaseChanges() throws Exception {
+        TickGate gate = new TickGate();
+        gate.setRate(TickGate.Rate.EVERY_TEN_SECONDS);
+        // start (65), then 60, 50, ..., 10, then the final 0
+        assertEquals(8, countEmitted(gate, 65));
+    }
+
+    @Test
+    public void phaseOnlyEmitsStartAndEnd() throws Exception {
+        TickGate gate = new TickGate();
+        gate.setRate(TickGate.Rate.PHASE_ONLY);
+        assertEquals(2, countEmitted(gate, 25 * 60));
+    }
+
+    @Test
+    public void backgroundFallsBackToPhaseOnly() throws Exception {
+        TickGate gate = new TickGate();
+        assertTrue(gate.offer(300, true));
+        gate.setBackground(true);
+        assertEquals(TickGate.Rate.PHASE_ONLY, gate.effectiveRate());
+        assertFalse(gate.offer(299, true));
+        assertTrue("pause is a phase change", gate.offer(298, false));
+        assertTrue("resume is a phase change", gate.offer(298, true));
+        assertTrue("a new phase starts higher", gate.offer(600, true));
+
+        gate.setBackground(false);
+        assertEquals(TickGate.Rate.EVERY_SECOND, gate.effectiveRate());
+        assertTrue(gate.offer(599, true));
+    }
+
+    @Test
+    public void ratesRoundTripThroughJsNames() throws Exception {
+        for (TickGate.Rate rate : TickGate.Rate.values()) {
+            assertEquals(rate, TickGate.Rate.fromJsName(rate.getJsName()));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownRateIsRejected() throws Exception {
+        TickGate.Rate.fromJsName("minute");
+    }
+}
@@ -0,0 +1,74 @@
+package AntharLin.Prodomo;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import org.junit.Test;
+
+public class TimeFormatterTest {
+
+    @Test
+    public void formatsMinutesAndSeconds() throws Exception {
+        assertEquals("00:00", TimeFormatter.format(0));
+        assertEquals("00:00", TimeFormatter.format(-5));
+        assertEquals("00:09", TimeFormatter.format(9));
+        assertEquals("40:00", TimeFormatter.format(40 * 60));
+        assertEquals("99:59", TimeFormatter.format(TimeFormatter.MAX_CACHED_SECONDS));
+        assertEquals("1:40:00", TimeFormatter.format(6000));
+        assertEquals("27:46:39", TimeFormatter.format(99999));
+    }
+
+    @Test
+    public void allVariantsAgreeWithStringFormat() throws Exception {
+        char[] buffer = new char[16];
+        StringBuilder sb = new StringBuilder();
+        for (int seconds = 0; seconds <= TimeFormatter.MAX_CACHED_SECONDS; seconds++) {
+            String expected = String.format("%02d:%02d", seconds / 60, seconds % 60);
+            assertEquals(expected, TimeFormatter.format(seconds));
+            assertEquals(expected, new String(buffer, 0, TimeFormatter.formatInto(buffer, 0, seconds)));
+            sb.setLength(0);
+            assertEquals(expected, TimeFormatter.appendTo(sb, seconds).toString());
+        }
+    }
+
+    @Test
+    public void cachedStringsAreReused() throws Exception {
+        assertSame(TimeFormatter.format(1500), TimeFormatter.format(1500));
+    }
+
+    @Test
+    public void tickPathDoesNotAllocate() throws Exception {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return; // Allocation counters are HotSpot-only
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        long threadId = Thread.currentThread().getId();
+
+        char[] buffer = new char[16];
+        StringBuilder sb = new StringBuilder(16);
+        int calls = 200_000;
+        long sink = 0;
+        // Warm up: fills the string cache and lets the JIT settle
+        for (int i = 0; i < calls; i++) {
+            sink += TimeFormatter.format(i % 6000).length();
+            sink += TimeFormatter.formatInto(buffer, 0, i % 6000);
+            sb.setLength(0);
+            sink += TimeFormatter.appendTo(sb, i % 6000).length();
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < calls; i++) {
+            int seconds = i % 6000;
+            sink += TimeFormatter.format(seconds).length();
+            sink += TimeFormatter.formatInto(buffer, 0, seconds);
+            sb.setLength(0);
+            sink += TimeFormatter.appendTo(sb, seconds).length();
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(sink > 0);
+        // Allow for the measurement call itself, but nothing proportional to the call count
+        assertTrue("allocated " + allocated + " bytes over " + calls + " calls", allocated < 1024);
+    }
+}
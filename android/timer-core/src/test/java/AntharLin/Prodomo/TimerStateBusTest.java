@@ -0,0 +1,61 @@
+package AntharLin.Prodomo;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.junit.Test;
+
+public class TimerStateBusTest {
+
+    @Test
+    public void lateSubscriberGetsCurrentStateImmediately() throws Exception {
+        TimerStateBus bus = new TimerStateBus();
+        TimerSnapshot snapshot = new TimerSnapshot(42, true, 1234L, SessionPhase.WORK, 0, 0);
+        bus.publish(snapshot);
+
+        List<TimerSnapshot> received = new ArrayList<>();
+        bus.subscribe(received::add);
+
+        assertEquals(1, received.size());
+        assertSame(snapshot, received.get(0));
+        assertSame(snapshot, bus.getLatest());
+    }
+
+    @Test
+    public void publishesToAllListenersUntilUnsubscribed() throws Exception {
+        TimerStateBus bus = new TimerStateBus();
+        List<Integer> first = new ArrayList<>();
+        List<Integer> second = new ArrayList<>();
+        TimerStateBus.Listener firstListener = s -> first.add(s.secondsLeft);
+        bus.subscribe(firstListener);
+        bus.subscribe(s -> second.add(s.secondsLeft));
+
+        bus.publish(new TimerSnapshot(10, true, 0L, SessionPhase.WORK, 0, 0));
+        bus.unsubscribe(firstListener);
+        bus.publish(new TimerSnapshot(9, true, 0L, SessionPhase.WORK, 0, 0));
+
+        assertEquals(Arrays.asList(0, 10), first);
+        assertEquals(Arrays.asList(0, 10, 9), second);
+    }
+
+    @Test
+    public void executorListenersAreDispatchedThroughTheExecutor() throws Exception {
+        TimerStateBus bus = new TimerStateBus();
+        List<Runnable> queued = new ArrayList<>();
+        Executor executor = queued::add;
+        List<Integer> received = new ArrayList<>();
+        bus.subscribe(s -> received.add(s.secondsLeft), executor);
+
+        bus.publish(new TimerSnapshot(5, true, 0L, SessionPhase.WORK, 0, 0));
+        assertTrue(received.isEmpty());
+        assertEquals(2, queued.size());
+
+        for (Runnable runnable : queued) {
+            runnable.run();
+        }
+        assertEquals(Arrays.asList(0, 5), received);
+    }
+}
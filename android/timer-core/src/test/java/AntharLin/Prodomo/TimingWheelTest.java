@@ -0,0 +1,143 @@
+package AntharLin.Prodomo;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+public class TimingWheelTest {
+
+    private static final long START = 1_000_000L;
+
+    private final List<TimingWheel.Timeout> fired = new ArrayList<>();
+    private final TimingWheel.Task record = fired::add;
+
+    @Test
+    public void firesOnTheFirstAdvanceAtOrAfterTheDeadline() throws Exception {
+        Random random = new Random(42);
+        TimingWheel wheel = new TimingWheel(1, START);
+        Set<TimingWheel.Timeout> pending = new HashSet<>();
+        for (int i = 0; i < 5000; i++) {
+            // From a few ms to ten days away, across every level of the wheel
+            long delay = (long) Math.pow(10, random.nextDouble() * 9);
+            pending.add(wheel.schedule(START + delay, record));
+        }
+        long now = START;
+        while (!pending.isEmpty()) {
+            now += 1 + (long) Math.pow(10, random.nextDouble() * 7);
+            fired.clear();
+            wheel.advance(now);
+            long previous = Long.MIN_VALUE;
+            for (TimingWheel.Timeout timeout : fired) {
+                assertTrue(timeout.getDeadline() <= now);
+                assertTrue(pending.remove(timeout));
+                assertTrue(timeout.getDeadline() >= previous);
+                previous = timeout.getDeadline();
+            }
+            for (TimingWheel.Timeout timeout : pending) {
+                assertTrue(timeout.getDeadline() > now);
+            }
+            assertEquals(pending.size(), wheel.size());
+        }
+    }
+
+    @Test
+    public void nextExpiryIsTheEarliestDeadlineRoundedUpToTheTick() throws Exception {
+        TimingWheel wheel = new TimingWheel(100, START);
+        assertEquals(Long.MAX_VALUE, wheel.nextExpiry());
+        wheel.schedule(START + 3_600_000, record);
+        TimingWheel.Timeout soon = wheel.schedule(START + 1_250, record);
+        wheel.schedule(START + 90_000, record);
+        assertEquals(START + 1_300, wheel.nextExpiry());
+
+        wheel.cancel(soon);
+        assertEquals(START + 90_000, wheel.nextExpiry());
+        assertEquals(0, wheel.advance(START + 89_999));
+        assertEquals(1, wheel.advance(START + 90_000));
+        assertEquals(START + 3_600_000, wheel.nextExpiry());
+    }
+
+    @Test
+    public void cancelledAndFiredTimeoutsCannotBeCancelledAgain() throws Exception {
+        TimingWheel wheel = new TimingWheel(1, START);
+        TimingWheel.Timeout first = wheel.schedule(START + 10, record);
+        TimingWheel.Timeout second = wheel.schedule(START + 10, record);
+        assertTrue(wheel.cancel(first));
+        assertFalse(wheel.cancel(first));
+        wheel.advance(START + 10);
+        assertEquals(1, fired.size());
+        assertSame(second, fired.get(0));
+        assertFalse(wheel.cancel(second));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void tasksCanRescheduleWhileFiring() throws Exception {
+        TimingWheel wheel = new TimingWheel(1, START);
+        int[] runs = {0};
+        wheel.schedule(START + 1_000, new TimingWheel.Task() {
+            @Override
+            public void onExpired(TimingWheel.Timeout timeout) {
+                if (++runs[0] < 5) {
+                    wheel.schedule(timeout.getDeadline() + 1_000, this);
+                }
+            }
+        });
+        // One late wakeup catches up with every repetition that became due
+        assertEquals(5, wheel.advance(START + 10_000));
+        assertEquals(5, runs[0]);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void driverWakesOncePerDistinctBoundary() throws Exception {
+        TimingWheel wheel = new TimingWheel(1_000, START);
+        Random random = new Random(7);
+        Set<Long> boundaries = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            long deadline = START + 1 + random.nextInt(3_600) * 1_000L;
+            wheel.schedule(deadline, record);
+            boundaries.add(deadline);
+        }
+        int wakeups = 0;
+        while (wheel.size() > 0) {
+            assertTrue(wheel.advance(wheel.nextExpiry()) > 0);
+            wakeups++;
+        }
+        assertEquals(boundaries.size(), wakeups);
+        assertEquals(10_000, fired.size());
+    }
+
+    /**
+     * Schedule and cancel touch one slot's list head and nothing else, whatever the population;
+     * their speed at scale is measured by TimerCoreBenchmark.scheduleAndCancel.
+     */
+    @Test
+    public void scheduleAndCancelTouchOnlyTheirSlotHead() throws Exception {
+        TimingWheel wheel = new TimingWheel(1, START);
+        long deadline = START + 500_000;
+        int slot = TimingWheel.slotOf(wheel.schedule(deadline, record));
+        wheel.cancel(wheel.headOf(slot));
+
+        for (int i = 0; i < 200_000; i++) {
+            wheel.schedule(START + 1 + i * 37L, record);
+        }
+        TimingWheel.Timeout neighbour = wheel.headOf(slot);
+        assertNotNull(neighbour);
+        TimingWheel.Timeout timeout = wheel.schedule(deadline, record);
+        // The same slot as in the empty wheel, linked in front of what was already there
+        assertEquals(slot, TimingWheel.slotOf(timeout));
+        assertSame(timeout, wheel.headOf(slot));
+        assertEquals(200_001, wheel.size());
+
+        assertTrue(wheel.cancel(timeout));
+        assertEquals(-1, TimingWheel.slotOf(timeout));
+        assertSame(neighbour, wheel.headOf(slot));
+        assertEquals(slot, TimingWheel.slotOf(neighbour));
+        assertEquals(200_000, wheel.size());
+    }
+}
@@ -0,0 +1,510 @@
+package AntharLin.Prodomo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A phone in virtual time, hosting {@link SessionRunner} the way the foreground service does.
+ * elapsedRealtime always runs; uptime, which the looper is keyed on, stops while the CPU
+ * sleeps, i.e. while the screen is off and no wake lock or alarm delivery keeps it up. Looper
+ * tasks run late by a random jitter, exact alarms by a random delivery latency, and both the
+ * alarm and the journal file survive {@link #kill()}; the service comes back like START_STICKY
+ * or through the alarm, just as on a device.
+ *
+ * <p>Every callback is checked against a reference model of the session, and each broken
+ * invariant is recorded in {@link #getViolations()}: drift beyond {@link #TOLERANCE_MILLIS},
+ * a boundary rung late or never, a boundary rung twice, and a second shown twice on screen.
+ */
+final class VirtualDevice {
+
+    static final long TOLERANCE_MILLIS = 100;
+    private static final long LOOPER_JITTER_MILLIS = 15;
+    private static final long ALARM_LATENCY_MILLIS = 80;
+    /** How long the system keeps the CPU up to deliver a broadcast, e.g. an alarm, and start the service. */
+    private static final long DELIVERY_WAKE_MILLIS = 500;
+    private static final long STICKY_RESTART_MILLIS = 10_000;
+    private static final PomodoroSession.Config SETTINGS = new PomodoroSession.Config(25 * 60, 5 * 60, 15 * 60, 4, true);
+
+    private final Random random;
+    private final File journalFile;
+    private final PriorityQueue<Task> tasks = new PriorityQueue<>();
+    private final List<String> violations = new ArrayList<>();
+    private final Set<Long> rungDeadlines = new HashSet<>();
+    private long now = 10_000_000L;
+    private long uptime = now;
+    private long sequence;
+    private boolean screenOn = true;
+    private long wakeLockUntil;
+    private long deliveryWakeUntil;
+    private long alarmAt = -1;
+    private long alarmDeliverAt;
+    private long stickyRestartAt = -1;
+    private Process process;
+    private Service service;
+
+    // The reference model: where the running phase must end, or what a paused one has left
+    private boolean refActive;
+    private boolean refRunning;
+    private long refDeadline;
+    private long refRemaining;
+    private boolean advancePending;
+    private boolean settling;
+
+    // The last periodic tick, to tell a steady tick loop from a catch-up tick
+    private Service lastTickService;
+    private long lastTickDeadline;
+    private long lastTickAt;
+    private int lastTickSeconds;
+
+    private long maxAlarmLateness;
+    private long maxTickLateness;
+    private int boundaries;
+    private int ticks;
+    private int kills;
+    private int restores;
+
+    VirtualDevice(long seed, File journalFile) {
+        this.random = new Random(seed);
+        this.journalFile = journalFile;
+    }
+
+    private final class Task implements Comparable<Task> {
+        final Process owner;
+        final Runnable runnable;
+        final long due;
+        final long order = sequence++;
+
+        Task(Process owner, Runnable runnable, long due) {
+            this.owner = owner;
+            this.runnable = runnable;
+            this.due = due;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            int byDue = Long.compare(due, other.due);
+            return byDue != 0 ? byDue : Long.compare(order, other.order);
+        }
+    }
+
+    /** A process and its looper; killing it drops everything it had posted. */
+    private final class Process implements SessionRunner.Scheduler {
+
+        void post(Runnable runnable) {
+            schedule(runnable, 0);
+        }
+
+        @Override
+        public void schedule(Runnable task, long delayMillis) {
+            // Delayed tasks come late by a busy looper; plain posts keep their order
+            long jitter = delayMillis > 0 ? (long) (random.nextDouble() * LOOPER_JITTER_MILLIS) : 0;
+            tasks.add(new Task(this, task, uptime + delayMillis + jitter));
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            tasks.removeIf(t -> t.owner == this && t.runnable == task);
+        }
+    }
+
+    /** One instance of the foreground service, from onCreate to onDestroy. */
+    private final class Service implements SessionRunner.Host {
+        final SessionRunner runner;
+        boolean stopRequested;
+
+        Service() {
+            SessionJournal journal = new SessionJournal(journalFile, () -> now, () -> 1_700_000_000_000L + now);
+            runner = new SessionRunner(() -> now, SETTINGS, journal, process, this);
+        }
+
+        @Override
+        public void scheduleBoundaryAlarm(long triggerAtMillis) {
+            alarmAt = triggerAtMillis;
+            long latency = (long) (random.nextDouble() * ALARM_LATENCY_MILLIS);
+            alarmDeliverAt = Math.max(now, triggerAtMillis) + latency;
+        }
+
+        @Override
+        public void cancelBoundaryAlarm() {
+            alarmAt = -1;
+        }
+
+        @Override
+        public void acquireWakeLock(long timeoutMillis) {
+            wakeLockUntil = now + timeoutMillis;
+        }
+
+        @Override
+        public void releaseWakeLock() {
+            wakeLockUntil = 0;
+        }
+
+        @Override
+        public boolean isWakeLockHeld() {
+            return now < wakeLockUntil;
+        }
+
+        @Override
+        public boolean isVisible() {
+            return screenOn;
+        }
+
+        @Override
+        public void onPhaseEnd(long deadlineMillis) {
+            boundaries++;
+            long lateness = now - deadlineMillis;
+            maxAlarmLateness = Math.max(maxAlarmLateness, lateness);
+            if (!rungDeadlines.add(deadlineMillis)) {
+                violation("boundary at " + deadlineMillis + " rung twice");
+            }
+            if (lateness < 0 || lateness > TOLERANCE_MILLIS) {
+                violation("boundary at " + deadlineMillis + " rung " + lateness + " ms off");
+            }
+            if (!refRunning || Math.abs(deadlineMillis - refDeadline) > TOLERANCE_MILLIS) {
+                violation("boundary at " + deadlineMillis + " but the reference ends at " + refDeadline);
+            }
+            advancePending = true;
+        }
+
+        @Override
+        public void onStateChanged(boolean periodic) {
+            PomodoroSession session = runner.getSession();
+            if (advancePending && !periodic) {
+                // The session moved on from the deadline, not from whenever the tick ran
+                refDeadline += session.getConfig().secondsFor(session.getPhase()) * 1000L;
+                advancePending = false;
+            }
+            checkDrift(session);
+            if (periodic) {
+                checkTick(this, session.getCountdown());
+            }
+        }
+
+        @Override
+        public void onFinished() {
+            refActive = false;
+            refRunning = false;
+            stopRequested = true;
+        }
+
+        @Override
+        public void onJournalFailed(IOException e) {
+            violation("journal failed: " + e);
+        }
+    }
+
+    // --- What the user and the system do ---
+
+    /** Starts a new cycle from its first work phase, as the start button does. */
+    void start(PomodoroSession.Config config) {
+        command(runner -> {
+            refActive = true;
+            refRunning = true;
+            refDeadline = now + config.workSeconds * 1000L;
+            runner.start(config, SessionPhase.WORK, config.workSeconds * 1000L);
+        });
+    }
+
+    void pause() {
+        command(runner -> {
+            if (runner.getSession().isRunning()) {
+                refRunning = false;
+                refRemaining = refDeadline - now;
+                runner.pause();
+            }
+        });
+    }
+
+    void resume() {
+        command(runner -> {
+            if (runner.isActive() && !runner.getSession().isRunning()) {
+                refRunning = true;
+                refDeadline = now + refRemaining;
+                runner.resume();
+            }
+        });
+    }
+
+    /** JS corrects the time left, as ForegroundServicePlugin.update does; a paused phase stays paused unless it reaches 0. */
+    void setSecondsLeft(int secondsLeft) {
+        command(runner -> {
+            if (runner.isActive()) {
+                if (secondsLeft <= 0) {
+                    // Ends the phase now, paused or not, and the next one runs from here
+                    refRunning = true;
+                    refDeadline = now;
+                } else if (refRunning) {
+                    refDeadline = now + secondsLeft * 1000L;
+                } else {
+                    refRemaining = secondsLeft * 1000L;
+                }
+                runner.setSecondsLeft(secondsLeft);
+            }
+        });
+    }
+
+    void skip() {
+        command(runner -> {
+            if (runner.isActive()) {
+                PomodoroSession session = runner.getSession();
+                // Judged after the skip: the reference cannot know the next phase beforehand
+                settling = true;
+                runner.skip();
+                settling = false;
+                long full = session.getConfig().secondsFor(session.getPhase()) * 1000L;
+                refRunning = session.isRunning();
+                refDeadline = now + full;
+                refRemaining = full;
+                checkDrift(session);
+            }
+        });
+    }
+
+    void reset() {
+        command(SessionRunner::reset);
+    }
+
+    void setScreenOn(boolean on) {
+        if (screenOn == on) {
+            return;
+        }
+        screenOn = on;
+        // Like any broadcast, the screen change is delivered under a wake lock
+        deliveryWakeUntil = Math.max(deliveryWakeUntil, now + DELIVERY_WAKE_MILLIS);
+        if (service != null) {
+            Service current = service;
+            process.post(() -> current.runner.onVisibilityChanged());
+        }
+        // The next tick catches up rather than continuing the loop
+        lastTickService = null;
+    }
+
+    /** The process dies: posted work, the wake lock and the service go; the alarm and journal stay. */
+    void kill() {
+        if (process == null) {
+            return;
+        }
+        Process dead = process;
+        tasks.removeIf(t -> t.owner == dead);
+        if (service != null && refActive) {
+            stickyRestartAt = now + 1_000 + (long) (random.nextDouble() * STICKY_RESTART_MILLIS);
+        }
+        process = null;
+        service = null;
+        wakeLockUntil = 0;
+        kills++;
+    }
+
+    void runFor(long millis) {
+        long target = now + millis;
+        while (true) {
+            boolean awake = isAwake();
+            long next = target;
+            Task head = tasks.peek();
+            if (head != null && awake) {
+                next = Math.min(next, now + Math.max(0, head.due - uptime));
+            }
+            if (alarmAt >= 0) {
+                next = Math.min(next, alarmDeliverAt);
+            }
+            if (stickyRestartAt >= 0) {
+                next = Math.min(next, stickyRestartAt);
+            }
+            // The CPU may fall asleep when a wake lock or a delivery wake runs out
+            if (wakeLockUntil > now) {
+                next = Math.min(next, wakeLockUntil);
+            }
+            if (deliveryWakeUntil > now) {
+                next = Math.min(next, deliveryWakeUntil);
+            }
+            next = Math.max(next, now);
+            if (awake) {
+                uptime += next - now;
+            }
+            now = next;
+
+            if (head != null && isAwake() && head.due <= uptime) {
+                runTask(tasks.poll());
+            } else if (alarmAt >= 0 && alarmDeliverAt <= now) {
+                deliverAlarm();
+            } else if (stickyRestartAt >= 0 && stickyRestartAt <= now) {
+                stickyRestartAt = -1;
+                startService(true);
+            } else if (now >= target) {
+                break;
+            }
+        }
+        checkNothingOverdue();
+    }
+
+    // --- Results ---
+
+    List<String> getViolations() {
+        return violations;
+    }
+
+    boolean isActive() {
+        return refActive;
+    }
+
+    boolean isRunning() {
+        return refRunning;
+    }
+
+    long getMaxAlarmLateness() {
+        return maxAlarmLateness;
+    }
+
+    long getMaxTickLateness() {
+        return maxTickLateness;
+    }
+
+    int getBoundaries() {
+        return boundaries;
+    }
+
+    int getTicks() {
+        return ticks;
+    }
+
+    int getKills() {
+        return kills;
+    }
+
+    int getRestores() {
+        return restores;
+    }
+
+    long getAlarmAt() {
+        return alarmAt;
+    }
+
+    // --- Internals ---
+
+    private boolean isAwake() {
+        return screenOn || now < wakeLockUntil || now < deliveryWakeUntil;
+    }
+
+    private interface Command {
+        void run(SessionRunner runner);
+    }
+
+    /** onStartCommand: the command is posted to the service's looper behind its onCreate work. */
+    private void command(Command command) {
+        Service target = startService(false);
+        process.post(() -> command.run(target.runner));
+    }
+
+    /**
+     * Creates the process and service if needed, which restore the journal first; on a
+     * {@code wakeup}, i.e. the boundary alarm or a sticky restart, the runner then catches up.
+     */
+    private Service startService(boolean wakeup) {
+        if (process == null) {
+            process = new Process();
+        }
+        boolean created = service == null;
+        if (created) {
+            service = new Service();
+            stickyRestartAt = -1;
+            Service fresh = service;
+            process.post(() -> {
+                try {
+                    if (fresh.runner.restore() != null) {
+                        restores++;
+                    }
+                } catch (IOException e) {
+                    violation("restore failed: " + e);
+                }
+            });
+        }
+        if (wakeup) {
+            Service current = service;
+            process.post(() -> {
+                if (!current.runner.isActive()) {
+                    current.stopRequested = true;
+                } else {
+                    current.runner.onWakeup();
+                }
+            });
+        }
+        return service;
+    }
+
+    private void deliverAlarm() {
+        alarmAt = -1;
+        deliveryWakeUntil = now + DELIVERY_WAKE_MILLIS;
+        startService(true);
+    }
+
+    private void runTask(Task task) {
+        task.runnable.run();
+        if (service != null && service.stopRequested && task.owner == process) {
+            // stopSelf(): onDestroy releases the runner
+            service.runner.release();
+            service = null;
+        }
+    }
+
+    private void checkDrift(PomodoroSession session) {
+        if (settling) {
+            return;
+        }
+        if (session.isRunning() && refRunning) {
+            long drift = session.getCountdown().getDeadline() - refDeadline;
+            if (Math.abs(drift) > TOLERANCE_MILLIS) {
+                violation("deadline drifted " + drift + " ms");
+            }
+        } else if (session.isRunning() != refRunning) {
+            violation("running is " + session.isRunning() + " but the reference says " + refRunning);
+        }
+    }
+
+    private void checkTick(Service source, CountdownEngine countdown) {
+        ticks++;
+        if (!screenOn) {
+            // Nobody sees these; the service drops them
+            lastTickService = null;
+            return;
+        }
+        int seconds = countdown.remainingSeconds();
+        long deadline = countdown.getDeadline();
+        boolean steady = source == lastTickService && deadline == lastTickDeadline
+                && now - lastTickAt < 1_000 + TOLERANCE_MILLIS * 5;
+        if (steady) {
+            if (seconds >= lastTickSeconds) {
+                violation("second " + seconds + " shown twice at " + now);
+            }
+            // The tick loop aims at the moment the display changes to this second
+            long lateness = now - (deadline - seconds * 1000L);
+            maxTickLateness = Math.max(maxTickLateness, lateness);
+            if (lateness > TOLERANCE_MILLIS) {
+                violation("tick for second " + seconds + " ran " + lateness + " ms late");
+            }
+        }
+        lastTickService = source;
+        lastTickDeadline = deadline;
+        lastTickAt = now;
+        lastTickSeconds = seconds;
+    }
+
+    /** A running phase whose deadline is well past, but that nothing has finished, was missed. */
+    private void checkNothingOverdue() {
+        if (refRunning && !advancePending && now > refDeadline + TOLERANCE_MILLIS
+                && !rungDeadlines.contains(refDeadline)) {
+            violation("boundary at " + refDeadline + " missed, now " + now);
+            // Report it once
+            rungDeadlines.add(refDeadline);
+        }
+    }
+
+    private void violation(String message) {
+        violations.add("[" + now + "] " + message);
+    }
+}
@@ -3,10 +3,6 @@ import { UploadIcon } from './icons';
 import { Language, translations } from '../lib/translations';
 import { SoundOption, BUILTIN_SOUNDS, SoundType } from '../lib/soundModels';
 import { Filesystem, Directory } from '@capacitor/filesystem';
-import { Preferences } from '@capacitor/preferences';
-
-// Constants from App.tsx
-const CUSTOM_SOUND_FILE_KEY = 'pomodoro_custom_sound_file_uri';
 
 interface SettingsProps {
   workMinutes: number;
@@ -63,7 +59,6 @@ export const Settings: React.FC<SettingsProps> = ({
       if (selectedSound.type === 'custom') {
         setCustomSoundUri(null);
         setCustomSoundName(undefined);
-        Preferences.remove({ key: CUSTOM_SOUND_FILE_KEY });
       }
     }
   };
@@ -89,11 +84,7 @@ export const Settings: React.FC<SettingsProps> = ({
           recursive: true,
         });
 
-        // Store the file URI and name in preferences
-        const soundData = { uri: result.uri, name: file.name };
-        await Preferences.set({ key: CUSTOM_SOUND_FILE_KEY, value: JSON.stringify(soundData) });
-
-        // Update App state
+        // Update App state; App persists the URI and name through SettingsStore
         setCustomSoundUri(result.uri);
         setCustomSoundName(file.name);
         setSelectedSound({ id: 'custom', type: 'custom', name: file.name, value: result.uri });
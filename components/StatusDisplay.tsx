@@ -2,7 +2,7 @@ import React from 'react';
 import { Language, translations } from '../lib/translations';
 
 interface StatusDisplayProps {
-  mode: 'work' | 'break';
+  mode: 'work' | 'break' | 'longBreak';
   isActive: boolean;
   language: Language;
 }
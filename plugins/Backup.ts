@@ -0,0 +1,30 @@
+import { registerPlugin } from '@capacitor/core';
+
+export type BackupFormat = 'binary' | 'csv';
+
+export interface BackupSummary {
+  format: BackupFormat;
+  /** settings written or applied */
+  settings: number;
+  /** history records written or added */
+  records: number;
+  bytes: number;
+}
+
+export interface BackupPlugin {
+  /**
+   * Streams settings and the whole history into a file in the cache directory; share the
+   * returned content URI (FileProvider) to move it to another device. Defaults to binary.
+   */
+  exportData(options?: { format?: BackupFormat }): Promise<BackupSummary & { uri: string; name: string; mimeType: string }>;
+  /**
+   * Imports a file from exportData, in either format. Every record is validated and nothing
+   * is kept if any fails; records not newer than the newest one on this device are skipped.
+   * Settings change natively, so call SettingsStore.getAll() afterwards.
+   */
+  importData(options: { uri: string }): Promise<BackupSummary & { skipped: number }>;
+}
+
+const Backup = registerPlugin<BackupPlugin>('Backup');
+
+export default Backup;
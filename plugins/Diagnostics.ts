@@ -0,0 +1,67 @@
+import { registerPlugin } from '@capacitor/core';
+
+/** Microseconds */
+export interface HistogramStats {
+  count: number;
+  mean: number;
+  max: number;
+  p50: number;
+  p90: number;
+  p99: number;
+  'p99.9': number;
+}
+
+export interface AlarmStats {
+  count: number;
+  /** played later than 50 ms after the deadline */
+  overBudget: number;
+  /** no sound was ready to play */
+  failed: number;
+  meanMillis: number;
+  maxMillis: number;
+}
+
+/** Milliseconds since the activity started; -1 while not reached */
+export interface StartupStats {
+  activityCreated: number;
+  /** first frame of the native splash, already showing the right time */
+  nativeDigits: number;
+  pageLoaded: number;
+  /** first Timer.getState() from JS */
+  webDigits: number;
+}
+
+export interface SinkStats {
+  /** redraws since start or the last reset(), catch-ups and transitions included */
+  updates: number;
+  /** redrawn every tick right now; otherwise only on transitions */
+  live: boolean;
+}
+
+export interface DiagnosticsSnapshot {
+  enabled: boolean;
+  tickLateness: HistogramStats;
+  notifyDuration: HistogramStats;
+  bridgeEmit: HistogramStats;
+  overlayRedraw: HistogramStats;
+  alarm: AlarmStats;
+  startup: StartupStats;
+  refresh: {
+    notification: SinkStats;
+    overlay: SinkStats;
+    bridge: SinkStats;
+  };
+}
+
+export interface DiagnosticsPlugin {
+  /** Off by default; costs a volatile read per hook while off */
+  setEnabled(options: { enabled: boolean }): Promise<void>;
+  snapshot(): Promise<DiagnosticsSnapshot>;
+  /** Writes every histogram, buckets included, to a JSON file in the app's files dir */
+  dump(): Promise<{ path: string }>;
+  reset(): Promise<void>;
+}
+
+const Diagnostics = registerPlugin<DiagnosticsPlugin>('Diagnostics');
+
+export default Diagnostics;
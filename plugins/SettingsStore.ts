@@ -0,0 +1,27 @@
+import { registerPlugin } from '@capacitor/core';
+
+export interface AppSettings {
+  workMinutes: number;
+  breakMinutes: number;
+  longBreakMinutes: number;
+  /** work phases per long break; 0 disables long breaks */
+  cyclesBeforeLongBreak: number;
+  autoAdvance: boolean;
+  soundId: string;
+  /** web asset path or file URI of the alarm; empty for no sound */
+  soundPath: string;
+  customSoundName: string;
+}
+
+export interface SettingsStorePlugin {
+  /** Every setting in one call, for the first render */
+  getAll(): Promise<AppSettings>;
+  /** Applied natively at once; persisting is debounced and coalesced into a single write */
+  set(changes: Partial<AppSettings>): Promise<void>;
+  /** Persists pending writes now */
+  flush(): Promise<void>;
+}
+
+const SettingsStore = registerPlugin<SettingsStorePlugin>('SettingsStore');
+
+export default SettingsStore;
@@ -1,9 +1,49 @@
-import { registerPlugin } from '@capacitor/core';
+import { registerPlugin, PluginListenerHandle } from '@capacitor/core';
+
+export type TickRate = 'second' | 'tenSeconds' | 'phase';
+
+export type SessionPhase = 'work' | 'break' | 'longBreak';
+
+export interface TimerTickEvent {
+  secondsLeft: number;
+  running: boolean;
+  phase: SessionPhase;
+  /** full length of the current phase */
+  phaseSeconds: number;
+  completedCycles: number;
+  /** true for the catch-up event sent when the app returns to the foreground */
+  snapshot: boolean;
+}
+
+export interface NamedTimer {
+  id: string;
+  label?: string;
+  running: boolean;
+  durationMillis: number;
+  /** at the time of the call; count down locally from here */
+  remainingMillis: number;
+}
 
 export interface TimerPlugin {
-  start(options: { seconds: number }): Promise<void>;
+  start(options: { seconds: number; title?: string; text?: string }): Promise<void>;
   pause(): Promise<void>;
+  resume(): Promise<void>;
   reset(): Promise<void>;
+  getState(): Promise<Omit<TimerTickEvent, 'snapshot'>>;
+  /** Sets how often timerTick fires; the background always falls back to 'phase' */
+  subscribe(options: { rate: TickRate }): Promise<void>;
+  addListener(eventName: 'timerTick', listenerFunc: (event: TimerTickEvent) => void): Promise<PluginListenerHandle>;
+  /** Starts a timer next to the session; an existing timer with the same id is replaced */
+  startTimer(options: { id: string; seconds: number; label?: string }): Promise<NamedTimer>;
+  pauseTimer(options: { id: string }): Promise<NamedTimer>;
+  resumeTimer(options: { id: string }): Promise<NamedTimer>;
+  cancelTimer(options: { id: string }): Promise<{ cancelled: boolean }>;
+  getTimers(): Promise<{ timers: NamedTimer[] }>;
+  /** Fired once per timer; expired timers are removed */
+  addListener(
+    eventName: 'namedTimerExpired',
+    listenerFunc: (event: { id: string; label?: string }) => void,
+  ): Promise<PluginListenerHandle>;
 }
 
 const Timer = registerPlugin<TimerPlugin>('Timer');
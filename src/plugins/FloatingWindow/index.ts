@@ -25,6 +25,19 @@ export interface FloatingWindowPlugin {
    * @returns {Promise<void>}
    */
   hide(): Promise<void>;
+
+  /**
+   * 綁定倒數截止時間，之後由原生端自行更新懸浮視窗（每個階段只需呼叫一次，不需每秒 update）
+   * @param {number} deadline - 截止時間（epoch 毫秒，例如 Date.now() + secondsLeft * 1000）
+   * @returns {Promise<void>}
+   */
+  bind(options: { deadline: number }): Promise<void>;
+
+  /**
+   * 解除截止時間綁定，停止原生端自行更新
+   * @returns {Promise<void>}
+   */
+  unbind(): Promise<void>;
 }
 
 const FloatingWindow = registerPlugin<FloatingWindowPlugin>('FloatingWindow');
@@ -1,22 +1,42 @@
 import { registerPlugin } from '@capacitor/core';
+import type { SessionPhase } from '../../plugins/Timer';
 
 export interface ForegroundServicePlugin {
   /**
    * 啟動前景服務
-   * @param options 包含通知標題、內容和剩餘秒數
+   * @param options 包含通知標題、內容和剩餘秒數；coarseNotification 為 true 時通知每分鐘更新一次。
+   * 提供 workSeconds 與 breakSeconds 時，工作/休息循環由原生端以精確鬧鐘推進並播放 soundPath 鈴聲。
    */
-  start(options: { title: string; text: string; secondsLeft: number }): Promise<void>;
+  start(options: {
+    title: string;
+    text: string;
+    secondsLeft: number;
+    coarseNotification?: boolean;
+    phase?: SessionPhase;
+    workSeconds?: number;
+    breakSeconds?: number;
+    /** 長休息秒數，預設與 breakSeconds 相同 */
+    longBreakSeconds?: number;
+    /** 每完成幾個工作階段進入一次長休息，0 表示停用 */
+    cyclesBeforeLongBreak?: number;
+    /** false 時下一階段會暫停在完整時長，等待使用者繼續 */
+    autoAdvance?: boolean;
+    soundPath?: string;
+    soundIsUrl?: boolean;
+    /** 寫入歷史紀錄時使用的標籤 */
+    tag?: string;
+  }): Promise<void>;
 
   /**
-   * 停止前景服務
+   * 結束工作階段並停止前景服務；已儲存的工作階段一併清除，不會在下次啟動時還原
    */
   stop(): Promise<void>;
 
   /**
-   * 更新前景服務的通知內容和剩餘秒數
-   * @param options 包含通知標題、內容和剩餘秒數
+   * 更新前景服務的通知標題與內容（倒數由原生服務自行計時，不需每秒呼叫）
+   * @param options 包含通知標題、內容，以及可選的剩餘秒數（僅用於重新同步）
    */
-  update(options: { title: string; text: string; secondsLeft: number }): Promise<void>;
+  update(options: { title: string; text: string; secondsLeft?: number }): Promise<void>;
 }
 
 const ForegroundService = registerPlugin<ForegroundServicePlugin>('ForegroundService');
@@ -0,0 +1,55 @@
+import { registerPlugin } from '@capacitor/core';
+import type { SessionPhase } from '../../plugins/Timer';
+
+export interface HistoryStats {
+  /** 完成的工作階段數 */
+  completed: number;
+  /** 中途重設或跳過的工作階段數 */
+  abandoned: number;
+  focusSeconds: number;
+  breakSeconds: number;
+}
+
+export interface HistoryRecord {
+  endTime: number;
+  phase: SessionPhase;
+  completed: boolean;
+  plannedSeconds: number;
+  actualSeconds: number;
+  tag: string;
+}
+
+export interface HistoryPlugin {
+  /**
+   * 單日統計
+   * @param options time 為該日任一時刻（epoch 毫秒），預設為今天
+   */
+  getDay(options?: { time?: number }): Promise<HistoryStats>;
+
+  /**
+   * 以 time 所在日為最後一天，往前共 count 天（預設 7）的逐日統計，由舊到新
+   */
+  getDays(options?: { time?: number; count?: number }): Promise<{ days: (HistoryStats & { epochDay: number })[] }>;
+
+  /**
+   * time 所在週（週一開始）的統計
+   */
+  getWeek(options?: { time?: number }): Promise<HistoryStats>;
+
+  /**
+   * 各標籤的累計統計，未加標籤的階段以空字串表示
+   */
+  getTags(): Promise<{ tags: (HistoryStats & { tag: string })[] }>;
+
+  getTotals(): Promise<HistoryStats & { records: number }>;
+
+  /**
+   * 分頁列出紀錄，新的在前
+   * @param options offset 0 為最新一筆；limit 預設 50，最多 200
+   */
+  list(options?: { offset?: number; limit?: number }): Promise<{ total: number; records: HistoryRecord[] }>;
+}
+
+const History = registerPlugin<HistoryPlugin>('History');
+
+export default History;